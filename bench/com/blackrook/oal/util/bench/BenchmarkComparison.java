@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against a baseline result file,
+ * and prints the change in score of each benchmark, by name and parameters.
+ * <p>
+ * Usage: <code>BenchmarkComparison [baseline file] [results file] [threshold percent]</code>
+ * <p>
+ * The "samples" secondary metric (samples per second) is compared if a benchmark has one,
+ * and the primary score if not. Benchmarks not in the baseline are listed as new.
+ * Exits with status 1 if any benchmark is worse than its baseline by more than the
+ * threshold (default 5 percent), so that builds can fail on regressions.
+ * Exits with status 2 if there is no baseline file.
+ * @author Matthew Tropiano
+ */
+public final class BenchmarkComparison
+{
+	/** Default threshold in percent. */
+	private static final double DEFAULT_THRESHOLD = 5.0;
+	/** Preferred secondary metric. */
+	private static final String SAMPLES_METRIC = "samples";
+
+	private BenchmarkComparison() {}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.out.println("Usage: BenchmarkComparison [baseline file] [results file] [threshold percent]");
+			System.exit(2);
+			return;
+		}
+
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+		File baselineFile = new File(args[0]);
+		if (!baselineFile.exists())
+		{
+			System.out.println("No baseline found at " + baselineFile.getPath() + ".");
+			System.out.println("Record one on a reference machine with the \"bench.record\" target.");
+			System.exit(2);
+			return;
+		}
+
+		Map<String, Score> baseline = readScores(baselineFile);
+		Map<String, Score> results = readScores(new File(args[1]));
+
+		int regressions = 0;
+		System.out.printf("%-72s %14s %14s %9s\n", "Benchmark", "Baseline", "Current", "Change");
+		for (Map.Entry<String, Score> entry : results.entrySet())
+		{
+			Score current = entry.getValue();
+			Score base = baseline.get(entry.getKey());
+			if (base == null)
+			{
+				System.out.printf("%-72s %14s %14.4g %9s  %s\n", entry.getKey(), "-", current.value, "-", current.unit + " (new)");
+				continue;
+			}
+
+			double change = base.value != 0.0 ? (current.value - base.value) / base.value * 100.0 : 0.0;
+			// for times, less is better.
+			double worse = current.higherIsBetter ? -change : change;
+			String note = current.unit;
+			if (worse > threshold)
+			{
+				note += " REGRESSION";
+				regressions++;
+			}
+			System.out.printf("%-72s %14.4g %14.4g %+8.1f%%  %s\n", entry.getKey(), base.value, current.value, change, note);
+		}
+		for (String key : baseline.keySet())
+			if (!results.containsKey(key))
+				System.out.printf("%-72s %14.4g %14s %9s  %s\n", key, baseline.get(key).value, "-", "-", "(not run)");
+
+		System.out.printf("%d benchmarks, %d regressions over %.1f%%.\n", results.size(), regressions, threshold);
+		if (regressions > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Reads the scores in a JMH JSON result file, by benchmark name and parameters.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Score> readScores(File file) throws IOException
+	{
+		String json = new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+		Map<String, Score> out = new TreeMap<String, Score>();
+		for (Object o : (List<Object>)new JSONReader(json).read())
+		{
+			Map<String, Object> result = (Map<String, Object>)o;
+			StringBuilder key = new StringBuilder((String)result.get("benchmark"));
+			Map<String, Object> params = (Map<String, Object>)result.get("params");
+			if (params != null)
+				for (Map.Entry<String, Object> p : new TreeMap<String, Object>(params).entrySet())
+					key.append(' ').append(p.getKey()).append('=').append(p.getValue());
+
+			Map<String, Object> metric = (Map<String, Object>)result.get("primaryMetric");
+			Map<String, Object> secondary = (Map<String, Object>)result.get("secondaryMetrics");
+			if (secondary != null && secondary.containsKey(SAMPLES_METRIC))
+				metric = (Map<String, Object>)secondary.get(SAMPLES_METRIC);
+
+			Score score = new Score();
+			score.value = toDouble(metric.get("score"));
+			score.unit = (String)metric.get("scoreUnit");
+			score.higherIsBetter = score.unit != null && score.unit.endsWith("/s");
+			out.put(key.toString(), score);
+		}
+		return out;
+	}
+
+	// JMH writes NaN and infinite scores as strings.
+	private static double toDouble(Object o)
+	{
+		if (o instanceof Double)
+			return (Double)o;
+		return o != null ? Double.parseDouble(o.toString()) : Double.NaN;
+	}
+
+	/**
+	 * A benchmark score.
+	 */
+	private static class Score
+	{
+		double value;
+		String unit;
+		boolean higherIsBetter;
+	}
+
+	/**
+	 * A small reader for the JSON written by JMH.
+	 * Objects are read as Maps, arrays as Lists, and numbers as Doubles.
+	 */
+	private static class JSONReader
+	{
+		private String text;
+		private int pos;
+
+		JSONReader(String text)
+		{
+			this.text = text;
+			this.pos = 0;
+		}
+
+		Object read()
+		{
+			skipSpace();
+			if (pos >= text.length())
+				throw new IllegalArgumentException("Unexpected end of JSON.");
+
+			char c = text.charAt(pos);
+			if (c == '{')
+				return readObject();
+			else if (c == '[')
+				return readArray();
+			else if (c == '"')
+				return readString();
+			else if (c == '-' || Character.isDigit(c))
+				return readNumber();
+			else
+				return readLiteral();
+		}
+
+		private Map<String, Object> readObject()
+		{
+			Map<String, Object> out = new LinkedHashMap<String, Object>();
+			pos++;
+			skipSpace();
+			if (text.charAt(pos) == '}')
+			{
+				pos++;
+				return out;
+			}
+			while (true)
+			{
+				skipSpace();
+				String key = readString();
+				skipSpace();
+				expect(':');
+				out.put(key, read());
+				skipSpace();
+				if (text.charAt(pos) == '}')
+				{
+					pos++;
+					return out;
+				}
+				expect(',');
+			}
+		}
+
+		private List<Object> readArray()
+		{
+			List<Object> out = new ArrayList<Object>();
+			pos++;
+			skipSpace();
+			if (text.charAt(pos) == ']')
+			{
+				pos++;
+				return out;
+			}
+			while (true)
+			{
+				out.add(read());
+				skipSpace();
+				if (text.charAt(pos) == ']')
+				{
+					pos++;
+					return out;
+				}
+				expect(',');
+			}
+		}
+
+		private String readString()
+		{
+			expect('"');
+			StringBuilder sb = new StringBuilder();
+			while (true)
+			{
+				char c = text.charAt(pos++);
+				if (c == '"')
+					return sb.toString();
+				else if (c != '\\')
+					sb.append(c);
+				else
+				{
+					c = text.charAt(pos++);
+					switch (c)
+					{
+						case 'n': sb.append('\n'); break;
+						case 't': sb.append('\t'); break;
+						case 'r': sb.append('\r'); break;
+						case 'b': sb.append('\b'); break;
+						case 'f': sb.append('\f'); break;
+						case 'u':
+							sb.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+							pos += 4;
+							break;
+						default: sb.append(c); break;
+					}
+				}
+			}
+		}
+
+		private Double readNumber()
+		{
+			int start = pos;
+			while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)
+				pos++;
+			return Double.valueOf(text.substring(start, pos));
+		}
+
+		private Object readLiteral()
+		{
+			int start = pos;
+			while (pos < text.length() && Character.isLetter(text.charAt(pos)))
+				pos++;
+			String s = text.substring(start, pos);
+			if (s.equals("true"))
+				return Boolean.TRUE;
+			else if (s.equals("false"))
+				return Boolean.FALSE;
+			else if (s.equals("null"))
+				return null;
+			else if (s.equals("NaN"))
+				return Double.NaN;
+			throw new IllegalArgumentException("Unexpected JSON at character " + start + ".");
+		}
+
+		private void expect(char c)
+		{
+			if (pos >= text.length() || text.charAt(pos) != c)
+				throw new IllegalArgumentException("Expected '" + c + "' at character " + pos + ".");
+			pos++;
+		}
+
+		private void skipSpace()
+		{
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+				pos++;
+		}
+	}
+
+}
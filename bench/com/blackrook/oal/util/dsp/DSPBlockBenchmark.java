@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.dsp;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.oal.util.SoundUtils;
+import com.blackrook.oal.util.dsp.combiner.Adder;
+import com.blackrook.oal.util.dsp.combiner.Modulator;
+import com.blackrook.oal.util.dsp.filter.Normalizer;
+
+/**
+ * Measures the operations on blocks of samples that do not depend on a sampling rate:
+ * {@link SoundUtils#asPCMData16Bit(double[], double)}, {@link SoundUtils#muxSamples(double[]...)},
+ * {@link Normalizer}, {@link Adder} and {@link Modulator}.
+ * <p>
+ * Each operation processes one block of samples (two blocks for muxing).
+ * Samples per second are reported through the {@link DSPSynthesisBenchmark.Samples} counter.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DSPBlockBenchmark
+{
+	/** Amount of samples per block. */
+	@Param({"64", "256", "1024", "8192"})
+	public int blockSize;
+
+	private double[] samplesA;
+	private double[] samplesB;
+	private double[] out;
+	private Normalizer normalizer;
+	private Adder adder;
+	private Modulator modulator;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		Random random = new Random(0L);
+		samplesA = new double[blockSize];
+		samplesB = new double[blockSize];
+		for (int i = 0; i < blockSize; i++)
+		{
+			samplesA[i] = random.nextDouble() * 2.0 - 1.0;
+			samplesB[i] = random.nextDouble() * 2.0 - 1.0;
+		}
+		out = new double[blockSize];
+		normalizer = new Normalizer();
+		adder = new Adder();
+		modulator = new Modulator();
+	}
+
+	@Benchmark
+	public ByteBuffer asPCMData16Bit(DSPSynthesisBenchmark.Samples samples)
+	{
+		samples.samples += blockSize;
+		return SoundUtils.asPCMData16Bit(samplesA, 1.0);
+	}
+
+	@Benchmark
+	public double[] muxSamples(DSPSynthesisBenchmark.Samples samples)
+	{
+		samples.samples += blockSize * 2;
+		return SoundUtils.muxSamples(samplesA, samplesB);
+	}
+
+	@Benchmark
+	public double[] normalizerFilterInline(DSPSynthesisBenchmark.Samples samples)
+	{
+		normalizer.filterInline(samplesA, out);
+		samples.samples += blockSize;
+		return out;
+	}
+
+	@Benchmark
+	public double[] adderCombineInline(DSPSynthesisBenchmark.Samples samples)
+	{
+		adder.combineInline(samplesA, samplesB, out);
+		samples.samples += blockSize;
+		return out;
+	}
+
+	@Benchmark
+	public double[] modulatorCombineInline(DSPSynthesisBenchmark.Samples samples)
+	{
+		modulator.combineInline(samplesA, samplesB, out);
+		samples.samples += blockSize;
+		return out;
+	}
+
+}
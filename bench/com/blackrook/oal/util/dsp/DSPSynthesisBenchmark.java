@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.dsp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.commons.math.wave.WaveForm;
+import com.blackrook.oal.util.SoundUtils;
+
+/**
+ * Measures the sample generators that depend on a sampling rate:
+ * {@link Chip#getSample(double)}, {@link Patch#getSample(double, double)}, and
+ * {@link SoundUtils#createSoundWaveSamples(double, int, double, com.blackrook.commons.math.wave.WaveFormType)}.
+ * <p>
+ * Each operation generates one block of samples. Samples per second
+ * are reported through the {@link Samples} counter.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DSPSynthesisBenchmark
+{
+	/** Amount of samples per block. */
+	@Param({"64", "256", "1024", "8192"})
+	public int blockSize;
+	/** Sampling rate in samples per second. */
+	@Param({"22050", "44100", "48000", "96000"})
+	public int samplingRate;
+
+	private Patch patch;
+	private Chip chip;
+	private double[] out;
+	/** Next sample to generate. */
+	private long position;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		patch = new Patch(WaveForm.SINE, 1.0, samplingRate, samplingRate);
+
+		chip = new Chip();
+		chip.setPatch(patch);
+		Chip.State state = chip.getState();
+		state.setMute(false);
+		state.setFrequency(440.0);
+		state.setTremoloAmplitude(0.25);
+		state.setTremoloFrequency(6.0);
+		state.setVibratoAmplitude(0.02);
+		state.setVibratoFrequency(5.0);
+
+		out = new double[blockSize];
+		position = 0L;
+	}
+
+	@Benchmark
+	public double[] chipGetSample(Samples samples)
+	{
+		for (int i = 0; i < blockSize; i++)
+			out[i] = chip.getSample((double)(position + i) / samplingRate);
+		position += blockSize;
+		samples.samples += blockSize;
+		return out;
+	}
+
+	@Benchmark
+	public double[] patchGetSample(Samples samples)
+	{
+		for (int i = 0; i < blockSize; i++)
+			out[i] = patch.getSample(440.0, (double)(position + i) / samplingRate);
+		position += blockSize;
+		samples.samples += blockSize;
+		return out;
+	}
+
+	@Benchmark
+	public double[] createSoundWaveSamples(Samples samples)
+	{
+		// one period is one block.
+		double[] wave = SoundUtils.createSoundWaveSamples((double)samplingRate / blockSize, samplingRate, 1.0, WaveForm.SINE);
+		samples.samples += wave.length;
+		return wave;
+	}
+
+	/**
+	 * Amount of samples generated.
+	 * Reported as samples per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Samples
+	{
+		/** Amount of samples. */
+		public long samples;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			samples = 0L;
+		}
+	}
+
+}
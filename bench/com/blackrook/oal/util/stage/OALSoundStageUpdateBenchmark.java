@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import com.blackrook.oal.util.OALSoundResource;
+import com.blackrook.oal.util.OALSoundResourceAbstract;
+import com.blackrook.oal.util.backend.SimulatedBackend;
+
+/**
+ * Measures {@link OALSoundStage#update()} on a {@link SimulatedBackend},
+ * at 60 simulated updates per second.
+ * <p>
+ * Each operation plays a set amount of sounds on random objects and channels,
+ * moves simulated time forward by one update, and updates the stage.
+ * Objects move on every update, so voice parameters change.
+ * Some of the sounds may be streamed, which adds stream updates
+ * and work for the stream decoder thread.
+ * <p>
+ * The {@link #updateHooks}, {@link #updateListener}, {@link #updateEvents}, {@link #updateStreams}
+ * and {@link #updateVoices} benchmarks each measure one phase of the same update. The rest of the update runs
+ * before and after each invocation, outside of the measured time. Called on its own,
+ * each phase reads the voices' source states first, so the phases add up to a little
+ * more than {@link #update}, and per-invocation timing adds some nanoseconds to each.
+ * Run with the GC profiler (<code>-prof gc</code>) for allocation rates.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OALSoundStageUpdateBenchmark
+{
+	/** Simulated time between updates. */
+	private static final long UPDATE_NANOS = 1000000000L / 60L;
+	/** Amount of different sounds played. */
+	private static final int SOUND_COUNT = 16;
+	/** Sampling rate of the sounds. */
+	private static final int SAMPLING_RATE = 22050;
+	/** Amount of channels used per object. */
+	private static final int CHANNEL_COUNT = 4;
+	/** Half of the length of each side of the area that objects are placed in. */
+	private static final float AREA_SIZE = 64f;
+	/** Length of the streamed sounds in seconds. */
+	private static final int STREAM_SECONDS = 10;
+
+	/** Amount of stage voices. */
+	@Param({"32", "128", "512"})
+	public int voices;
+	/** Amount of sounds played per update. */
+	@Param({"1", "8", "32"})
+	public int eventsPerUpdate;
+	/** Amount of objects that sounds are played on. */
+	@Param({"64", "1024"})
+	public int objects;
+	/** Depth of the group that sounds are played in (0 is no group). */
+	@Param({"0", "1", "4"})
+	public int groupDepth;
+	/** Amount of the sounds that are streamed instead of cached. */
+	@Param({"0", "4"})
+	public int streamingSounds;
+
+	private SimulatedBackend backend;
+	private BenchObjectModel model;
+	private OALSoundStage<BenchObject> stage;
+	private BenchSound[] sounds;
+	private BenchObject[] objectList;
+	private OALSoundGroup group;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		random = new Random(0L);
+		backend = new SimulatedBackend();
+		model = new BenchObjectModel();
+
+		stage = new OALSoundStage<BenchObject>(backend, model, voices, 0)
+		{
+			@Override
+			protected AudioInputStream openStreamForAudio(OALSoundResource resource)
+				throws UnsupportedAudioFileException, IOException
+			{
+				// silence, but the length is all that matters to the simulated backend.
+				int frames = ((BenchSound)resource).frames;
+				AudioFormat format = new AudioFormat(SAMPLING_RATE, 16, 1, true, false);
+				return new AudioInputStream(new ByteArrayInputStream(new byte[frames * 2]), format, frames);
+			}
+		};
+		stage.setListenerPosition(0f, 0f, 0f);
+
+		sounds = new BenchSound[SOUND_COUNT];
+		for (int i = 0; i < SOUND_COUNT; i++)
+		{
+			BenchSound s;
+			if (i >= SOUND_COUNT - streamingSounds)
+			{
+				s = new BenchSound("stream" + i, SAMPLING_RATE * STREAM_SECONDS);
+				s.setStreaming(true);
+			}
+			else // 0.25 to 1 second long.
+				s = new BenchSound("sound" + i, SAMPLING_RATE / 4 + (SAMPLING_RATE * 3 / 4) * i / (SOUND_COUNT - 1));
+			s.setPriority(i % 4);
+			s.setAttenuationDistance(AREA_SIZE / 8f);
+			s.setMaxAttenuationDistance(AREA_SIZE);
+			s.setPitchVariance(0.05f);
+			s.setGainVariance(0.05f);
+			sounds[i] = s;
+		}
+		// streamed sounds have their heads primed.
+		stage.cacheSounds(sounds);
+
+		objectList = new BenchObject[objects];
+		for (int i = 0; i < objects; i++)
+			objectList[i] = new BenchObject(random);
+
+		group = null;
+		for (int i = 0; i < groupDepth; i++)
+		{
+			group = new OALSoundGroup(group);
+			group.setGainBias(0.9f);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Benchmark
+	public void update()
+	{
+		playAndAdvance();
+		stage.update();
+	}
+
+	@Benchmark
+	public void updateHooks(PhaseUpdate update)
+	{
+		stage.updateHooks();
+	}
+
+	@Benchmark
+	public void updateListener(PhaseUpdate update)
+	{
+		stage.updateListener();
+	}
+
+	@Benchmark
+	public void updateEvents(PhaseUpdate update)
+	{
+		stage.updateEvents();
+	}
+
+	@Benchmark
+	public void updateStreams(PhaseUpdate update)
+	{
+		stage.updateStreams();
+	}
+
+	@Benchmark
+	public void updateVoices(PhaseUpdate update)
+	{
+		stage.updateVoices();
+	}
+
+	/**
+	 * Plays this update's sounds and moves simulated time forward by one update.
+	 */
+	void playAndAdvance()
+	{
+		for (int i = 0; i < eventsPerUpdate; i++)
+		{
+			BenchSound sound = sounds[random.nextInt(SOUND_COUNT)];
+			BenchObject object = objectList[random.nextInt(objects)];
+			stage.play(sound, group, object, random.nextInt(CHANNEL_COUNT), sound.getGain(), sound.getPitch());
+		}
+		backend.advance(UPDATE_NANOS);
+		model.time += UPDATE_NANOS / 1000000000f;
+	}
+
+	/**
+	 * Runs one update phase on the stage.
+	 */
+	void updatePhase(OALSoundStageMetrics.Phase phase)
+	{
+		switch (phase)
+		{
+			case HOOKS:
+				stage.updateHooks();
+				break;
+			case LISTENER:
+				stage.updateListener();
+				break;
+			case EVENTS:
+				stage.updateEvents();
+				break;
+			case STREAMS:
+				stage.updateStreams();
+				break;
+			case VOICES:
+				stage.updateVoices();
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Runs the rest of an update around a benchmark that measures one phase.
+	 * The phase is the one named like the benchmark method, after "update".
+	 */
+	@State(Scope.Thread)
+	public static class PhaseUpdate
+	{
+		/** The update phases, in update order. */
+		private static final OALSoundStageMetrics.Phase[] PHASES = {
+			OALSoundStageMetrics.Phase.HOOKS,
+			OALSoundStageMetrics.Phase.LISTENER,
+			OALSoundStageMetrics.Phase.EVENTS,
+			OALSoundStageMetrics.Phase.STREAMS,
+			OALSoundStageMetrics.Phase.VOICES,
+		};
+
+		/** Index of the measured phase. */
+		private int measured;
+
+		@Setup(Level.Trial)
+		public void setUp(BenchmarkParams params)
+		{
+			String name = params.getBenchmark();
+			name = name.substring(name.lastIndexOf('.') + "update".length() + 1);
+			for (measured = 0; measured < PHASES.length; measured++)
+				if (PHASES[measured].name().equalsIgnoreCase(name))
+					return;
+			throw new IllegalStateException("No update phase for " + params.getBenchmark());
+		}
+
+		@Setup(Level.Invocation)
+		public void before(OALSoundStageUpdateBenchmark benchmark)
+		{
+			benchmark.playAndAdvance();
+			for (int i = 0; i < measured; i++)
+				benchmark.updatePhase(PHASES[i]);
+		}
+
+		@TearDown(Level.Invocation)
+		public void after(OALSoundStageUpdateBenchmark benchmark)
+		{
+			for (int i = measured + 1; i < PHASES.length; i++)
+				benchmark.updatePhase(PHASES[i]);
+		}
+	}
+
+	/**
+	 * A sound with generated data.
+	 */
+	private static class BenchSound extends OALSoundResourceAbstract
+	{
+		private String name;
+		/** Length in sample frames. */
+		private int frames;
+
+		BenchSound(String name, int frames)
+		{
+			this.name = name;
+			this.frames = frames;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public String getPath()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * An object that moves in a straight line.
+	 */
+	private static class BenchObject
+	{
+		float x, y, z;
+		float vx, vy, vz;
+
+		BenchObject(Random random)
+		{
+			x = (random.nextFloat() * 2f - 1f) * AREA_SIZE;
+			y = (random.nextFloat() * 2f - 1f) * AREA_SIZE;
+			z = (random.nextFloat() * 2f - 1f) * AREA_SIZE;
+			vx = random.nextFloat() * 2f - 1f;
+			vy = random.nextFloat() * 2f - 1f;
+			vz = random.nextFloat() * 2f - 1f;
+		}
+	}
+
+	/**
+	 * Object positions from velocity and the simulated time.
+	 */
+	private static class BenchObjectModel implements OALSoundStageObjectModel<BenchObject>
+	{
+		/** Simulated time in seconds. */
+		float time;
+
+		@Override
+		public float getSoundPositionX(BenchObject object)
+		{
+			return object.x + object.vx * time;
+		}
+
+		@Override
+		public float getSoundPositionY(BenchObject object)
+		{
+			return object.y + object.vy * time;
+		}
+
+		@Override
+		public float getSoundPositionZ(BenchObject object)
+		{
+			return object.z + object.vz * time;
+		}
+
+		@Override
+		public float getSoundVelocityX(BenchObject object)
+		{
+			return object.vx;
+		}
+
+		@Override
+		public float getSoundVelocityY(BenchObject object)
+		{
+			return object.vy;
+		}
+
+		@Override
+		public float getSoundVelocityZ(BenchObject object)
+		{
+			return object.vz;
+		}
+
+		@Override
+		public float getSoundDirectionX(BenchObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundDirectionY(BenchObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundDirectionZ(BenchObject object)
+		{
+			return 0f;
+		}
+	}
+
+}
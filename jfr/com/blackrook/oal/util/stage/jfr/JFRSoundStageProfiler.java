@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import com.blackrook.oal.util.OALSoundResource;
+import com.blackrook.oal.util.stage.OALSoundStageMetrics;
+import com.blackrook.oal.util.stage.OALSoundStageProfiler;
+
+/**
+ * A sound stage profiler that emits Java Flight Recorder events, so that audio stalls
+ * can be lined up with garbage collection, I/O, and other recorded events.
+ * <p>
+ * Update phases are recorded as duration events, and cache misses, stream refills,
+ * voice steals, and delayed sounds as instant events with their decode times.
+ * Events are only written if they are enabled in the recording's settings,
+ * under the "Black Rook / Sound Stage" category.
+ * <p>
+ * Use one profiler per stage. Requires Java 11 or later.
+ * @author Matthew Tropiano
+ * @see com.blackrook.oal.util.stage.OALSoundStage#setProfiler(OALSoundStageProfiler)
+ */
+public class JFRSoundStageProfiler implements OALSoundStageProfiler
+{
+	/** Phase events in progress, by phase. */
+	private PhaseEvent[] phaseEvents;
+
+	/**
+	 * Creates a new profiler.
+	 */
+	public JFRSoundStageProfiler()
+	{
+		phaseEvents = new PhaseEvent[OALSoundStageMetrics.Phase.values().length];
+	}
+
+	@Override
+	public void phaseStarted(OALSoundStageMetrics.Phase phase)
+	{
+		PhaseEvent event = new PhaseEvent();
+		if (!event.isEnabled())
+			return;
+		event.phase = phase.name();
+		event.begin();
+		phaseEvents[phase.ordinal()] = event;
+	}
+
+	@Override
+	public void phaseFinished(OALSoundStageMetrics.Phase phase)
+	{
+		PhaseEvent event = phaseEvents[phase.ordinal()];
+		if (event == null)
+			return;
+		phaseEvents[phase.ordinal()] = null;
+		event.commit();
+	}
+
+	@Override
+	public void soundCacheMissed(OALSoundResource resource, long decodeNanos, long bytes)
+	{
+		CacheMissEvent event = new CacheMissEvent();
+		if (!event.isEnabled())
+			return;
+		event.sound = resource.getName();
+		event.decodeDuration = decodeNanos;
+		event.bytes = bytes;
+		event.commit();
+	}
+
+	@Override
+	public void streamRefilled(OALSoundResource resource, long decodeNanos, long bytes)
+	{
+		StreamRefillEvent event = new StreamRefillEvent();
+		if (!event.isEnabled())
+			return;
+		event.sound = resource.getName();
+		event.decodeDuration = decodeNanos;
+		event.bytes = bytes;
+		event.commit();
+	}
+
+	@Override
+	public void voiceStolen(OALSoundResource stolen, OALSoundResource resource)
+	{
+		VoiceStealEvent event = new VoiceStealEvent();
+		if (!event.isEnabled())
+			return;
+		event.stolenSound = stolen.getName();
+		event.stolenPriority = stolen.getPriority();
+		event.sound = resource.getName();
+		event.priority = resource.getPriority();
+		event.commit();
+	}
+
+	@Override
+	public void eventDelayed(OALSoundResource resource)
+	{
+		DelayedSoundEvent event = new DelayedSoundEvent();
+		if (!event.isEnabled())
+			return;
+		event.sound = resource.getName();
+		event.commit();
+	}
+
+	@Name("com.blackrook.oal.stage.Phase")
+	@Label("Sound Stage Update Phase")
+	@Description("One phase of a sound stage update, or the whole update.")
+	@Category({"Black Rook", "Sound Stage"})
+	@StackTrace(false)
+	static class PhaseEvent extends Event
+	{
+		@Label("Phase")
+		String phase;
+	}
+
+	@Name("com.blackrook.oal.stage.CacheMiss")
+	@Label("Sound Cache Miss")
+	@Description("A sound that had to be decoded to be played, because it was not in the buffer cache.")
+	@Category({"Black Rook", "Sound Stage"})
+	static class CacheMissEvent extends Event
+	{
+		@Label("Sound")
+		String sound;
+		@Label("Decode Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long decodeDuration;
+		@Label("Bytes Decoded")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("com.blackrook.oal.stage.StreamRefill")
+	@Label("Sound Stream Refill")
+	@Description("Upcoming data decoded for a streamed sound.")
+	@Category({"Black Rook", "Sound Stage"})
+	@StackTrace(false)
+	static class StreamRefillEvent extends Event
+	{
+		@Label("Sound")
+		String sound;
+		@Label("Decode Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long decodeDuration;
+		@Label("Bytes Decoded")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("com.blackrook.oal.stage.VoiceSteal")
+	@Label("Sound Voice Steal")
+	@Description("A voice stopped to play a more important sound.")
+	@Category({"Black Rook", "Sound Stage"})
+	@StackTrace(false)
+	static class VoiceStealEvent extends Event
+	{
+		@Label("Stolen Sound")
+		String stolenSound;
+		@Label("Stolen Sound Priority")
+		float stolenPriority;
+		@Label("Sound")
+		String sound;
+		@Label("Priority")
+		float priority;
+	}
+
+	@Name("com.blackrook.oal.stage.DelayedSound")
+	@Label("Delayed Sound")
+	@Description("A sound that must always be played that could not get a voice, put off to the next event update.")
+	@Category({"Black Rook", "Sound Stage"})
+	@StackTrace(false)
+	static class DelayedSoundEvent extends Event
+	{
+		@Label("Sound")
+		String sound;
+	}
+
+}
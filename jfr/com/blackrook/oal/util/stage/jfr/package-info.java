@@ -0,0 +1,9 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/** Contains a sound stage profiler that emits Java Flight Recorder events (requires Java 11 or later). */
+package com.blackrook.oal.util.stage.jfr;
@@ -8,14 +8,25 @@
 package com.blackrook.oal.util;
 
 import java.util.Comparator;
+import java.util.Iterator;
 
 import com.blackrook.commons.hash.HashMap;
-import com.blackrook.commons.list.ComparatorList;
-import com.blackrook.oal.OALBuffer;
+import com.blackrook.oal.util.backend.OALBackendBuffer;
+import com.blackrook.oal.util.cache.LargestFirst;
 
 /**
  * A Buffer cache used for caching often-used buffers 
  * so that they don't need to be reloaded.
+ * <p>
+ * Which buffers are evicted when the cache is full is decided by 
+ * an {@link OALBufferCachePolicy}. By default, the largest buffers are evicted first.
+ * <p>
+ * Buffers that are in use can be pinned with {@link #pinBuffer(OALSoundResource)}.
+ * Pinned buffers are never evicted, and discarding one with {@link #discardBuffer(OALSoundResource)}
+ * defers its destruction until it is unpinned by all of its users.
+ * If every buffer is pinned, the cache may exceed its maximum size until buffers are unpinned.
+ * <p>
+ * This class is not thread-safe.
  */
 public class OALBufferCache
 {
@@ -42,70 +53,314 @@ public class OALBufferCache
 	protected int maxByteSize;
 	protected int currBytes;
 	
-	private ComparatorList<Node> buffersBySize;
+	private OALBufferCachePolicy policy;
 	private HashMap<OALSoundResource, Node> buffersByName;
+	/** Buffers discarded while pinned, to be destroyed when unpinned. */
+	private HashMap<OALBackendBuffer, Node> discardedBuffers;
+	
+	/** Amount of cache hits. */
+	private long hits;
+	/** Amount of cache misses. */
+	private long misses;
+	/** Amount of evictions. */
+	private long evictions;
 	
 	/**
-	 * Creates a new buffer cache with a set amount of byte capacity.
+	 * Creates a new buffer cache with a set amount of byte capacity
+	 * that evicts the largest buffers first.
 	 */
 	public OALBufferCache(int maxByteSize)
 	{
+		this(maxByteSize, new LargestFirst());
+	}
+	
+	/**
+	 * Creates a new buffer cache with a set amount of byte capacity.
+	 * @param maxByteSize the maximum amount of bytes used for buffer caching (0 or less = no limit).
+	 * @param policy the eviction policy to use.
+	 * @throws NullPointerException if policy is null.
+	 */
+	public OALBufferCache(int maxByteSize, OALBufferCachePolicy policy)
+	{
+		if (policy == null)
+			throw new NullPointerException("Policy can't be null.");
 		this.maxByteSize = maxByteSize;
+		this.policy = policy;
 		currBytes = 0;
-		buffersBySize = new ComparatorList<Node>(SIZE_COMPARATOR, 20);
 		buffersByName = new HashMap<OALSoundResource,Node>(20);
+		discardedBuffers = new HashMap<OALBackendBuffer,Node>(4);
+		resetStatistics();
+	}
+	
+	/**
+	 * Gets the eviction policy used by this cache.
+	 */
+	public OALBufferCachePolicy getPolicy()
+	{
+		return policy;
+	}
+	
+	/**
+	 * Sets the eviction policy used by this cache.
+	 * All currently cached buffers are added to the new policy.
+	 * @throws NullPointerException if policy is null.
+	 */
+	public void setPolicy(OALBufferCachePolicy policy)
+	{
+		if (policy == null)
+			throw new NullPointerException("Policy can't be null.");
+		this.policy.clear();
+		this.policy = policy;
+		Iterator<Node> it = buffersByName.valueIterator();
+		while (it.hasNext())
+		{
+			Node n = it.next();
+			policy.bufferAdded(n.resource, n.buffer.getSize());
+		}
 	}
 	
-	public void addBuffer(OALSoundResource resource, OALBuffer buffer)
+	/**
+	 * Adds a buffer to the cache, evicting and destroying other buffers
+	 * until the new buffer fits. Does nothing if the resource already has a cached buffer.
+	 */
+	public void addBuffer(OALSoundResource resource, OALBackendBuffer buffer)
 	{
 		if (buffersByName.containsKey(resource))
 			return;
 		
-		buffer.getSize();
 		currBytes += buffer.getSize();
-		while (maxByteSize > 0 && currBytes > maxByteSize)
-			removeLargestBuffer().destroy();
+		trim();
 		
 		Node n = new Node(resource, buffer);
 		buffersByName.put(resource, n);
-		buffersBySize.add(n);
+		policy.bufferAdded(resource, buffer.getSize());
 	}
 
 	/**  
 	 * Gets an existing buffer.
+	 * Counts as a cache hit if found, or a miss if not.
 	 * Null if not found. 
 	 */
-	public OALBuffer getBuffer(OALSoundResource resource)
+	public OALBackendBuffer getBuffer(OALSoundResource resource)
 	{
 		Node n = buffersByName.get(resource);
 		if (n == null)
+		{
+			misses++;
 			return null;
+		}
+		hits++;
+		policy.bufferAccessed(resource);
 		return n.buffer;
 	}
 	
+	/**  
+	 * Gets an existing buffer without counting it as a cache hit or miss.
+	 * Null if not found. 
+	 */
+	public OALBackendBuffer peekBuffer(OALSoundResource resource)
+	{
+		Node n = buffersByName.get(resource);
+		return n != null ? n.buffer : null;
+	}
+	
+	/**  
+	 * Gets an existing buffer and pins it, so that it is not evicted
+	 * until {@link #unpinBuffer(OALSoundResource, OALBackendBuffer)} is called for it. 
+	 * A buffer pinned more than once must be unpinned the same amount of times.
+	 * Does not count as a cache hit or miss.
+	 * @return the pinned buffer, or null if not found.
+	 */
+	public OALBackendBuffer pinBuffer(OALSoundResource resource)
+	{
+		Node n = buffersByName.get(resource);
+		if (n == null)
+			return null;
+		n.references++;
+		return n.buffer;
+	}
+	
+	/**  
+	 * Unpins a buffer pinned by {@link #pinBuffer(OALSoundResource)}. 
+	 * If this was the buffer's last pin and it was discarded, it is destroyed.
+	 * If the cache is over its maximum size, unpinned buffers are evicted until it fits.
+	 * @param resource the resource that the buffer was pinned for.
+	 * @param buffer the pinned buffer.
+	 * @return true if the buffer was pinned, false if not.
+	 */
+	public boolean unpinBuffer(OALSoundResource resource, OALBackendBuffer buffer)
+	{
+		Node n = buffersByName.get(resource);
+		if (n != null && n.buffer == buffer)
+		{
+			if (n.references == 0)
+				return false;
+			n.references--;
+			if (n.references == 0)
+				trim();
+			return true;
+		}
+		
+		n = discardedBuffers.get(buffer);
+		if (n == null || n.references == 0)
+			return false;
+		n.references--;
+		if (n.references == 0)
+		{
+			discardedBuffers.removeUsingKey(buffer);
+			buffer.destroy();
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if a resource's cached buffer is pinned.
+	 */
+	public boolean isPinned(OALSoundResource resource)
+	{
+		Node n = buffersByName.get(resource);
+		return n != null && n.references > 0;
+	}
+	
 	/**
-	 * Removes the largest buffer.
+	 * Removes the next unpinned buffer chosen by the eviction policy.
+	 * The buffer is not destroyed.
+	 * @return the removed buffer, or null if the cache has no unpinned buffers.
 	 */
-	public OALBuffer removeLargestBuffer()
+	public OALBackendBuffer evictBuffer()
 	{
-		if (!buffersBySize.isEmpty())
+		Iterator<OALSoundResource> it = policy.evictionOrder();
+		while (it.hasNext())
 		{
-			Node n = buffersBySize.removeIndex(0);
-			currBytes -= n.buffer.getSize();
-			buffersByName.removeUsingKey(n.resource);
+			Node n = buffersByName.get(it.next());
+			if (n.references > 0)
+				continue;
+			removeNode(n, true);
+			evictions++;
 			return n.buffer;
 		}
 		return null;
 	}
+	
+	/**
+	 * Removes an unpinned buffer from the cache.
+	 * The buffer is not destroyed.
+	 * @return the removed buffer, or null if the resource had no cached buffer or it is pinned.
+	 * @see #discardBuffer(OALSoundResource)
+	 */
+	public OALBackendBuffer removeBuffer(OALSoundResource resource)
+	{
+		Node n = buffersByName.get(resource);
+		if (n == null || n.references > 0)
+			return null;
+		removeNode(n, false);
+		return n.buffer;
+	}
+	
+	/**
+	 * Removes a buffer from the cache and destroys it.
+	 * If the buffer is pinned, it is destroyed when it is unpinned for the last time.
+	 * @return true if the resource had a cached buffer, false otherwise.
+	 */
+	public boolean discardBuffer(OALSoundResource resource)
+	{
+		Node n = buffersByName.get(resource);
+		if (n == null)
+			return false;
+		removeNode(n, false);
+		if (n.references > 0)
+			discardedBuffers.put(n.buffer, n);
+		else
+			n.buffer.destroy();
+		return true;
+	}
+	
+	/**
+	 * Removes the largest unpinned buffer, regardless of eviction policy.
+	 * The buffer is not destroyed.
+	 */
+	public OALBackendBuffer removeLargestBuffer()
+	{
+		Node largest = null;
+		Iterator<Node> it = buffersByName.valueIterator();
+		while (it.hasNext())
+		{
+			Node n = it.next();
+			if (n.references == 0 && (largest == null || SIZE_COMPARATOR.compare(n, largest) < 0))
+				largest = n;
+		}
+		if (largest == null)
+			return null;
+		removeNode(largest, false);
+		return largest.buffer;
+	}
 
 	/**
-	 * Destroys all buffers and stuff.
+	 * Returns the amount of bytes currently used by cached buffers.
+	 */
+	public int getCurrentBytes()
+	{
+		return currBytes;
+	}
+	
+	/**
+	 * Returns the maximum amount of bytes used for buffer caching (0 or less = no limit).
+	 */
+	public int getMaxBytes()
+	{
+		return maxByteSize;
+	}
+	
+	/**
+	 * Returns the amount of cache hits since this was created or {@link #resetStatistics()} was called.
+	 */
+	public long getHitCount()
+	{
+		return hits;
+	}
+	
+	/**
+	 * Returns the amount of cache misses since this was created or {@link #resetStatistics()} was called.
+	 */
+	public long getMissCount()
+	{
+		return misses;
+	}
+	
+	/**
+	 * Returns the amount of evicted buffers since this was created or {@link #resetStatistics()} was called.
+	 */
+	public long getEvictionCount()
+	{
+		return evictions;
+	}
+	
+	/**
+	 * Resets the hit, miss, and eviction counts.
+	 */
+	public void resetStatistics()
+	{
+		hits = 0L;
+		misses = 0L;
+		evictions = 0L;
+	}
+	
+	/**
+	 * Destroys all buffers and stuff, pinned or not.
+	 * Buffers should be detached from all sources before this is called.
 	 */
 	public void destroy()
 	{
-		while (!buffersBySize.isEmpty())
-			removeLargestBuffer().destroy();
+		Iterator<Node> it = buffersByName.valueIterator();
+		while (it.hasNext())
+			it.next().buffer.destroy();
+		it = discardedBuffers.valueIterator();
+		while (it.hasNext())
+			it.next().buffer.destroy();
 		buffersByName.clear();
+		discardedBuffers.clear();
+		policy.clear();
+		currBytes = 0;
 	}
 	
 	@Override
@@ -115,18 +370,35 @@ public class OALBufferCache
 		super.finalize();
 	}
 	
+	// Evicts and destroys unpinned buffers until the cache fits in its maximum size.
+	private void trim()
+	{
+		OALBackendBuffer evicted;
+		while (maxByteSize > 0 && currBytes > maxByteSize && (evicted = evictBuffer()) != null)
+			evicted.destroy();
+	}
+	
+	// Removes a node from the cache.
+	private void removeNode(Node n, boolean evicted)
+	{
+		currBytes -= n.buffer.getSize();
+		buffersByName.removeUsingKey(n.resource);
+		policy.bufferRemoved(n.resource, evicted);
+	}
+	
 	/** Node class for combining resources with buffers. */
 	public class Node
 	{
 		OALSoundResource resource;
-		OALBuffer buffer;
+		OALBackendBuffer buffer;
+		int references;
 		
-		public Node(OALSoundResource res, OALBuffer buf)
+		public Node(OALSoundResource res, OALBackendBuffer buf)
 		{
 			resource = res;
 			buffer = buf;
+			references = 0;
 		}
 	}
 	
 }
-
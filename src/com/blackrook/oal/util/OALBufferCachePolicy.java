@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import java.util.Iterator;
+
+/**
+ * An eviction policy for an {@link OALBufferCache}.
+ * The cache notifies its policy of every buffer that is added, accessed, and removed,
+ * and asks it for the order in which to consider buffers for eviction.
+ * @author Matthew Tropiano
+ */
+public interface OALBufferCachePolicy
+{
+	/**
+	 * Called when a buffer is added to the cache.
+	 * @param resource the resource that the buffer was loaded from.
+	 * @param size the size of the buffer in bytes.
+	 */
+	public void bufferAdded(OALSoundResource resource, int size);
+	
+	/**
+	 * Called when a cached buffer is retrieved from the cache (a cache hit).
+	 * @param resource the resource that the buffer was loaded from.
+	 */
+	public void bufferAccessed(OALSoundResource resource);
+	
+	/**
+	 * Called when a buffer is removed from the cache.
+	 * @param resource the resource that the buffer was loaded from.
+	 * @param evicted true if the buffer was removed to make room for another, false otherwise.
+	 */
+	public void bufferRemoved(OALSoundResource resource, boolean evicted);
+	
+	/**
+	 * Returns an iterator of all of the tracked resources, 
+	 * from the first candidate for eviction to the last.
+	 * The cache stops iterating once it finds a buffer that it can evict, and
+	 * will not call {@link Iterator#remove()}.
+	 */
+	public Iterator<OALSoundResource> evictionOrder();
+	
+	/**
+	 * Clears all tracked resources.
+	 */
+	public void clear();
+	
+}
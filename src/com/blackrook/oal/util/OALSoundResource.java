@@ -101,6 +101,19 @@ public interface OALSoundResource
 	 */
 	public boolean isLooping();
 
+	/**
+	 * Gets the sample frame that a looping sound loops back to, from the start of the sound.
+	 * Only streamed sounds use this: others loop the whole sound.
+	 */
+	public long getLoopStart();
+
+	/**
+	 * Gets the sample frame that a looping sound loops back at, from the start of the sound,
+	 * or -1 to loop at the end of the sound.
+	 * Only streamed sounds use this: others loop the whole sound.
+	 */
+	public long getLoopEnd();
+
 	/**
 	 * Is this sound modulated by Doppler Effect (movement)?
 	 */
@@ -130,4 +143,10 @@ public interface OALSoundResource
 	 */
 	public boolean isAlwaysPlayed();
 
+	/**
+	 * Gets how this sound is buffered if it is streamed.
+	 * If null, the stage's default policy is used.
+	 */
+	public OALStreamingPolicy getStreamingPolicy();
+
 }
@@ -27,12 +27,15 @@ public abstract class OALSoundResourceAbstract implements OALSoundResource
 	private float outerConeGain;
 	private boolean streaming;
 	private boolean looping;
+	private long loopStart;
+	private long loopEnd;
 	private boolean notDoppled;
 	private boolean notDirected;
 	private boolean notPanned;
 	private boolean limitStop;
 	private boolean mustBePlayed;
 	private int limit;
+	private OALStreamingPolicy streamingPolicy;
 	
 	protected OALSoundResourceAbstract()
 	{
@@ -50,12 +53,15 @@ public abstract class OALSoundResourceAbstract implements OALSoundResource
 		outerConeGain = 1f;
 		streaming = false;
 		looping = false;
+		loopStart = 0L;
+		loopEnd = -1L;
 		notDoppled = false;
 		notDirected = false;
 		notPanned = false;
 		limitStop = false;
 		mustBePlayed = false;
 		limit = 0;
+		streamingPolicy = null;
 	}
 	
 	/**
@@ -189,6 +195,18 @@ public abstract class OALSoundResourceAbstract implements OALSoundResource
 		looping = val;
 	}
 
+	/**
+	 * Sets the region of this sound that is looped if it is looping and streamed,
+	 * for sounds with an intro before the loop.
+	 * @param start the sample frame that the sound loops back to.
+	 * @param end the sample frame that the sound loops back at, or -1 for the end of the sound.
+	 */
+	public void setLoopPoints(long start, long end)
+	{
+		loopStart = start;
+		loopEnd = end;
+	}
+
 	/**
 	 * Sets if this sound is NOT modulated by Doppler Effect.
 	 */
@@ -224,6 +242,15 @@ public abstract class OALSoundResourceAbstract implements OALSoundResource
 		mustBePlayed = val;
 	}
 
+	/**
+	 * Sets how this sound is buffered if it is streamed.
+	 * If null, the stage's default policy is used.
+	 */
+	public void setStreamingPolicy(OALStreamingPolicy policy)
+	{
+		streamingPolicy = policy;
+	}
+
 	@Override
 	public float getPriority()
 	{
@@ -278,6 +305,18 @@ public abstract class OALSoundResourceAbstract implements OALSoundResource
 		return looping;
 	}
 
+	@Override
+	public long getLoopStart()
+	{
+		return loopStart;
+	}
+
+	@Override
+	public long getLoopEnd()
+	{
+		return loopEnd;
+	}
+
 	@Override
 	public boolean isNotPanned()
 	{
@@ -344,4 +383,10 @@ public abstract class OALSoundResourceAbstract implements OALSoundResource
 		return outerConeGain;
 	}
 
+	@Override
+	public OALStreamingPolicy getStreamingPolicy()
+	{
+		return streamingPolicy;
+	}
+
 }
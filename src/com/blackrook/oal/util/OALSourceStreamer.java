@@ -26,6 +26,9 @@ import com.blackrook.oal.OALSource;
  */
 public class OALSourceStreamer
 {
+	/** Default maximum amount of bytes of recently decoded data kept for seeking back. */
+	public static final long DEFAULT_SEEK_CACHE_BYTES = 4L * 1024L * 1024L;
+	
 	/** Reference to encapsulated source. */
 	protected OALSource source;
 	/** Handle to the stream. */
@@ -40,12 +43,20 @@ public class OALSourceStreamer
 	protected AudioFormat decoderFormat;
 	/** Temporary buffer for the decoded data to be placed in an OAL buffer. */
 	protected byte[] bytebuffer;
+	/** Direct buffer that decoded data is copied into for uploading. */
+	protected ByteBuffer directBuffer;
+	/** Recently decoded data, for seeking back without reopening the decoder. */
+	protected PCMSeekCache seekCache;
 	
 	/** The auto-streaming thread. */
 	protected Ticker streamer;
 	
 	/** Number of uncompressed bytes read. */
 	protected long bytesRead;
+	/** Byte offset in the stream of the next data to read. */
+	protected long position;
+	/** Byte offset in the stream that the decoder is at. */
+	protected long decoderPosition;
 	
 	/**
 	 * Constructs a new Source Streamer.
@@ -73,16 +84,18 @@ public class OALSourceStreamer
 		reloadDecoder();
 
 		int bytesPerChannelSample = decoderFormat.getChannels() * decoderFormat.getSampleSizeInBits() / 8;
-		int sampleCount = (int)(decoderFormat.getSampleRate()/(bufferSize/1000f));
+		int sampleCount = (int)(decoderFormat.getSampleRate()*(bufferSize/1000f));
 		int byteSize = sampleCount * bytesPerChannelSample;
 		bytebuffer = new byte[byteSize];
+		directBuffer = ByteBuffer.allocateDirect(byteSize);
+		seekCache = new PCMSeekCache(byteSize, DEFAULT_SEEK_CACHE_BYTES);
 
 		for (OALBuffer b : streamBuffers)
 		{
 			b.setSamplingRate((int)decoderFormat.getSampleRate());
 			b.setFormatByChannelsAndBits(decoderFormat.getChannels(), decoderFormat.getSampleSizeInBits());
-			int l = decoderRef.readPCMBytes(bytebuffer);
-			b.loadPCMData(ByteBuffer.wrap(bytebuffer),l);
+			int l = readPCM();
+			loadBuffer(b, Math.max(l, 0));
 			bytesRead += l;
 			source.enqueueBuffer(b);
 		}
@@ -97,13 +110,127 @@ public class OALSourceStreamer
 
 	/**
 	 * Restarts the decoder reload.
+	 * The open decoder, if any, is closed first.
 	 * @throws UnsupportedAudioFileException if the file's audio format is unrecognized.
 	 * @throws IOException if a read error occurs.
 	 */
 	protected void reloadDecoder() throws UnsupportedAudioFileException, IOException
 	{
+		closeDecoder();
 		decoderRef = soundHandle.getDecoder();
 		decoderFormat = decoderRef.getDecodedAudioFormat();
+		decoderPosition = 0L;
+	}
+	
+	/**
+	 * Closes the open decoder, if any.
+	 * It is reloaded if more data is read.
+	 * @throws IOException if the decoder could not be closed.
+	 */
+	protected void closeDecoder() throws IOException
+	{
+		if (decoderRef == null)
+			return;
+		JSPISoundHandle.Decoder decoder = decoderRef;
+		decoderRef = null;
+		decoder.close();
+	}
+	
+	/**
+	 * Reads the next data at the current position into the byte buffer,
+	 * from the seek cache if it is there, or from the decoder if not.
+	 * Decoders can only read forward, so if the decoder is past the position,
+	 * it is reloaded, and if it is behind it, the data in between is skipped.
+	 * Decoded data is kept in the seek cache. The decoder is closed at the end of the stream.
+	 * @return the amount of bytes read, or 0 or less if the stream ended.
+	 * @throws UnsupportedAudioFileException if the file's audio format is unrecognized.
+	 * @throws IOException if a read error occurs.
+	 */
+	protected int readPCM() throws UnsupportedAudioFileException, IOException
+	{
+		int cached = seekCache.read(position, bytebuffer, 0, bytebuffer.length);
+		if (cached > 0)
+		{
+			position += cached;
+			return cached;
+		}
+		if (seekCache.getLength() >= 0L && position >= seekCache.getLength())
+			return 0;
+		
+		if (decoderRef == null || decoderPosition > position)
+			reloadDecoder();
+		
+		while (true)
+		{
+			int len = decoderRef.readPCMBytes(bytebuffer);
+			if (len <= 0)
+			{
+				seekCache.setLength(decoderPosition);
+				closeDecoder();
+				return len;
+			}
+			long start = decoderPosition;
+			decoderPosition += len;
+			seekCache.write(start, bytebuffer, 0, len);
+			if (decoderPosition <= position)
+				continue;
+			if (start < position)
+			{
+				int skip = (int)(position - start);
+				len -= skip;
+				System.arraycopy(bytebuffer, skip, bytebuffer, 0, len);
+			}
+			position += len;
+			return len;
+		}
+	}
+	
+	/**
+	 * Sets the sample frame that the next buffer is read from.
+	 * Buffers already queued on the source still play first: to hear the new
+	 * position right away, stop the source, seek, call {@link #update()}, and play it again.
+	 * Seeking into recently decoded data reads it from memory, seeking forward
+	 * skips ahead in the open decoder, and seeking back any further reopens it.
+	 * @param frame the sample frame, from the start of the stream.
+	 */
+	public synchronized void seek(long frame)
+	{
+		int frameBytes = decoderFormat.getChannels() * (decoderFormat.getSampleSizeInBits() / 8);
+		position = Math.max(0L, frame) * frameBytes;
+	}
+	
+	/**
+	 * Sets the maximum amount of bytes of recently decoded data kept for seeking back.
+	 * Data already kept is dropped.
+	 * @param bytes the amount of bytes (0 or less = none).
+	 */
+	public synchronized void setSeekCacheBytes(long bytes)
+	{
+		seekCache = new PCMSeekCache(bytebuffer.length, bytes);
+	}
+	
+	/**
+	 * Sets the time that the next buffer is read from.
+	 * @param millis the time in milliseconds, from the start of the stream.
+	 * @see #seek(long)
+	 */
+	public void seekMillis(long millis)
+	{
+		seek((long)(millis * (double)decoderFormat.getSampleRate() / 1000.0));
+	}
+	
+	/**
+	 * Loads the contents of the byte buffer into an OpenAL buffer through the direct buffer,
+	 * so that it can be handed to OpenAL without another copy.
+	 * @param buffer the buffer to load.
+	 * @param len the amount of bytes to load.
+	 */
+	protected void loadBuffer(OALBuffer buffer, int len)
+	{
+		directBuffer.clear();
+		directBuffer.put(bytebuffer, 0, len);
+		directBuffer.flip();
+		buffer.loadPCMData(directBuffer, len);
 	}
 	
 	/**
@@ -117,28 +244,28 @@ public class OALSourceStreamer
 	 * @throws UnsupportedAudioFileException if the file's audio format is unrecognized.
 	 * @throws IOException if a read error occurs.
 	 */
-	public int update() throws UnsupportedAudioFileException, IOException
+	public synchronized int update() throws UnsupportedAudioFileException, IOException
 	{
 		int out = -1;
 		int p = source.getProcessedBufferCount();
 		while (p-- > 0 && out != 0)
 		{
 			OALBuffer b = source.dequeueBuffer();
-			out = decoderRef.readPCMBytes(bytebuffer);
+			out = readPCM();
 			if (out > 0)
 			{
 				bytesRead += out;
-				b.loadPCMData(ByteBuffer.wrap(bytebuffer),out);
+				loadBuffer(b, out);
 				source.enqueueBuffer(b);
 			}
 			else if (out == 0 && looping)
 			{
-				reloadDecoder();
-				out = decoderRef.readPCMBytes(bytebuffer);
+				position = 0L;
+				out = readPCM();
 				if (out > 0)
 				{
 					bytesRead += out;
-					b.loadPCMData(ByteBuffer.wrap(bytebuffer),out);
+					loadBuffer(b, out);
 					source.enqueueBuffer(b);
 				}
 			}
@@ -146,6 +273,18 @@ public class OALSourceStreamer
 		return out;
 	}
 
+	/**
+	 * Stops automatic updating, if this was constructed with it, and closes the decoder.
+	 * Buffers already queued on the source are left as they are.
+	 * @throws IOException if the decoder could not be closed.
+	 */
+	public synchronized void close() throws IOException
+	{
+		if (streamer != null)
+			streamer.stop();
+		closeDecoder();
+	}
+
 	/**
 	 * Is this streamer in looping mode?
 	 */
@@ -183,10 +322,11 @@ public class OALSourceStreamer
 		
 		public void doTick(long tick)
 		{
-			if (source.isStopped())
-				stop();
 			try {
-				update();
+				if (source.isStopped())
+					close();
+				else
+					update();
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
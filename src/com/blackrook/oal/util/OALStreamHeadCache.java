@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A cache of the decoded beginnings ("heads") of streamed sounds,
+ * so that streams can start playing from memory while the rest
+ * of the sound is decoded in the background.
+ * <p>
+ * When the cache is full, the least recently used heads are removed first.
+ * Heads are not OpenAL objects, so nothing needs to be destroyed when they are removed.
+ * <p>
+ * This class is not thread-safe, but {@link Head}s are never changed once created,
+ * and may be read by any thread.
+ */
+public class OALStreamHeadCache
+{
+	/** The maximum amount of bytes used for heads. */
+	protected long maxByteSize;
+	/** The current amount of bytes used for heads. */
+	protected long currBytes;
+
+	/** Heads by resource, in least to most recently used order. */
+	private LinkedHashMap<OALSoundResource, Head> heads;
+
+	/** Amount of cache hits. */
+	private long hits;
+	/** Amount of cache misses. */
+	private long misses;
+	/** Amount of evictions. */
+	private long evictions;
+
+	/**
+	 * Creates a new head cache.
+	 * @param maxByteSize the maximum amount of bytes used for heads (0 or less = no heads are kept).
+	 */
+	public OALStreamHeadCache(long maxByteSize)
+	{
+		this.maxByteSize = maxByteSize;
+		currBytes = 0L;
+		heads = new LinkedHashMap<OALSoundResource, Head>(16, 0.75f, true);
+		resetStatistics();
+	}
+
+	/**
+	 * Adds a head to the cache, removing the least recently used heads
+	 * until it fits. Replaces the resource's head if it already has one.
+	 * @return true if added, false if the head is larger than the whole cache.
+	 */
+	public boolean addHead(OALSoundResource resource, Head head)
+	{
+		removeHead(resource);
+		if (head.length > maxByteSize)
+			return false;
+
+		currBytes += head.length;
+		Iterator<Head> it = heads.values().iterator();
+		while (currBytes > maxByteSize && it.hasNext())
+		{
+			currBytes -= it.next().length;
+			it.remove();
+			evictions++;
+		}
+		heads.put(resource, head);
+		return true;
+	}
+
+	/**
+	 * Gets the head for a resource, marking it as recently used,
+	 * or null if there is none. Counts as a hit or miss.
+	 */
+	public Head getHead(OALSoundResource resource)
+	{
+		Head out = heads.get(resource);
+		if (out != null)
+			hits++;
+		else
+			misses++;
+		return out;
+	}
+
+	/**
+	 * Returns true if a resource has a head in this cache.
+	 * Does not count as a hit or miss.
+	 */
+	public boolean containsHead(OALSoundResource resource)
+	{
+		return heads.containsKey(resource);
+	}
+
+	/**
+	 * Removes the head for a resource.
+	 * @return true if there was one, false if not.
+	 */
+	public boolean removeHead(OALSoundResource resource)
+	{
+		Head h = heads.remove(resource);
+		if (h == null)
+			return false;
+		currBytes -= h.length;
+		return true;
+	}
+
+	/**
+	 * Returns the maximum amount of bytes used for heads.
+	 */
+	public long getMaxBytes()
+	{
+		return maxByteSize;
+	}
+
+	/**
+	 * Sets the maximum amount of bytes used for heads,
+	 * removing the least recently used heads until they fit.
+	 * @param maxByteSize the maximum amount of bytes (0 or less = no heads are kept).
+	 */
+	public void setMaxBytes(long maxByteSize)
+	{
+		this.maxByteSize = maxByteSize;
+		Iterator<Head> it = heads.values().iterator();
+		while (currBytes > maxByteSize && it.hasNext())
+		{
+			currBytes -= it.next().length;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Returns the amount of bytes currently used for heads.
+	 */
+	public long getCurrentBytes()
+	{
+		return currBytes;
+	}
+
+	/**
+	 * Returns the amount of heads in this cache.
+	 */
+	public int size()
+	{
+		return heads.size();
+	}
+
+	/**
+	 * Gets the amount of times {@link #getHead(OALSoundResource)} found a head.
+	 */
+	public long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * Gets the amount of times {@link #getHead(OALSoundResource)} did not find a head.
+	 */
+	public long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * Gets the amount of heads removed to make room for others.
+	 */
+	public long getEvictionCount()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Resets the hit, miss, and eviction counts.
+	 */
+	public void resetStatistics()
+	{
+		hits = 0L;
+		misses = 0L;
+		evictions = 0L;
+	}
+
+	/**
+	 * Removes all heads.
+	 */
+	public void clear()
+	{
+		heads.clear();
+		currBytes = 0L;
+	}
+
+	/**
+	 * The decoded beginning of a sound.
+	 */
+	public static class Head
+	{
+		/** The decoded PCM data. */
+		private byte[] data;
+		/** The amount of bytes of data. */
+		private int length;
+		/** The format of the data. */
+		private AudioFormat format;
+		/** Is this the whole sound? */
+		private boolean complete;
+
+		/**
+		 * Creates a new head.
+		 * @param data the decoded PCM data. This is not copied, and must not be changed afterward.
+		 * @param length the amount of bytes of data.
+		 * @param format the format of the data.
+		 * @param complete true if the data is the whole sound, false if there is more to decode.
+		 */
+		public Head(byte[] data, int length, AudioFormat format, boolean complete)
+		{
+			this.data = data;
+			this.length = length;
+			this.format = format;
+			this.complete = complete;
+		}
+
+		/**
+		 * Gets the decoded PCM data.
+		 * Only the first {@link #getLength()} bytes are valid. Do not change it.
+		 */
+		public byte[] getData()
+		{
+			return data;
+		}
+
+		/**
+		 * Gets the amount of bytes of data.
+		 */
+		public int getLength()
+		{
+			return length;
+		}
+
+		/**
+		 * Gets the format of the data.
+		 */
+		public AudioFormat getFormat()
+		{
+			return format;
+		}
+
+		/**
+		 * Returns true if this is the whole sound, false if there is more to decode.
+		 */
+		public boolean isComplete()
+		{
+			return complete;
+		}
+	}
+
+}
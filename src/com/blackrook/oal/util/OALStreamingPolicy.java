@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Describes how a streamed sound is buffered: how many buffers are queued
+ * on its source, and how much audio goes in each one.
+ * <p>
+ * Fewer, shorter buffers use less memory per stream, and more buffers give
+ * more slack for update hitches. In adaptive mode, a stream gets an extra buffer
+ * each time it underruns a set amount of times, up to a maximum.
+ * @author Matthew Tropiano
+ */
+public class OALStreamingPolicy
+{
+	/** Default amount of queued buffers. */
+	public static final int DEFAULT_BUFFER_COUNT = 3;
+	/** Default length of each buffer in milliseconds. */
+	public static final int DEFAULT_CHUNK_MILLIS = 250;
+	/** Default maximum amount of queued buffers in adaptive mode. */
+	public static final int DEFAULT_MAX_BUFFER_COUNT = 8;
+	/** Default amount of underruns before a buffer is added in adaptive mode. */
+	public static final int DEFAULT_UNDERRUNS_PER_GROWTH = 2;
+
+	/** Amount of buffers queued on a stream's source. */
+	private int bufferCount;
+	/** Length of each buffer in milliseconds. */
+	private int chunkMillis;
+	/** Add buffers after underruns? */
+	private boolean adaptive;
+	/** Maximum amount of buffers in adaptive mode. */
+	private int maxBufferCount;
+	/** Amount of underruns before a buffer is added. */
+	private int underrunsPerGrowth;
+
+	/**
+	 * Creates a new non-adaptive policy with the default buffer count and length.
+	 */
+	public OALStreamingPolicy()
+	{
+		this(DEFAULT_BUFFER_COUNT, DEFAULT_CHUNK_MILLIS);
+	}
+
+	/**
+	 * Creates a new non-adaptive policy.
+	 * @param bufferCount the amount of buffers queued on a stream's source.
+	 * @param chunkMillis the length of each buffer in milliseconds.
+	 * @throws IllegalArgumentException if bufferCount is less than 2 or chunkMillis is less than 1.
+	 */
+	public OALStreamingPolicy(int bufferCount, int chunkMillis)
+	{
+		setBufferCount(bufferCount);
+		setChunkMillis(chunkMillis);
+		adaptive = false;
+		maxBufferCount = Math.max(bufferCount, DEFAULT_MAX_BUFFER_COUNT);
+		underrunsPerGrowth = DEFAULT_UNDERRUNS_PER_GROWTH;
+	}
+
+	/**
+	 * Gets the amount of buffers initially queued on a stream's source.
+	 */
+	public int getBufferCount()
+	{
+		return bufferCount;
+	}
+
+	/**
+	 * Sets the amount of buffers initially queued on a stream's source.
+	 * @throws IllegalArgumentException if bufferCount is less than 2.
+	 */
+	public void setBufferCount(int bufferCount)
+	{
+		if (bufferCount < 2)
+			throw new IllegalArgumentException("Buffer count can't be less than 2.");
+		this.bufferCount = bufferCount;
+	}
+
+	/**
+	 * Gets the length of each buffer in milliseconds.
+	 */
+	public int getChunkMillis()
+	{
+		return chunkMillis;
+	}
+
+	/**
+	 * Sets the length of each buffer in milliseconds.
+	 * @throws IllegalArgumentException if chunkMillis is less than 1.
+	 */
+	public void setChunkMillis(int chunkMillis)
+	{
+		if (chunkMillis < 1)
+			throw new IllegalArgumentException("Chunk length can't be less than 1 millisecond.");
+		this.chunkMillis = chunkMillis;
+	}
+
+	/**
+	 * Are buffers added to a stream after it underruns?
+	 */
+	public boolean isAdaptive()
+	{
+		return adaptive;
+	}
+
+	/**
+	 * Sets if buffers are added to a stream after it underruns.
+	 */
+	public void setAdaptive(boolean adaptive)
+	{
+		this.adaptive = adaptive;
+	}
+
+	/**
+	 * Gets the maximum amount of buffers that a stream can have in adaptive mode.
+	 */
+	public int getMaxBufferCount()
+	{
+		return maxBufferCount;
+	}
+
+	/**
+	 * Sets the maximum amount of buffers that a stream can have in adaptive mode.
+	 * Values less than the buffer count are treated as the buffer count.
+	 */
+	public void setMaxBufferCount(int maxBufferCount)
+	{
+		this.maxBufferCount = maxBufferCount;
+	}
+
+	/**
+	 * Gets the amount of underruns a stream has before a buffer is added in adaptive mode.
+	 */
+	public int getUnderrunsPerGrowth()
+	{
+		return underrunsPerGrowth;
+	}
+
+	/**
+	 * Sets the amount of underruns a stream has before a buffer is added in adaptive mode.
+	 * @throws IllegalArgumentException if underrunsPerGrowth is less than 1.
+	 */
+	public void setUnderrunsPerGrowth(int underrunsPerGrowth)
+	{
+		if (underrunsPerGrowth < 1)
+			throw new IllegalArgumentException("Underruns per growth can't be less than 1.");
+		this.underrunsPerGrowth = underrunsPerGrowth;
+	}
+
+	/**
+	 * Returns the size in bytes of one buffer of decoded audio in the provided format,
+	 * rounded to whole sample frames.
+	 * @param format the decoded audio format.
+	 */
+	public int getChunkBytes(AudioFormat format)
+	{
+		int frameBytes = format.getChannels() * (format.getSampleSizeInBits() / 8);
+		int frames = Math.max(1, (int)(format.getSampleRate() * chunkMillis / 1000f));
+		return frames * frameBytes;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free ring of fixed-size PCM data chunks, for passing decoded data from 
+ * exactly one producer thread (a decoder) to exactly one consumer thread (a streamer).
+ * <p>
+ * The producer calls {@link #getWriteChunk()} to get the next free chunk, fills it,
+ * and then calls {@link #commitWrite(int)}. The consumer calls {@link #getReadChunk()}
+ * and {@link #getReadLength()} to get the next filled chunk, uses it, and then calls
+ * {@link #commitRead()}. Neither side ever waits on the other.
+ * @author Matthew Tropiano
+ */
+public class PCMRingBuffer
+{
+	/** The chunks. */
+	private byte[][] chunks;
+	/** The filled length of each chunk. */
+	private int[] lengths;
+	/** Amount of chunks written. */
+	private AtomicLong written;
+	/** Amount of chunks read. */
+	private AtomicLong read;
+	/** Set by the producer when no more chunks will be written. */
+	private volatile boolean ended;
+	
+	/**
+	 * Creates a new ring buffer.
+	 * @param chunkCount the amount of chunks.
+	 * @param chunkSize the size of each chunk in bytes.
+	 * @throws IllegalArgumentException if chunkCount or chunkSize is less than 1.
+	 */
+	public PCMRingBuffer(int chunkCount, int chunkSize)
+	{
+		if (chunkCount < 1)
+			throw new IllegalArgumentException("Chunk count can't be less than 1.");
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size can't be less than 1.");
+		chunks = new byte[chunkCount][chunkSize];
+		lengths = new int[chunkCount];
+		written = new AtomicLong(0L);
+		read = new AtomicLong(0L);
+		ended = false;
+	}
+	
+	/**
+	 * Returns the amount of chunks in this ring.
+	 */
+	public int getChunkCount()
+	{
+		return chunks.length;
+	}
+	
+	/**
+	 * Returns the size of each chunk in bytes.
+	 */
+	public int getChunkSize()
+	{
+		return chunks[0].length;
+	}
+	
+	/**
+	 * Returns the amount of filled chunks waiting to be read.
+	 */
+	public int getFilledCount()
+	{
+		return (int)(written.get() - read.get());
+	}
+	
+	/**
+	 * Producer: gets the next free chunk to fill.
+	 * @return the chunk, or null if every chunk is filled.
+	 */
+	public byte[] getWriteChunk()
+	{
+		long w = written.get();
+		if (w - read.get() >= chunks.length)
+			return null;
+		return chunks[(int)(w % chunks.length)];
+	}
+	
+	/**
+	 * Producer: publishes the chunk returned by {@link #getWriteChunk()} to the consumer.
+	 * @param length the amount of bytes filled in the chunk.
+	 */
+	public void commitWrite(int length)
+	{
+		long w = written.get();
+		lengths[(int)(w % chunks.length)] = length;
+		written.lazySet(w + 1);
+	}
+	
+	/**
+	 * Producer: marks that no more chunks will be written.
+	 */
+	public void end()
+	{
+		ended = true;
+	}
+	
+	/**
+	 * Returns true if the producer has marked the end of the data.
+	 * Filled chunks may still be waiting to be read.
+	 */
+	public boolean isEnded()
+	{
+		return ended;
+	}
+	
+	/**
+	 * Returns true if the producer has marked the end of the data
+	 * and every filled chunk has been read.
+	 */
+	public boolean isDrained()
+	{
+		return ended && getFilledCount() == 0;
+	}
+	
+	/**
+	 * Consumer: gets the next filled chunk.
+	 * @return the chunk, or null if no chunks are filled.
+	 */
+	public byte[] getReadChunk()
+	{
+		long r = read.get();
+		if (written.get() == r)
+			return null;
+		return chunks[(int)(r % chunks.length)];
+	}
+	
+	/**
+	 * Consumer: gets the filled length of the chunk returned by {@link #getReadChunk()}.
+	 */
+	public int getReadLength()
+	{
+		return lengths[(int)(read.get() % chunks.length)];
+	}
+	
+	/**
+	 * Consumer: releases the chunk returned by {@link #getReadChunk()} back to the producer.
+	 */
+	public void commitRead()
+	{
+		read.lazySet(read.get() + 1);
+	}
+	
+}
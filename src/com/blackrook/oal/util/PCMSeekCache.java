@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import java.util.Arrays;
+
+/**
+ * The most recently decoded data of a stream, kept in fixed-size pages by byte offset,
+ * so that seeking back into it (or looping back to it) is served from memory
+ * instead of reopening the decoder and decoding from the start again.
+ * <p>
+ * Decoded data is written as it comes out of the decoder. A page is only started
+ * at its first byte, and only filled in order, so every page holds data from its start.
+ * When the cache is full, the oldest pages are reused first.
+ * Once the end of the stream is found, reads past it can be answered without a decoder.
+ * <p>
+ * This class is not thread-safe. Use it from the thread that decodes the stream.
+ * @author Matthew Tropiano
+ */
+public class PCMSeekCache
+{
+	/** The size of each page in bytes. */
+	private int pageSize;
+	/** The maximum amount of pages kept. */
+	private int maxPages;
+	/** Pages by page number, or null if not kept. */
+	private byte[][] pages;
+	/** Filled length of each page by page number. */
+	private int[] lengths;
+	/** Numbers of the kept pages, from oldest to newest, as a ring. */
+	private int[] order;
+	/** Index of the oldest page in the order ring. */
+	private int orderStart;
+	/** Amount of kept pages. */
+	private int pageCount;
+	/** Length of the stream in bytes, or -1 if its end has not been found. */
+	private long length;
+
+	/**
+	 * Creates a new seek cache.
+	 * @param pageSize the size of each page in bytes, usually the size of the decoder's reads.
+	 * @param maxBytes the maximum amount of bytes kept (0 or less = none).
+	 * @throws IllegalArgumentException if pageSize is less than 1.
+	 */
+	public PCMSeekCache(int pageSize, long maxBytes)
+	{
+		if (pageSize < 1)
+			throw new IllegalArgumentException("Page size can't be less than 1.");
+		this.pageSize = pageSize;
+		this.maxPages = (int)Math.min(Integer.MAX_VALUE, Math.max(0L, maxBytes / pageSize));
+		this.pages = new byte[16][];
+		this.lengths = new int[16];
+		this.order = new int[Math.min(maxPages, 16)];
+		this.orderStart = 0;
+		this.pageCount = 0;
+		this.length = -1L;
+	}
+
+	/**
+	 * Copies kept data at a byte offset into an array, up to the end of its page.
+	 * @param position the byte offset in the stream.
+	 * @param out the output array.
+	 * @param offset the offset into the output array.
+	 * @param maxLength the maximum amount of bytes to copy.
+	 * @return the amount of bytes copied, or 0 if the data at the position is not kept.
+	 */
+	public int read(long position, byte[] out, int offset, int maxLength)
+	{
+		long page = position / pageSize;
+		if (page >= pages.length || pages[(int)page] == null)
+			return 0;
+		int p = (int)page;
+		int start = (int)(position - page * pageSize);
+		int len = Math.min(maxLength, lengths[p] - start);
+		if (len <= 0)
+			return 0;
+		System.arraycopy(pages[p], start, out, offset, len);
+		return len;
+	}
+
+	/**
+	 * Keeps data decoded at a byte offset.
+	 * Data that does not continue a kept page or start a new one is not kept.
+	 * @param position the byte offset in the stream of the first byte of data.
+	 * @param data the decoded data.
+	 * @param offset the offset into the data.
+	 * @param len the amount of bytes of data.
+	 */
+	public void write(long position, byte[] data, int offset, int len)
+	{
+		if (maxPages == 0)
+			return;
+
+		while (len > 0)
+		{
+			long page = position / pageSize;
+			if (page > Integer.MAX_VALUE)
+				return;
+			int p = (int)page;
+			int start = (int)(position - page * pageSize);
+			int n = Math.min(len, pageSize - start);
+
+			if (p >= pages.length)
+			{
+				int size = Math.max(p + 1, pages.length * 2);
+				pages = Arrays.copyOf(pages, size);
+				lengths = Arrays.copyOf(lengths, size);
+			}
+			if (pages[p] == null && start == 0)
+				addPage(p);
+
+			// copy only the part past what the page already has.
+			int filled = pages[p] != null ? lengths[p] : -1;
+			if (filled >= start && filled < start + n)
+			{
+				int skip = filled - start;
+				System.arraycopy(data, offset + skip, pages[p], filled, n - skip);
+				lengths[p] = start + n;
+			}
+
+			position += n;
+			offset += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Sets the length of the stream, once its end has been found.
+	 * @param length the length in bytes.
+	 */
+	public void setLength(long length)
+	{
+		this.length = length;
+	}
+
+	/**
+	 * Gets the length of the stream in bytes, or -1 if its end has not been found.
+	 */
+	public long getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * Returns the size of each page in bytes.
+	 */
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+
+	/**
+	 * Returns the maximum amount of bytes kept.
+	 */
+	public long getMaxBytes()
+	{
+		return (long)maxPages * pageSize;
+	}
+
+	/**
+	 * Returns the amount of pages kept.
+	 */
+	public int getPageCount()
+	{
+		return pageCount;
+	}
+
+	/**
+	 * Removes all pages. The length of the stream, if found, is kept.
+	 */
+	public void clear()
+	{
+		Arrays.fill(pages, null);
+		Arrays.fill(lengths, 0);
+		orderStart = 0;
+		pageCount = 0;
+	}
+
+	// starts a page, reusing the oldest one if full.
+	private void addPage(int page)
+	{
+		byte[] data = null;
+		if (pageCount == maxPages)
+		{
+			int oldest = order[orderStart];
+			data = pages[oldest];
+			pages[oldest] = null;
+			lengths[oldest] = 0;
+			orderStart = (orderStart + 1) % order.length;
+			pageCount--;
+		}
+		else if (pageCount == order.length)
+		{
+			int[] next = new int[Math.min(maxPages, order.length * 2)];
+			for (int i = 0; i < pageCount; i++)
+				next[i] = order[(orderStart + i) % order.length];
+			order = next;
+			orderStart = 0;
+		}
+
+		pages[page] = data != null ? data : new byte[pageSize];
+		lengths[page] = 0;
+		order[(orderStart + pageCount) % order.length] = page;
+		pageCount++;
+	}
+
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, array-backed queue.
+ * Any number of threads may add objects to this queue and remove them from it
+ * at the same time without taking a monitor. Each slot carries a sequence number
+ * that tells producers and consumers whether it is ready to be written or read,
+ * so the only contended operation is a single compare-and-set on the queue's head or tail.
+ * <p>
+ * This queue does not grow: {@link #offer(Object)} returns false if the queue is full.
+ * @author Matthew Tropiano
+ */
+public class RingQueue<T extends Object>
+{
+	/** The slot contents. */
+	private AtomicReferenceArray<T> slots;
+	/** The slot sequence numbers. */
+	private AtomicLongArray sequence;
+	/** Mask for wrapping positions into slot indices. */
+	private int mask;
+	/** The next position to write to. */
+	private AtomicLong tail;
+	/** The next position to read from. */
+	private AtomicLong head;
+
+	/**
+	 * Creates a new queue.
+	 * @param capacity the maximum amount of objects that this queue can hold.
+	 * This is rounded up to the nearest power of two.
+	 * @throws IllegalArgumentException if capacity is less than 1.
+	 */
+	public RingQueue(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity can't be less than 1.");
+
+		int size = 1;
+		while (size < capacity)
+			size <<= 1;
+
+		slots = new AtomicReferenceArray<T>(size);
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			sequence.set(i, i);
+		mask = size - 1;
+		tail = new AtomicLong(0L);
+		head = new AtomicLong(0L);
+	}
+
+	/**
+	 * Adds an object to the end of this queue, if there is room.
+	 * @param object the object to add.
+	 * @return true if added, false if the queue is full.
+	 * @throws NullPointerException if object is null.
+	 */
+	public boolean offer(T object)
+	{
+		if (object == null)
+			throw new NullPointerException("Object can't be null.");
+
+		while (true)
+		{
+			long pos = tail.get();
+			int index = (int)(pos & mask);
+			long diff = sequence.get(index) - pos;
+			if (diff == 0L)
+			{
+				if (tail.compareAndSet(pos, pos + 1))
+				{
+					slots.lazySet(index, object);
+					sequence.set(index, pos + 1);
+					return true;
+				}
+			}
+			else if (diff < 0L)
+				return false;
+		}
+	}
+
+	/**
+	 * Removes the object at the front of this queue.
+	 * @return the removed object or null if the queue is empty.
+	 */
+	public T poll()
+	{
+		while (true)
+		{
+			long pos = head.get();
+			int index = (int)(pos & mask);
+			long diff = sequence.get(index) - (pos + 1);
+			if (diff == 0L)
+			{
+				if (head.compareAndSet(pos, pos + 1))
+				{
+					T out = slots.get(index);
+					slots.lazySet(index, null);
+					sequence.set(index, pos + mask + 1);
+					return out;
+				}
+			}
+			else if (diff < 0L)
+				return null;
+		}
+	}
+
+	/**
+	 * Returns the maximum amount of objects that this queue can hold.
+	 */
+	public int capacity()
+	{
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the approximate amount of objects in this queue.
+	 * This is only exact if no other thread is changing the queue.
+	 */
+	public int size()
+	{
+		long s = tail.get() - head.get();
+		return (int)Math.max(0L, Math.min(s, mask + 1));
+	}
+
+	/**
+	 * Returns true if this queue is (approximately) empty.
+	 * This is only exact if no other thread is changing the queue.
+	 */
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+}
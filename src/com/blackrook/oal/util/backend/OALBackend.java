@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.backend;
+
+import java.io.IOException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.blackrook.commons.math.geometry.Point3F;
+import com.blackrook.oal.JSPISoundHandle;
+import com.blackrook.oal.enums.DistanceModel;
+
+/**
+ * The sound system operations that a sound stage uses: creating sources and buffers,
+ * and setting listener and global attributes.
+ * <p>
+ * {@link OALSystemBackend} plays through OpenAL, and {@link SimulatedBackend}
+ * simulates playback in memory, without an audio device.
+ * @author Matthew Tropiano
+ */
+public interface OALBackend
+{
+	/**
+	 * Creates a new source.
+	 */
+	public OALBackendSource createSource();
+
+	/**
+	 * Creates a new, empty buffer.
+	 */
+	public OALBackendBuffer createBuffer();
+
+	/**
+	 * Creates many new, empty buffers.
+	 * @param count the amount of buffers.
+	 */
+	public OALBackendBuffer[] createBuffers(int count);
+
+	/**
+	 * Creates a new buffer with the full decoded contents of a sound.
+	 * @param handle the sound to decode.
+	 * @throws IOException if the sound could not be read.
+	 * @throws UnsupportedAudioFileException if the sound's format is not supported.
+	 */
+	public OALBackendBuffer createBuffer(JSPISoundHandle handle) throws IOException, UnsupportedAudioFileException;
+
+	/**
+	 * Sets the listener's gain.
+	 */
+	public void setListenerGain(float gain);
+
+	/**
+	 * Sets the listener's "up" vector.
+	 */
+	public void setListenerTop(float x, float y, float z);
+
+	/**
+	 * Sets the listener's facing vector.
+	 */
+	public void setListenerFacing(float x, float y, float z);
+
+	/**
+	 * Sets the listener's position.
+	 */
+	public void setListenerPosition(float x, float y, float z);
+
+	/**
+	 * Sets the listener's velocity.
+	 */
+	public void setListenerVelocity(float x, float y, float z);
+
+	/**
+	 * Gets the listener's position. Do not change the returned point.
+	 */
+	public Point3F getListenerPosition();
+
+	/**
+	 * Sets the distance attenuation model.
+	 */
+	public void setDistanceModel(DistanceModel model);
+
+	/**
+	 * Sets the speed of sound, for Doppler calculations.
+	 */
+	public void setSpeedOfSound(float speed);
+
+	/**
+	 * Sets the Doppler factor.
+	 */
+	public void setDopplerFactor(float factor);
+
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.backend;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A buffer of PCM data created by an {@link OALBackend}.
+ * @author Matthew Tropiano
+ */
+public interface OALBackendBuffer
+{
+	/**
+	 * Sets the sampling rate of the data in this buffer.
+	 */
+	public void setSamplingRate(int rate);
+
+	/**
+	 * Gets the sampling rate of the data in this buffer.
+	 */
+	public int getSamplingRate();
+
+	/**
+	 * Sets the format of the data in this buffer.
+	 * @param channels the amount of channels.
+	 * @param bits the amount of bits per sample.
+	 */
+	public void setFormatByChannelsAndBits(int channels, int bits);
+
+	/**
+	 * Gets the amount of channels in this buffer's data.
+	 */
+	public int getChannels();
+
+	/**
+	 * Gets the amount of bits per sample in this buffer's data.
+	 */
+	public int getBits();
+
+	/**
+	 * Loads PCM data into this buffer, replacing its contents.
+	 * @param data the data, from its position.
+	 * @param length the amount of bytes to load.
+	 */
+	public void loadPCMData(ByteBuffer data, int length);
+
+	/**
+	 * Gets the size of this buffer's data in bytes.
+	 */
+	public int getSize();
+
+	/**
+	 * Frees this buffer.
+	 */
+	public void destroy();
+
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.backend;
+
+/**
+ * A sound source created by an {@link OALBackend}.
+ * @author Matthew Tropiano
+ */
+public interface OALBackendSource
+{
+	/**
+	 * Gets an identifier for this source, for debugging.
+	 */
+	public int getId();
+
+	/**
+	 * Plays this source from where it is, or from the start if it is stopped.
+	 */
+	public void play();
+
+	/**
+	 * Pauses this source, if it is playing.
+	 */
+	public void pause();
+
+	/**
+	 * Stops this source. All queued buffers are marked as processed.
+	 */
+	public void stop();
+
+	/**
+	 * Rewinds this source to its initial state.
+	 */
+	public void rewind();
+
+	/**
+	 * Resets this source's attributes to their defaults.
+	 */
+	public void reset();
+
+	/**
+	 * Returns true if this source is playing.
+	 */
+	public boolean isPlaying();
+
+	/**
+	 * Returns true if this source is paused.
+	 */
+	public boolean isPaused();
+
+	/**
+	 * Sets the one buffer that this source plays, clearing its queue.
+	 * @param buffer the buffer, or null for none.
+	 */
+	public void setBuffer(OALBackendBuffer buffer);
+
+	/**
+	 * Adds a buffer to the end of this source's queue.
+	 */
+	public void enqueueBuffer(OALBackendBuffer buffer);
+
+	/**
+	 * Adds buffers to the end of this source's queue, in order.
+	 */
+	public void enqueueBuffers(OALBackendBuffer ... buffers);
+
+	/**
+	 * Removes the first processed buffer from this source's queue.
+	 * @return the buffer, or null if no buffers are processed.
+	 */
+	public OALBackendBuffer dequeueBuffer();
+
+	/**
+	 * Removes all buffers from this source's queue. The source should be stopped first.
+	 * @return the buffers, in queue order.
+	 */
+	public OALBackendBuffer[] dequeueAllBuffers();
+
+	/**
+	 * Gets the amount of queued buffers that have finished playing.
+	 */
+	public int getProcessedBufferCount();
+
+	/**
+	 * Moves this source to a sample frame in its buffer, or in its queue of buffers.
+	 * If this source is not playing or paused, it starts from there the next time it is played.
+	 * @param offset the sample frame offset.
+	 */
+	public void setSampleOffset(int offset);
+
+	/**
+	 * Gets the sample frame that this source is at in its buffer, or in its queue of buffers.
+	 */
+	public int getSampleOffset();
+
+	/**
+	 * Sets this source's position.
+	 */
+	public void setPosition(float x, float y, float z);
+
+	/**
+	 * Sets this source's velocity.
+	 */
+	public void setVelocity(float x, float y, float z);
+
+	/**
+	 * Sets this source's direction vector.
+	 */
+	public void setDirection(float x, float y, float z);
+
+	/**
+	 * Sets if this source's position is relative to the listener.
+	 */
+	public void setRelative(boolean relative);
+
+	/**
+	 * Sets this source's rolloff factor.
+	 */
+	public void setRolloff(float rolloff);
+
+	/**
+	 * Sets the distance that this source starts to attenuate at.
+	 */
+	public void setReferenceDistance(float distance);
+
+	/**
+	 * Sets the distance that this source stops attenuating at.
+	 */
+	public void setMaxDistance(float distance);
+
+	/**
+	 * Sets this source's inner cone angle.
+	 */
+	public void setInnerConeAngle(float angle);
+
+	/**
+	 * Sets this source's outer cone angle.
+	 */
+	public void setOuterConeAngle(float angle);
+
+	/**
+	 * Sets this source's outer cone gain.
+	 */
+	public void setOuterConeGain(float gain);
+
+	/**
+	 * Sets this source's gain.
+	 */
+	public void setGain(float gain);
+
+	/**
+	 * Sets this source's pitch.
+	 */
+	public void setPitch(float pitch);
+
+	/**
+	 * Sets if this source loops its buffer.
+	 */
+	public void setLooping(boolean looping);
+
+	/**
+	 * Frees this source.
+	 */
+	public void destroy();
+
+}
@@ -0,0 +1,464 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.blackrook.commons.linkedlist.Queue;
+import com.blackrook.commons.math.geometry.Point3F;
+import com.blackrook.oal.JSPISoundHandle;
+import com.blackrook.oal.OALBuffer;
+import com.blackrook.oal.OALSource;
+import com.blackrook.oal.OALSystem;
+import com.blackrook.oal.enums.DistanceModel;
+
+/**
+ * A backend that plays through OpenAL, using an {@link OALSystem}.
+ * The OpenAL objects behind its sources and buffers can be retrieved with
+ * {@link #getOALSource(OALBackendSource)} and {@link #getOALBuffer(OALBackendBuffer)}.
+ * @author Matthew Tropiano
+ */
+public class OALSystemBackend implements OALBackend
+{
+	/** The sound system. */
+	private OALSystem system;
+
+	/**
+	 * Creates a new backend.
+	 * @param system the sound system to play through.
+	 */
+	public OALSystemBackend(OALSystem system)
+	{
+		this.system = system;
+	}
+
+	/**
+	 * Gets the sound system that this plays through.
+	 */
+	public OALSystem getSystem()
+	{
+		return system;
+	}
+
+	/**
+	 * Gets the OpenAL source behind a source, or null if it is not an OpenAL source.
+	 */
+	public static OALSource getOALSource(OALBackendSource source)
+	{
+		return source instanceof SystemSource ? ((SystemSource)source).source : null;
+	}
+
+	/**
+	 * Gets the OpenAL buffer behind a buffer, or null if it is not an OpenAL buffer.
+	 */
+	public static OALBuffer getOALBuffer(OALBackendBuffer buffer)
+	{
+		return buffer instanceof SystemBuffer ? ((SystemBuffer)buffer).buffer : null;
+	}
+
+	@Override
+	public OALBackendSource createSource()
+	{
+		return new SystemSource(system.createSource());
+	}
+
+	@Override
+	public OALBackendBuffer createBuffer()
+	{
+		return new SystemBuffer(system.createBuffer());
+	}
+
+	@Override
+	public OALBackendBuffer[] createBuffers(int count)
+	{
+		OALBuffer[] buffers = system.createBuffers(count);
+		OALBackendBuffer[] out = new OALBackendBuffer[buffers.length];
+		for (int i = 0; i < buffers.length; i++)
+			out[i] = new SystemBuffer(buffers[i]);
+		return out;
+	}
+
+	@Override
+	public OALBackendBuffer createBuffer(JSPISoundHandle handle) throws IOException, UnsupportedAudioFileException
+	{
+		// decoded here rather than by the system, so that the buffer knows its format.
+		JSPISoundHandle.Decoder decoder = handle.getDecoder();
+		try {
+			AudioFormat format = decoder.getDecodedAudioFormat();
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] b = new byte[16384];
+			int n;
+			while ((n = decoder.readPCMBytes(b)) > 0)
+				bos.write(b, 0, n);
+			ByteBuffer data = ByteBuffer.allocateDirect(bos.size());
+			data.put(bos.toByteArray());
+			data.flip();
+			OALBackendBuffer out = createBuffer();
+			out.setSamplingRate((int)format.getSampleRate());
+			out.setFormatByChannelsAndBits(format.getChannels(), format.getSampleSizeInBits());
+			out.loadPCMData(data, data.remaining());
+			return out;
+		} finally {
+			decoder.close();
+		}
+	}
+
+	@Override
+	public void setListenerGain(float gain)
+	{
+		system.getListener().setGain(gain);
+	}
+
+	@Override
+	public void setListenerTop(float x, float y, float z)
+	{
+		system.getListener().setTop(x, y, z);
+	}
+
+	@Override
+	public void setListenerFacing(float x, float y, float z)
+	{
+		system.getListener().setFacing(x, y, z);
+	}
+
+	@Override
+	public void setListenerPosition(float x, float y, float z)
+	{
+		system.getListener().setPosition(x, y, z);
+	}
+
+	@Override
+	public void setListenerVelocity(float x, float y, float z)
+	{
+		system.getListener().setVelocity(x, y, z);
+	}
+
+	@Override
+	public Point3F getListenerPosition()
+	{
+		return system.getListener().getPosition();
+	}
+
+	@Override
+	public void setDistanceModel(DistanceModel model)
+	{
+		system.setDistanceModel(model);
+	}
+
+	@Override
+	public void setSpeedOfSound(float speed)
+	{
+		system.setSpeedOfSound(speed);
+	}
+
+	@Override
+	public void setDopplerFactor(float factor)
+	{
+		system.setDopplerFactor(factor);
+	}
+
+	/**
+	 * An OpenAL buffer.
+	 */
+	protected static class SystemBuffer implements OALBackendBuffer
+	{
+		private OALBuffer buffer;
+		private int rate;
+		private int channels;
+		private int bits;
+
+		SystemBuffer(OALBuffer buffer)
+		{
+			this.buffer = buffer;
+			this.rate = 0;
+			this.channels = 0;
+			this.bits = 0;
+		}
+
+		@Override
+		public void setSamplingRate(int rate)
+		{
+			buffer.setSamplingRate(rate);
+			this.rate = rate;
+		}
+
+		@Override
+		public int getSamplingRate()
+		{
+			return rate;
+		}
+
+		@Override
+		public void setFormatByChannelsAndBits(int channels, int bits)
+		{
+			buffer.setFormatByChannelsAndBits(channels, bits);
+			this.channels = channels;
+			this.bits = bits;
+		}
+
+		@Override
+		public int getChannels()
+		{
+			return channels;
+		}
+
+		@Override
+		public int getBits()
+		{
+			return bits;
+		}
+
+		@Override
+		public void loadPCMData(ByteBuffer data, int length)
+		{
+			buffer.loadPCMData(data, length);
+		}
+
+		@Override
+		public int getSize()
+		{
+			return buffer.getSize();
+		}
+
+		@Override
+		public void destroy()
+		{
+			buffer.destroy();
+		}
+
+		@Override
+		public String toString()
+		{
+			return buffer.toString();
+		}
+	}
+
+	/**
+	 * An OpenAL source.
+	 * Keeps its own copy of the buffer queue, since OpenAL only hands back OpenAL buffers.
+	 */
+	protected static class SystemSource implements OALBackendSource
+	{
+		private OALSource source;
+		/** Queued buffers, in queue order. */
+		private Queue<OALBackendBuffer> queue;
+
+		SystemSource(OALSource source)
+		{
+			this.source = source;
+			this.queue = new Queue<OALBackendBuffer>();
+		}
+
+		@Override
+		public int getId()
+		{
+			return source.getALId();
+		}
+
+		@Override
+		public void play()
+		{
+			source.play();
+		}
+
+		@Override
+		public void pause()
+		{
+			source.pause();
+		}
+
+		@Override
+		public void stop()
+		{
+			source.stop();
+		}
+
+		@Override
+		public void rewind()
+		{
+			source.rewind();
+		}
+
+		@Override
+		public void reset()
+		{
+			source.reset();
+		}
+
+		@Override
+		public boolean isPlaying()
+		{
+			return source.isPlaying();
+		}
+
+		@Override
+		public boolean isPaused()
+		{
+			return source.isPaused();
+		}
+
+		@Override
+		public void setBuffer(OALBackendBuffer buffer)
+		{
+			queue.clear();
+			source.setBuffer(getOALBuffer(buffer));
+		}
+
+		@Override
+		public void enqueueBuffer(OALBackendBuffer buffer)
+		{
+			source.enqueueBuffer(getOALBuffer(buffer));
+			queue.enqueue(buffer);
+		}
+
+		@Override
+		public void enqueueBuffers(OALBackendBuffer... buffers)
+		{
+			OALBuffer[] b = new OALBuffer[buffers.length];
+			for (int i = 0; i < buffers.length; i++)
+			{
+				b[i] = getOALBuffer(buffers[i]);
+				queue.enqueue(buffers[i]);
+			}
+			source.enqueueBuffers(b);
+		}
+
+		@Override
+		public OALBackendBuffer dequeueBuffer()
+		{
+			if (source.dequeueBuffer() == null)
+				return null;
+			return queue.dequeue();
+		}
+
+		@Override
+		public OALBackendBuffer[] dequeueAllBuffers()
+		{
+			source.dequeueAllBuffers();
+			OALBackendBuffer[] out = new OALBackendBuffer[queue.size()];
+			int i = 0;
+			while (!queue.isEmpty())
+				out[i++] = queue.dequeue();
+			return out;
+		}
+
+		@Override
+		public int getProcessedBufferCount()
+		{
+			return source.getProcessedBufferCount();
+		}
+
+		@Override
+		public void setSampleOffset(int offset)
+		{
+			source.setSampleOffset(offset);
+		}
+
+		@Override
+		public int getSampleOffset()
+		{
+			return source.getSampleOffset();
+		}
+
+		@Override
+		public void setPosition(float x, float y, float z)
+		{
+			source.setPosition(x, y, z);
+		}
+
+		@Override
+		public void setVelocity(float x, float y, float z)
+		{
+			source.setVelocity(x, y, z);
+		}
+
+		@Override
+		public void setDirection(float x, float y, float z)
+		{
+			source.setDirection(x, y, z);
+		}
+
+		@Override
+		public void setRelative(boolean relative)
+		{
+			source.setRelative(relative);
+		}
+
+		@Override
+		public void setRolloff(float rolloff)
+		{
+			source.setRolloff(rolloff);
+		}
+
+		@Override
+		public void setReferenceDistance(float distance)
+		{
+			source.setReferenceDistance(distance);
+		}
+
+		@Override
+		public void setMaxDistance(float distance)
+		{
+			source.setMaxDistance(distance);
+		}
+
+		@Override
+		public void setInnerConeAngle(float angle)
+		{
+			source.setInnerConeAngle(angle);
+		}
+
+		@Override
+		public void setOuterConeAngle(float angle)
+		{
+			source.setOuterConeAngle(angle);
+		}
+
+		@Override
+		public void setOuterConeGain(float gain)
+		{
+			source.setOuterConeGain(gain);
+		}
+
+		@Override
+		public void setGain(float gain)
+		{
+			source.setGain(gain);
+		}
+
+		@Override
+		public void setPitch(float pitch)
+		{
+			source.setPitch(pitch);
+		}
+
+		@Override
+		public void setLooping(boolean looping)
+		{
+			source.setLooping(looping);
+		}
+
+		@Override
+		public void destroy()
+		{
+			source.destroy();
+		}
+
+		@Override
+		public String toString()
+		{
+			return source.toString();
+		}
+	}
+
+}
@@ -0,0 +1,632 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.blackrook.commons.math.geometry.Point3F;
+import com.blackrook.oal.JSPISoundHandle;
+import com.blackrook.oal.enums.DistanceModel;
+
+/**
+ * A backend that simulates playback in memory, without an audio device.
+ * Nothing is heard: sources only keep track of how far they have played into their buffers,
+ * from each buffer's size and format and the source's pitch.
+ * <p>
+ * Time only passes when {@link #advance(long)} is called, so runs are repeatable.
+ * Buffer data is not kept, only its size.
+ * <p>
+ * This class is not thread-safe. Call {@link #advance(long)} on the thread that updates the stage.
+ * @author Matthew Tropiano
+ */
+public class SimulatedBackend implements OALBackend
+{
+	/** Source state: initial. */
+	private static final int STATE_INITIAL = 0;
+	/** Source state: playing. */
+	private static final int STATE_PLAYING = 1;
+	/** Source state: paused. */
+	private static final int STATE_PAUSED = 2;
+	/** Source state: stopped. */
+	private static final int STATE_STOPPED = 3;
+
+	/** Live sources. */
+	private ArrayList<SimulatedSource> sources;
+	/** Amount of live buffers. */
+	private int bufferCount;
+	/** Next object id. */
+	private int nextId;
+	/** Simulated time in nanoseconds. */
+	private long nanos;
+
+	/** Listener position. */
+	private Point3F listenerPosition;
+
+	/**
+	 * Creates a new simulated backend at time 0.
+	 */
+	public SimulatedBackend()
+	{
+		sources = new ArrayList<SimulatedSource>();
+		bufferCount = 0;
+		nextId = 1;
+		nanos = 0L;
+		listenerPosition = new Point3F(0, 0, 0);
+	}
+
+	/**
+	 * Moves simulated time forward, playing all playing sources.
+	 * @param nanos the amount of nanoseconds to move forward.
+	 */
+	public void advance(long nanos)
+	{
+		this.nanos += nanos;
+		for (int i = 0; i < sources.size(); i++)
+			sources.get(i).advance(nanos);
+	}
+
+	/**
+	 * Gets the simulated time in nanoseconds.
+	 */
+	public long getTime()
+	{
+		return nanos;
+	}
+
+	/**
+	 * Gets the amount of sources that have not been destroyed.
+	 */
+	public int getSourceCount()
+	{
+		return sources.size();
+	}
+
+	/**
+	 * Gets the amount of buffers that have not been destroyed.
+	 */
+	public int getBufferCount()
+	{
+		return bufferCount;
+	}
+
+	/**
+	 * Gets the amount of sources that are playing.
+	 */
+	public int getPlayingSourceCount()
+	{
+		int out = 0;
+		for (int i = 0; i < sources.size(); i++)
+			if (sources.get(i).state == STATE_PLAYING)
+				out++;
+		return out;
+	}
+
+	/**
+	 * Gets the gain last set on a source, or NaN if it is not a simulated source.
+	 */
+	public static float getGain(OALBackendSource source)
+	{
+		return source instanceof SimulatedSource ? ((SimulatedSource)source).gain : Float.NaN;
+	}
+
+	@Override
+	public OALBackendSource createSource()
+	{
+		SimulatedSource out = new SimulatedSource(nextId++);
+		sources.add(out);
+		return out;
+	}
+
+	@Override
+	public OALBackendBuffer createBuffer()
+	{
+		bufferCount++;
+		return new SimulatedBuffer(nextId++);
+	}
+
+	@Override
+	public OALBackendBuffer[] createBuffers(int count)
+	{
+		OALBackendBuffer[] out = new OALBackendBuffer[count];
+		for (int i = 0; i < count; i++)
+			out[i] = createBuffer();
+		return out;
+	}
+
+	@Override
+	public OALBackendBuffer createBuffer(JSPISoundHandle handle) throws IOException, UnsupportedAudioFileException
+	{
+		JSPISoundHandle.Decoder decoder = handle.getDecoder();
+		try {
+			AudioFormat format = decoder.getDecodedAudioFormat();
+			byte[] b = new byte[16384];
+			int size = 0;
+			int n;
+			while ((n = decoder.readPCMBytes(b)) > 0)
+				size += n;
+			SimulatedBuffer out = (SimulatedBuffer)createBuffer();
+			out.setSamplingRate((int)format.getSampleRate());
+			out.setFormatByChannelsAndBits(format.getChannels(), format.getSampleSizeInBits());
+			out.size = size;
+			return out;
+		} finally {
+			decoder.close();
+		}
+	}
+
+	@Override
+	public void setListenerGain(float gain)
+	{
+		// nothing is heard.
+	}
+
+	@Override
+	public void setListenerTop(float x, float y, float z)
+	{
+		// nothing is heard.
+	}
+
+	@Override
+	public void setListenerFacing(float x, float y, float z)
+	{
+		// nothing is heard.
+	}
+
+	@Override
+	public void setListenerPosition(float x, float y, float z)
+	{
+		listenerPosition.x = x;
+		listenerPosition.y = y;
+		listenerPosition.z = z;
+	}
+
+	@Override
+	public void setListenerVelocity(float x, float y, float z)
+	{
+		// nothing is heard.
+	}
+
+	@Override
+	public Point3F getListenerPosition()
+	{
+		return listenerPosition;
+	}
+
+	@Override
+	public void setDistanceModel(DistanceModel model)
+	{
+		// nothing is heard.
+	}
+
+	@Override
+	public void setSpeedOfSound(float speed)
+	{
+		// nothing is heard.
+	}
+
+	@Override
+	public void setDopplerFactor(float factor)
+	{
+		// nothing is heard.
+	}
+
+	/**
+	 * A simulated buffer. Keeps its size and format, but not its data.
+	 */
+	protected class SimulatedBuffer implements OALBackendBuffer
+	{
+		private int id;
+		private int rate;
+		private int channels;
+		private int bits;
+		private int size;
+		private boolean destroyed;
+
+		SimulatedBuffer(int id)
+		{
+			this.id = id;
+			this.rate = 44100;
+			this.channels = 1;
+			this.bits = 16;
+			this.size = 0;
+			this.destroyed = false;
+		}
+
+		@Override
+		public void setSamplingRate(int rate)
+		{
+			this.rate = rate;
+		}
+
+		@Override
+		public int getSamplingRate()
+		{
+			return rate;
+		}
+
+		@Override
+		public void setFormatByChannelsAndBits(int channels, int bits)
+		{
+			this.channels = channels;
+			this.bits = bits;
+		}
+
+		@Override
+		public int getChannels()
+		{
+			return channels;
+		}
+
+		@Override
+		public int getBits()
+		{
+			return bits;
+		}
+
+		@Override
+		public void loadPCMData(ByteBuffer data, int length)
+		{
+			size = length;
+		}
+
+		@Override
+		public int getSize()
+		{
+			return size;
+		}
+
+		/**
+		 * Gets the amount of sample frames in this buffer.
+		 */
+		public int getFrames()
+		{
+			int frameBytes = channels * (bits / 8);
+			return frameBytes > 0 ? size / frameBytes : 0;
+		}
+
+		/**
+		 * Gets how long this buffer plays at normal pitch, in nanoseconds.
+		 */
+		public long getDurationNanos()
+		{
+			long bytesPerSecond = (long)rate * channels * (bits / 8);
+			return bytesPerSecond > 0 ? size * 1000000000L / bytesPerSecond : 0L;
+		}
+
+		@Override
+		public void destroy()
+		{
+			if (destroyed)
+				return;
+			destroyed = true;
+			bufferCount--;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "SimulatedBuffer " + id;
+		}
+	}
+
+	/**
+	 * A simulated source.
+	 */
+	protected class SimulatedSource implements OALBackendSource
+	{
+		private int id;
+		private int state;
+		/** The static buffer, if set. */
+		private SimulatedBuffer staticBuffer;
+		/** Queued buffers. */
+		private ArrayList<SimulatedBuffer> queue;
+		/** Amount of processed buffers at the front of the queue. */
+		private int processed;
+		/** Nanoseconds (at normal pitch) played into the current buffer. */
+		private long offset;
+		/** Sample frame to start from on the next play, or -1 for the start. */
+		private int startOffset;
+		private float gain;
+		private float pitch;
+		private boolean looping;
+
+		SimulatedSource(int id)
+		{
+			this.id = id;
+			this.state = STATE_INITIAL;
+			this.staticBuffer = null;
+			this.queue = new ArrayList<SimulatedBuffer>(4);
+			this.processed = 0;
+			this.offset = 0L;
+			this.startOffset = -1;
+			this.gain = 1f;
+			this.pitch = 1f;
+			this.looping = false;
+		}
+
+		// plays this source forward.
+		void advance(long nanos)
+		{
+			if (state != STATE_PLAYING)
+				return;
+
+			long remaining = (long)(nanos * pitch);
+			while (state == STATE_PLAYING)
+			{
+				SimulatedBuffer current = staticBuffer != null ? staticBuffer : (processed < queue.size() ? queue.get(processed) : null);
+				if (current == null)
+				{
+					state = STATE_STOPPED;
+					break;
+				}
+				long duration = current.getDurationNanos();
+				if (offset + remaining < duration)
+				{
+					offset += remaining;
+					break;
+				}
+				remaining -= duration - offset;
+				offset = 0L;
+				if (staticBuffer != null)
+				{
+					if (!looping)
+						state = STATE_STOPPED;
+				}
+				else if (++processed == queue.size() && looping)
+					processed = 0;
+				// an empty looping buffer never ends.
+				if (looping && duration == 0L)
+					break;
+			}
+		}
+
+		@Override
+		public int getId()
+		{
+			return id;
+		}
+
+		@Override
+		public void play()
+		{
+			if (state != STATE_PAUSED)
+				seek(Math.max(startOffset, 0));
+			startOffset = -1;
+			state = STATE_PLAYING;
+		}
+
+		@Override
+		public void pause()
+		{
+			if (state == STATE_PLAYING)
+				state = STATE_PAUSED;
+		}
+
+		@Override
+		public void stop()
+		{
+			state = STATE_STOPPED;
+			processed = queue.size();
+			offset = 0L;
+		}
+
+		@Override
+		public void rewind()
+		{
+			state = STATE_INITIAL;
+			processed = 0;
+			offset = 0L;
+			startOffset = -1;
+		}
+
+		@Override
+		public void reset()
+		{
+			pitch = 1f;
+			looping = false;
+		}
+
+		@Override
+		public boolean isPlaying()
+		{
+			return state == STATE_PLAYING;
+		}
+
+		@Override
+		public boolean isPaused()
+		{
+			return state == STATE_PAUSED;
+		}
+
+		@Override
+		public void setBuffer(OALBackendBuffer buffer)
+		{
+			queue.clear();
+			processed = 0;
+			offset = 0L;
+			startOffset = -1;
+			staticBuffer = (SimulatedBuffer)buffer;
+		}
+
+		@Override
+		public void enqueueBuffer(OALBackendBuffer buffer)
+		{
+			staticBuffer = null;
+			queue.add((SimulatedBuffer)buffer);
+			// a stopped source has finished everything it has.
+			if (state == STATE_STOPPED)
+				processed = queue.size();
+		}
+
+		@Override
+		public void enqueueBuffers(OALBackendBuffer... buffers)
+		{
+			for (OALBackendBuffer b : buffers)
+				enqueueBuffer(b);
+		}
+
+		@Override
+		public OALBackendBuffer dequeueBuffer()
+		{
+			if (processed == 0)
+				return null;
+			processed--;
+			return queue.remove(0);
+		}
+
+		@Override
+		public OALBackendBuffer[] dequeueAllBuffers()
+		{
+			OALBackendBuffer[] out = queue.toArray(new OALBackendBuffer[queue.size()]);
+			queue.clear();
+			processed = 0;
+			offset = 0L;
+			return out;
+		}
+
+		@Override
+		public int getProcessedBufferCount()
+		{
+			return processed;
+		}
+
+		@Override
+		public void setSampleOffset(int offset)
+		{
+			if (state == STATE_PLAYING || state == STATE_PAUSED)
+				seek(offset);
+			else
+				startOffset = offset;
+		}
+
+		@Override
+		public int getSampleOffset()
+		{
+			if (state != STATE_PLAYING && state != STATE_PAUSED)
+				return 0;
+			long out = 0L;
+			SimulatedBuffer current = staticBuffer;
+			if (current == null)
+			{
+				for (int i = 0; i < processed && i < queue.size(); i++)
+					out += queue.get(i).getFrames();
+				current = processed < queue.size() ? queue.get(processed) : null;
+			}
+			if (current != null)
+				out += offset * current.rate / 1000000000L;
+			return (int)out;
+		}
+
+		// moves to a sample frame, from the start of the buffer or queue.
+		private void seek(long frames)
+		{
+			processed = 0;
+			if (staticBuffer == null)
+				while (processed < queue.size() - 1 && frames >= queue.get(processed).getFrames())
+					frames -= queue.get(processed++).getFrames();
+			SimulatedBuffer current = staticBuffer != null ? staticBuffer : (processed < queue.size() ? queue.get(processed) : null);
+			offset = current != null && current.rate > 0 ? frames * 1000000000L / current.rate : 0L;
+		}
+
+		@Override
+		public void setPosition(float x, float y, float z)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setVelocity(float x, float y, float z)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setDirection(float x, float y, float z)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setRelative(boolean relative)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setRolloff(float rolloff)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setReferenceDistance(float distance)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setMaxDistance(float distance)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setInnerConeAngle(float angle)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setOuterConeAngle(float angle)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setOuterConeGain(float gain)
+		{
+			// nothing is heard.
+		}
+
+		@Override
+		public void setGain(float gain)
+		{
+			this.gain = gain;
+		}
+
+		@Override
+		public void setPitch(float pitch)
+		{
+			this.pitch = pitch;
+		}
+
+		@Override
+		public void setLooping(boolean looping)
+		{
+			this.looping = looping;
+		}
+
+		@Override
+		public void destroy()
+		{
+			sources.remove(this);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "SimulatedSource " + id;
+		}
+	}
+
+}
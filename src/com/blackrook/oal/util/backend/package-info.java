@@ -0,0 +1,9 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/** Contains the sound system backends that a sound stage can play through, including a simulated one for headless testing. */
+package com.blackrook.oal.util.backend;
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.cache;
+
+/**
+ * A size-weighted, frequency-aware LRU eviction policy (GreedyDual-Size with Frequency).
+ * <p>
+ * Each buffer is ranked as <code>L + hits * cost / size</code>, where <code>cost</code>
+ * is the estimated cost of reloading the buffer, <code>cost = fixedCost + costPerByte * size</code>,
+ * and <code>L</code> is an aging value that is raised to the rank of each evicted buffer,
+ * so buffers that stop getting used eventually fall below newer ones.
+ * <p>
+ * With the default costs, small clips are favored slightly over large ones with the same
+ * amount of hits, but a large buffer that is used constantly outranks small ones that are not.
+ * @author Matthew Tropiano
+ */
+public class GreedyDualSize extends RankedCachePolicy
+{
+	/** Default fixed reload cost, in byte-equivalents. */
+	public static final double DEFAULT_FIXED_COST = 65536.0;
+	/** Default per-byte reload cost. */
+	public static final double DEFAULT_COST_PER_BYTE = 1.0;
+	
+	/** Fixed reload cost (file open, header parsing). */
+	private double fixedCost;
+	/** Reload cost per byte (decoding). */
+	private double costPerByte;
+	/** Current aging value. */
+	private double inflation;
+	
+	/**
+	 * Creates a new policy using the default reload costs.
+	 */
+	public GreedyDualSize()
+	{
+		this(DEFAULT_FIXED_COST, DEFAULT_COST_PER_BYTE);
+	}
+	
+	/**
+	 * Creates a new policy.
+	 * @param fixedCost the cost of reloading any buffer, regardless of size.
+	 * @param costPerByte the cost of reloading each byte of a buffer.
+	 */
+	public GreedyDualSize(double fixedCost, double costPerByte)
+	{
+		this.fixedCost = fixedCost;
+		this.costPerByte = costPerByte;
+		this.inflation = 0.0;
+	}
+	
+	@Override
+	protected double rank(Entry entry)
+	{
+		double size = Math.max(entry.size, 1);
+		double cost = fixedCost + costPerByte * size;
+		return inflation + (entry.hits + 1) * cost / size;
+	}
+	
+	@Override
+	protected void evicted(Entry entry)
+	{
+		inflation = Math.max(inflation, entry.rank);
+	}
+	
+	@Override
+	public void clear()
+	{
+		super.clear();
+		inflation = 0.0;
+	}
+	
+}
@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.cache;
+
+/**
+ * An eviction policy that evicts the largest buffers first,
+ * regardless of how often they are used.
+ * This is the default policy for an {@link com.blackrook.oal.util.OALBufferCache}.
+ * @author Matthew Tropiano
+ */
+public class LargestFirst extends RankedCachePolicy
+{
+	@Override
+	protected double rank(Entry entry)
+	{
+		return -entry.size;
+	}
+}
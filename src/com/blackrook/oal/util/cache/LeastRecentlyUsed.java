@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.blackrook.oal.util.OALBufferCachePolicy;
+import com.blackrook.oal.util.OALSoundResource;
+
+/**
+ * An eviction policy that evicts the least recently used buffers first.
+ * All operations are O(1).
+ * @author Matthew Tropiano
+ */
+public class LeastRecentlyUsed implements OALBufferCachePolicy
+{
+	/** Resources in access order. */
+	private LinkedHashMap<OALSoundResource, Boolean> accessOrder;
+	
+	public LeastRecentlyUsed()
+	{
+		accessOrder = new LinkedHashMap<OALSoundResource, Boolean>(20, 0.75f, true);
+	}
+
+	@Override
+	public void bufferAdded(OALSoundResource resource, int size)
+	{
+		accessOrder.put(resource, Boolean.TRUE);
+	}
+
+	@Override
+	public void bufferAccessed(OALSoundResource resource)
+	{
+		accessOrder.get(resource);
+	}
+
+	@Override
+	public void bufferRemoved(OALSoundResource resource, boolean evicted)
+	{
+		accessOrder.remove(resource);
+	}
+
+	@Override
+	public Iterator<OALSoundResource> evictionOrder()
+	{
+		return accessOrder.keySet().iterator();
+	}
+
+	@Override
+	public void clear()
+	{
+		accessOrder.clear();
+	}
+
+}
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.cache;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import com.blackrook.oal.util.OALBufferCachePolicy;
+import com.blackrook.oal.util.OALSoundResource;
+
+/**
+ * An eviction policy that evicts the lowest-ranked buffers first.
+ * Rank ties are broken by evicting the buffer that was least recently added or accessed.
+ * All operations are O(log n) in the amount of cached buffers.
+ * @author Matthew Tropiano
+ */
+public abstract class RankedCachePolicy implements OALBufferCachePolicy
+{
+	/** Comparator for entry ranks, then entry age. */
+	protected static final Comparator<Entry> RANK_COMPARATOR = new Comparator<Entry>()
+	{
+		@Override
+		public int compare(Entry e1, Entry e2)
+		{
+			int c = Double.compare(e1.rank, e2.rank);
+			if (c != 0)
+				return c;
+			return e1.sequence < e2.sequence ? -1 : (e1.sequence > e2.sequence ? 1 : 0);
+		}
+	};
+	
+	/** Entries by resource. */
+	private HashMap<OALSoundResource, Entry> entries;
+	/** Entries by rank. */
+	private TreeSet<Entry> ranking;
+	/** Sequence counter for breaking ties. */
+	private long sequence;
+	
+	protected RankedCachePolicy()
+	{
+		entries = new HashMap<OALSoundResource, Entry>(20);
+		ranking = new TreeSet<Entry>(RANK_COMPARATOR);
+		sequence = 0L;
+	}
+	
+	/**
+	 * Calculates the rank of an entry. Lower ranks are evicted first.
+	 * Called when an entry is added and every time it is accessed, 
+	 * after its hit count is updated.
+	 * @param entry the entry to rank.
+	 * @return the entry's new rank.
+	 */
+	protected abstract double rank(Entry entry);
+	
+	/**
+	 * Called when an entry is evicted, after it has been removed from the ranking.
+	 * Does nothing by default.
+	 * @param entry the entry evicted.
+	 */
+	protected void evicted(Entry entry)
+	{
+		// Do nothing.
+	}
+	
+	@Override
+	public void bufferAdded(OALSoundResource resource, int size)
+	{
+		Entry e = new Entry(resource, size);
+		e.sequence = sequence++;
+		e.rank = rank(e);
+		entries.put(resource, e);
+		ranking.add(e);
+	}
+
+	@Override
+	public void bufferAccessed(OALSoundResource resource)
+	{
+		Entry e = entries.get(resource);
+		if (e == null)
+			return;
+		ranking.remove(e);
+		e.hits++;
+		e.sequence = sequence++;
+		e.rank = rank(e);
+		ranking.add(e);
+	}
+
+	@Override
+	public void bufferRemoved(OALSoundResource resource, boolean evicted)
+	{
+		Entry e = entries.remove(resource);
+		if (e == null)
+			return;
+		ranking.remove(e);
+		if (evicted)
+			evicted(e);
+	}
+
+	@Override
+	public Iterator<OALSoundResource> evictionOrder()
+	{
+		final Iterator<Entry> it = ranking.iterator();
+		return new Iterator<OALSoundResource>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return it.hasNext();
+			}
+
+			@Override
+			public OALSoundResource next()
+			{
+				return it.next().resource;
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException("Eviction order can't be changed.");
+			}
+		};
+	}
+
+	@Override
+	public void clear()
+	{
+		entries.clear();
+		ranking.clear();
+	}
+
+	/**
+	 * A ranked cache entry.
+	 */
+	protected static class Entry
+	{
+		/** The cached resource. */
+		protected final OALSoundResource resource;
+		/** The buffer size in bytes. */
+		protected final int size;
+		/** The amount of cache hits since the buffer was added. */
+		protected int hits;
+		/** The current rank. */
+		protected double rank;
+		/** Add/access sequence, for breaking ties. */
+		protected long sequence;
+		
+		Entry(OALSoundResource resource, int size)
+		{
+			this.resource = resource;
+			this.size = size;
+			this.hits = 0;
+		}
+		
+		/**
+		 * Gets the cached resource.
+		 */
+		public OALSoundResource getResource()
+		{
+			return resource;
+		}
+		
+		/**
+		 * Gets the buffer size in bytes.
+		 */
+		public int getSize()
+		{
+			return size;
+		}
+		
+		/**
+		 * Gets the amount of cache hits since the buffer was added.
+		 */
+		public int getHits()
+		{
+			return hits;
+		}
+		
+		/**
+		 * Gets the current rank.
+		 */
+		public double getRank()
+		{
+			return rank;
+		}
+		
+	}
+	
+}
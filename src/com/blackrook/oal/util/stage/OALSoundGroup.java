@@ -7,16 +7,24 @@
  ******************************************************************************/
 package com.blackrook.oal.util.stage;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * A sound group for OALSoundStage2D.
  * Sounds played within this group apply this group's gain and pitch characteristics
  * combined with the sound's characteristics.
  * <p>
  * These can also set a parent group that influences the gain and pitch of lower groups.
+ * <p>
+ * The combined biases are cached, and only worked out again after a bias or parent
+ * of any group changes.
  * @author Matthew Tropiano
  */
 public class OALSoundGroup
 {
+	/** Bumped every time a bias or parent of any group changes. */
+	private static final AtomicLong BIAS_VERSION = new AtomicLong(0L);
+	
 	/** Parent group. */
 	private OALSoundGroup parent;
 	
@@ -28,6 +36,13 @@ public class OALSoundGroup
 	private boolean relative;
 	/** Maximum amount of voices to use in this group. */
 	private int maxVoices;
+	
+	/** Gain bias combined with the parents' gain biases. */
+	private float cachedGainBias;
+	/** Pitch bias combined with the parents' pitch biases. */
+	private float cachedPitchBias;
+	/** Bias version that the cached biases were worked out at (-1 = never). */
+	private long cachedVersion;
 
 	public OALSoundGroup()
 	{
@@ -41,6 +56,7 @@ public class OALSoundGroup
 		pitchBias = 1f;
 		maxVoices = 0;
 		relative = true;
+		cachedVersion = -1L;
 	}
 	
 	/**
@@ -49,6 +65,7 @@ public class OALSoundGroup
 	public void setParent(OALSoundGroup parent)
 	{
 		this.parent = parent;
+		BIAS_VERSION.incrementAndGet();
 	}
 	
 	/**
@@ -56,7 +73,9 @@ public class OALSoundGroup
 	 */
 	public float getGainBias()
 	{
-		return (parent != null ? parent.getGainBias() : 1f) * gainBias;
+		if (cachedVersion != BIAS_VERSION.get())
+			updateCachedBias();
+		return cachedGainBias;
 	}
 
 	/**
@@ -65,6 +84,7 @@ public class OALSoundGroup
 	public void setGainBias(float gainBias)
 	{
 		this.gainBias = gainBias;
+		BIAS_VERSION.incrementAndGet();
 	}
 
 	/**
@@ -72,7 +92,9 @@ public class OALSoundGroup
 	 */
 	public float getPitchBias()
 	{
-		return (parent != null ? parent.getPitchBias() : 1f) * pitchBias;
+		if (cachedVersion != BIAS_VERSION.get())
+			updateCachedBias();
+		return cachedPitchBias;
 	}
 
 	/**
@@ -81,6 +103,26 @@ public class OALSoundGroup
 	public void setPitchBias(float pitchBias)
 	{
 		this.pitchBias = pitchBias;
+		BIAS_VERSION.incrementAndGet();
+	}
+
+	/**
+	 * Works out the combined biases from this group and its parents.
+	 */
+	private void updateCachedBias()
+	{
+		// read first, so a change made while this runs leaves the cache out of date.
+		long version = BIAS_VERSION.get();
+		float gain = gainBias;
+		float pitch = pitchBias;
+		for (OALSoundGroup g = parent; g != null; g = g.parent)
+		{
+			gain *= g.gainBias;
+			pitch *= g.pitchBias;
+		}
+		cachedGainBias = gain;
+		cachedPitchBias = pitch;
+		cachedVersion = version;
 	}
 
 	/** 
@@ -10,8 +10,23 @@ package com.blackrook.oal.util.stage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -19,14 +34,12 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import com.blackrook.commons.hash.HashMap;
-import com.blackrook.commons.hash.HashedQueueMap;
 import com.blackrook.commons.linkedlist.Queue;
 import com.blackrook.commons.list.List;
 import com.blackrook.commons.math.RMath;
 import com.blackrook.commons.math.geometry.Point3F;
 import com.blackrook.commons.math.geometry.Vect3F;
 import com.blackrook.oal.OALBuffer;
-import com.blackrook.oal.OALListener;
 import com.blackrook.oal.OALSystem;
 import com.blackrook.oal.OALSource;
 import com.blackrook.oal.OALSourceListener;
@@ -34,7 +47,17 @@ import com.blackrook.oal.JSPISoundHandle;
 import com.blackrook.oal.enums.DistanceModel;
 import com.blackrook.oal.exception.SoundException;
 import com.blackrook.oal.util.OALBufferCache;
+import com.blackrook.oal.util.OALBufferCachePolicy;
 import com.blackrook.oal.util.OALSoundResource;
+import com.blackrook.oal.util.OALStreamHeadCache;
+import com.blackrook.oal.util.OALStreamingPolicy;
+import com.blackrook.oal.util.PCMRingBuffer;
+import com.blackrook.oal.util.PCMSeekCache;
+import com.blackrook.oal.util.RingQueue;
+import com.blackrook.oal.util.backend.OALBackend;
+import com.blackrook.oal.util.backend.OALBackendBuffer;
+import com.blackrook.oal.util.backend.OALBackendSource;
+import com.blackrook.oal.util.backend.OALSystemBackend;
 
 /**
  * A sound stage that holds a series of environmental characteristics.
@@ -51,6 +74,29 @@ import com.blackrook.oal.util.OALSoundResource;
  */
 public class OALSoundStage<T extends Object>
 {
+	/** Default capacity of the incoming event queue. */
+	public static final int DEFAULT_EVENT_QUEUE_CAPACITY = 1024;
+	/** Default length of the decoded beginnings of streams kept in memory, in milliseconds. */
+	public static final int DEFAULT_STREAM_HEAD_MILLIS = 2000;
+	/** Default maximum amount of bytes used for decoded beginnings of streams. */
+	public static final long DEFAULT_STREAM_HEAD_BYTES = 8L * 1024L * 1024L;
+	/** Default maximum amount of bytes of a looping stream's loop region kept in memory. */
+	public static final int DEFAULT_STREAM_LOOP_BYTES = 16 * 1024 * 1024;
+	/** Default maximum amount of bytes of recently decoded data kept in memory for each stream, for seeking back. */
+	public static final int DEFAULT_STREAM_SEEK_BYTES = 4 * 1024 * 1024;
+	/** Default smallest change in a voice parameter that is sent to its source. */
+	public static final float DEFAULT_PARAMETER_EPSILON = 0.0001f;
+	/** Default maximum amount of virtual voices. */
+	public static final int DEFAULT_MAX_VIRTUAL_VOICES = 1024;
+	/** Maximum amount of virtual voices promoted per voice update. */
+	public static final int MAX_PROMOTIONS_PER_UPDATE = 4;
+	/** How much louder a virtual voice must be than a real voice to take its source. */
+	public static final float PROMOTION_GAIN_MARGIN = 1.5f;
+	/** Amount of chunks that streams decode ahead of playback. */
+	public static final int STREAM_DECODE_AHEAD = 4;
+	/** Channel value for "no channel" on events and voices. */
+	public static final int NO_CHANNEL = Integer.MIN_VALUE;
+	
 	/**
 	 * Panning type for event type.
 	 */
@@ -61,7 +107,8 @@ public class OALSoundStage<T extends Object>
 		STOP_ALL,
 		PAUSE,
 		RESUME,
-		PRECACHE
+		PRECACHE,
+		SEEK
 	}
 
 	/**
@@ -75,10 +122,45 @@ public class OALSoundStage<T extends Object>
 		LISTENER_FRONT;
 	}
 	
-	/** Reference to Sound System. */
-	private OALSystem soundSystemRef;
+	/**
+	 * Policy for events added when the incoming event queue is full.
+	 */
+	public static enum EventOverflowPolicy
+	{
+		/** 
+		 * Events are held past the queue's capacity, and on the next event update,
+		 * the lowest priority PLAY events are dropped until the amount of events
+		 * is back within the queue's capacity. Other events are never dropped. 
+		 */
+		DROP_LOWEST_PRIORITY,
+		/** 
+		 * The thread adding the event waits until the queue has room, and until events
+		 * held past the queue's capacity are processed, so that it can't pass them.
+		 * The thread that updates the events never waits, and holds events past the
+		 * queue's capacity instead. A waiting thread gets an {@link IllegalStateException}
+		 * if the stage is shut down.
+		 */
+		BLOCK,
+		/** Events are held past the queue's capacity. Nothing is dropped. */
+		GROW;
+	}
+	
+	/** Reference to the backend that sources and buffers are created through. */
+	private OALBackend backend;
 	/** Reference to model. */
 	private OALSoundStageObjectModel<T> soundModel;
+	/** The sound model, if it can read many objects at once, or null. */
+	private OALSoundStageBulkObjectModel<T> bulkModel;
+	/** Voices waiting on a bulk read. */
+	private Queue<Voice> bulkVoices;
+	/** Objects for a bulk read. */
+	private ArrayList<T> bulkObjects;
+	/** Positions from the last bulk read. */
+	private float[] bulkPositions;
+	/** Velocities from the last bulk read. */
+	private float[] bulkVelocities;
+	/** Directions from the last bulk read. */
+	private float[] bulkDirections;
 	
 	// Virtual Layers =============================
 	
@@ -94,24 +176,99 @@ public class OALSoundStage<T extends Object>
 
 	/** List of streams. */
 	private Queue<SourceStreamer> streams;
-	/** Lookup of "primed" streams. */
-	private HashMap<OALSoundResource, SourceStreamer> primedStreams;
+	/** Decoded beginnings of "primed" streams. */
+	private OALStreamHeadCache streamHeadCache;
+	/** Length of the stream beginnings to decode when priming, in milliseconds. */
+	private int streamHeadMillis;
+	/** Buffering used for streams whose resources do not specify one. */
+	private volatile OALStreamingPolicy streamingPolicy;
+	/** Maximum amount of bytes of a looping stream's loop region kept in memory. */
+	private int streamLoopBytes;
+	/** Maximum amount of bytes of recently decoded data kept in memory for each stream. */
+	private int streamSeekBytes;
+	/** Background thread that decodes stream data, started on first use. */
+	private StreamDecoderThread streamDecoder;
+	/** Amount of stream updates that could not refill a buffer. */
+	private long streamUnderruns;
+	/** Amount of bytes of PCM data decoded, on any thread. */
+	private AtomicLong decodedBytes;
+	/** Amount of loop passes that reopened a stream's decoder, on the decoder thread. */
+	private AtomicLong loopRedecodes;
+	
+	/** Grid of object positions for culling, or null if not used. */
+	private OALSoundStageSpatialIndex<T> spatialIndex;
+	/** Amount of play events culled by the spatial index. */
+	private long culledPlays;
+	/** Amount of voice updates skipped by the spatial index. */
+	private long culledVoiceUpdates;
 	/** List of events to process to next event update. */
-	private Queue<StageEvent> eventsToProcess;
+	private RingQueue<StageEvent> eventsToProcess;
+	/** List of events added past the capacity of the event queue. */
+	private ConcurrentLinkedQueue<StageEvent> eventOverflow;
+	/** Amount of events in the overflow list. */
+	private AtomicInteger eventOverflowCount;
+	/** What to do with events added past the capacity of the event queue. */
+	private volatile EventOverflowPolicy eventOverflowPolicy;
+	/** The last thread that processed events. */
+	private volatile Thread eventThread;
 	/** List of events to process that couldn't be processed. */
 	private Queue<StageEvent> processDelay;
+	/** Pool of processed events for reuse. */
+	private RingQueue<StageEvent> eventPool;
+	/** Events drained for processing on the current event update. */
+	private StageEvent[] eventBatch;
+	/** Priorities of the events that can be dropped from the event batch, sorted on overflow. */
+	private float[] dropPriorities;
+	/** Amount of events added past the capacity of the event queue. */
+	private AtomicLong eventsOverflowed;
+	/** Amount of events dropped due to queue overflow. */
+	private AtomicLong eventsDropped;
+	/** Amount of events handled. */
+	private long eventsProcessed;
+	/** Amount of play events put off to the next event update. */
+	private long eventsDelayed;
 
-	/** Queue of used voices. */
-	private Queue<Voice> usedVoices;
+	/** List of used voices. */
+	private VoiceList usedVoices;
 	/** Queue of dead voices. */
 	private Queue<Voice> deadVoices;
-	/** Queue of available voices. */
-	private Queue<Voice> freeVoices;
+	/** List of available voices. */
+	private VoiceList freeVoices;
+	/** Looping sounds being tracked without a source, or null if virtual voices are off. */
+	private Queue<VirtualVoice> virtualVoices;
+	/** Maximum amount of virtual voices. */
+	private int maxVirtualVoices;
+	/** Amount of virtual voices given a source. */
+	private long virtualPromotions;
+	/** Amount of voices that lost their source to a virtual voice or for being too far away. */
+	private long virtualDemotions;
+	/** Used voices by how important they are, or null if voices are not stolen. */
+	private VoiceHeap voiceHeap;
+	/** Amount of voices stolen for more important sounds. */
+	private long stolenVoices;
+	/** Amount of voices taken from the free voices. */
+	private long acquiredVoices;
+	/** Amount of voices returned to the free voices after their sounds stopped. */
+	private long recycledVoices;
 	
 	// Buffer Cache =============================
 
 	/** Buffer cache. */
 	private OALBufferCache bufferCache;
+	/** Executor for decoding sounds in the background (null = decode on the update thread). */
+	private volatile Executor loadExecutor;
+	/** Nanoseconds that a PLAY event waits for a background load before it is dropped (0 = forever). */
+	private long loadDeadlineNanos;
+	/** Background loads in progress, by resource. */
+	private HashMap<OALSoundResource, SoundLoader> pendingLoads;
+	/** Background loads that have finished decoding. */
+	private ConcurrentLinkedQueue<SoundLoader> finishedLoads;
+	/** Pool for bulk precaching, created on first use. */
+	private ForkJoinPool cachePool;
+	/** Bulk precaches started since the last update. */
+	private ConcurrentLinkedQueue<CacheBatch> newCacheBatches;
+	/** Bulk precaches in progress. */
+	private Queue<CacheBatch> cacheBatches;
 
 	// Playback Coefficients ====================
 	
@@ -136,11 +293,11 @@ public class OALSoundStage<T extends Object>
 	// State Objects ============================
 	
 	/** Sound to voice table. */
-	private HashedQueueMap<OALSoundResource, Voice> soundsToVoice;
+	private HashMap<OALSoundResource, VoiceList> soundsToVoice;
 	/** Group to voice table. */
-	private HashedQueueMap<OALSoundGroup, Voice> groupsToVoice; 
+	private HashMap<OALSoundGroup, VoiceList> groupsToVoice; 
 	/** Object to voice table. */
-	private HashedQueueMap<T, Voice> objectsToVoice; 
+	private HashMap<T, VoiceList> objectsToVoice; 
 	
 	/** Is this paused? */
 	private boolean allPaused;
@@ -155,6 +312,29 @@ public class OALSoundStage<T extends Object>
 	private long updateVoiceNanos;
 	/** Update nanos - streams. */
 	private long updateStreamNanos;
+	/** Update histograms and counters, or null if not kept. */
+	private OALSoundStageMetrics metrics;
+	/** Counter totals passed to the metrics, indexed by counter. */
+	private long[] metricTotals;
+	/** Receives phase timings and costly operations, or null if none. */
+	private volatile OALSoundStageProfiler profiler;
+	
+	/** Source states by voice id, as of the last snapshot. */
+	private byte[] sourceStates;
+	/** Amount of source state queries made by the last snapshot. */
+	private int sourceStateQueries;
+	/** Amount of source state queries made since this stage was created. */
+	private long totalSourceStateQueries;
+	/** Is update() in progress? */
+	private boolean updating;
+	/** Has this stage been shut down? */
+	private volatile boolean shutDown;
+	/** Smallest change in a voice parameter that is sent to its source. */
+	private float parameterEpsilon;
+	/** Amount of voice parameters sent to sources. */
+	private long sentParameterUpdates;
+	/** Amount of voice parameters not sent to sources because they did not change. */
+	private long skippedParameterUpdates;
 	
 	/** Listener placed on all sources. */
 	private OALSourceListener SOURCE_LISTENER = new OALSourceListener()
@@ -198,6 +378,13 @@ public class OALSoundStage<T extends Object>
 	
 	/** Current voice id. */
 	private int currentVoiceId = 0;
+	
+	/** Source state: stopped, or initial. */
+	private static final byte SOURCE_STOPPED = 0;
+	/** Source state: playing. */
+	private static final byte SOURCE_PLAYING = 1;
+	/** Source state: paused. */
+	private static final byte SOURCE_PAUSED = 2;
 
 		
 	/**
@@ -209,27 +396,121 @@ public class OALSoundStage<T extends Object>
 	 * @throws IllegalArgumentException if numVoices is less than 1.
 	 */
 	public OALSoundStage(OALSystem sys, OALSoundStageObjectModel<T> model, int numVoices, int maxCacheBytes)
+	{
+		this(new OALSystemBackend(sys), model, numVoices, maxCacheBytes, DEFAULT_EVENT_QUEUE_CAPACITY, EventOverflowPolicy.GROW);
+	}
+	
+	/**
+	 * Creates a new OALSoundStage2D with UP TO numVoices
+	 * voices, as some sound cards may not support that many.
+	 * @param sys			reference to OALSoundSystem.
+	 * @param numVoices		amount of desired voices.
+	 * @param maxCacheBytes	the maximum amount of bytes used for buffer caching (0 or less = no limit).
+	 * @param eventQueueCapacity the amount of events that can be pending between event updates
+	 * 						before the overflow policy applies (rounded up to a power of two).
+	 * @param overflowPolicy what to do with events added when the event queue is full.
+	 * @throws IllegalArgumentException if numVoices or eventQueueCapacity is less than 1.
+	 */
+	public OALSoundStage(OALSystem sys, OALSoundStageObjectModel<T> model, int numVoices, int maxCacheBytes, 
+		int eventQueueCapacity, EventOverflowPolicy overflowPolicy)
+	{
+		this(new OALSystemBackend(sys), model, numVoices, maxCacheBytes, eventQueueCapacity, overflowPolicy);
+	}
+	
+	/**
+	 * Creates a new OALSoundStage2D that plays through a backend, with numVoices voices.
+	 * @param backend		the backend to play through, like a {@link com.blackrook.oal.util.backend.SimulatedBackend}.
+	 * @param numVoices		amount of desired voices.
+	 * @param maxCacheBytes	the maximum amount of bytes used for buffer caching (0 or less = no limit).
+	 * @throws IllegalArgumentException if numVoices is less than 1.
+	 */
+	public OALSoundStage(OALBackend backend, OALSoundStageObjectModel<T> model, int numVoices, int maxCacheBytes)
+	{
+		this(backend, model, numVoices, maxCacheBytes, DEFAULT_EVENT_QUEUE_CAPACITY, EventOverflowPolicy.GROW);
+	}
+	
+	/**
+	 * Creates a new OALSoundStage2D that plays through a backend, with UP TO numVoices
+	 * voices, as some sound cards may not support that many.
+	 * @param backend		the backend to play through, like a {@link com.blackrook.oal.util.backend.SimulatedBackend}.
+	 * @param numVoices		amount of desired voices.
+	 * @param maxCacheBytes	the maximum amount of bytes used for buffer caching (0 or less = no limit).
+	 * @param eventQueueCapacity the amount of events that can be pending between event updates
+	 * 						before the overflow policy applies (rounded up to a power of two).
+	 * @param overflowPolicy what to do with events added when the event queue is full.
+	 * @throws IllegalArgumentException if numVoices or eventQueueCapacity is less than 1.
+	 */
+	@SuppressWarnings("unchecked")
+	public OALSoundStage(OALBackend backend, OALSoundStageObjectModel<T> model, int numVoices, int maxCacheBytes, 
+		int eventQueueCapacity, EventOverflowPolicy overflowPolicy)
 	{
 		if (numVoices < 1)
 			throw new IllegalArgumentException("The number of voices can't be less than 1.");
+		if (eventQueueCapacity < 1)
+			throw new IllegalArgumentException("The event queue capacity can't be less than 1.");
 		
 		random = new Random();
-		soundSystemRef = sys;
+		this.backend = backend;
 		soundModel = model;
+		bulkModel = model instanceof OALSoundStageBulkObjectModel ? (OALSoundStageBulkObjectModel<T>)model : null;
+		bulkVoices = new Queue<Voice>();
+		bulkObjects = new ArrayList<T>();
+		bulkPositions = new float[numVoices * 3];
+		bulkVelocities = new float[numVoices * 3];
+		bulkDirections = new float[numVoices * 3];
 		bufferCache = new OALBufferCache(maxCacheBytes);
 		listeners = new List<OALSoundStageListener>(2);
 		updateHooks = new List<OALSoundStageUpdateHook>(2);
-		soundsToVoice = new HashedQueueMap<OALSoundResource, Voice>(numVoices);
-		groupsToVoice = new HashedQueueMap<OALSoundGroup, Voice>(numVoices);
-		objectsToVoice = new HashedQueueMap<T, Voice>(numVoices);
+		soundsToVoice = new HashMap<OALSoundResource, VoiceList>(numVoices);
+		groupsToVoice = new HashMap<OALSoundGroup, VoiceList>(numVoices);
+		objectsToVoice = new HashMap<T, VoiceList>(numVoices);
 		
-		primedStreams = new HashMap<OALSoundResource, SourceStreamer>(3);
+		loadExecutor = null;
+		loadDeadlineNanos = 0L;
+		pendingLoads = new HashMap<OALSoundResource, SoundLoader>(8);
+		finishedLoads = new ConcurrentLinkedQueue<SoundLoader>();
+		cachePool = null;
+		newCacheBatches = new ConcurrentLinkedQueue<CacheBatch>();
+		cacheBatches = new Queue<CacheBatch>();
+		streamHeadCache = new OALStreamHeadCache(DEFAULT_STREAM_HEAD_BYTES);
+		streamHeadMillis = DEFAULT_STREAM_HEAD_MILLIS;
 		streams = new Queue<SourceStreamer>();
-		eventsToProcess = new Queue<StageEvent>();
+		streamingPolicy = new OALStreamingPolicy();
+		streamLoopBytes = DEFAULT_STREAM_LOOP_BYTES;
+		streamSeekBytes = DEFAULT_STREAM_SEEK_BYTES;
+		streamDecoder = null;
+		streamUnderruns = 0L;
+		decodedBytes = new AtomicLong(0L);
+		loopRedecodes = new AtomicLong(0L);
+		spatialIndex = null;
+		culledPlays = 0L;
+		culledVoiceUpdates = 0L;
+		eventsToProcess = new RingQueue<StageEvent>(eventQueueCapacity);
+		eventOverflow = new ConcurrentLinkedQueue<StageEvent>();
+		eventOverflowCount = new AtomicInteger(0);
+		eventOverflowPolicy = overflowPolicy;
 		processDelay = new Queue<StageEvent>();
-		usedVoices = new Queue<Voice>();
-		freeVoices = new Queue<Voice>();
+		eventPool = new RingQueue<StageEvent>(eventQueueCapacity);
+		eventBatch = newEventArray(eventsToProcess.capacity());
+		dropPriorities = new float[eventBatch.length];
+		eventsOverflowed = new AtomicLong(0L);
+		eventsDropped = new AtomicLong(0L);
+		eventsProcessed = 0L;
+		eventsDelayed = 0L;
+		usedVoices = new VoiceList(VoiceList.LINK_STATE);
+		freeVoices = new VoiceList(VoiceList.LINK_STATE);
 		deadVoices = new Queue<Voice>();
+		virtualVoices = null;
+		maxVirtualVoices = DEFAULT_MAX_VIRTUAL_VOICES;
+		virtualPromotions = 0L;
+		virtualDemotions = 0L;
+		voiceHeap = null;
+		stolenVoices = 0L;
+		acquiredVoices = 0L;
+		recycledVoices = 0L;
+		metrics = null;
+		metricTotals = new long[OALSoundStageMetrics.Counter.values().length];
+		profiler = null;
 		
 		sourceNoPan = NoPanType.LISTENER;
 		listenerGain = 1.0f;
@@ -246,12 +527,22 @@ public class OALSoundStage<T extends Object>
 		try {
 			for (int i = 0; i < numVoices; i++)
 			{
-				OALSource s = soundSystemRef.createSource();
-				s.addSourceListener(SOURCE_LISTENER);
+				OALBackendSource s = backend.createSource();
+				OALSource oal = OALSystemBackend.getOALSource(s);
+				if (oal != null)
+					oal.addSourceListener(SOURCE_LISTENER);
 				Voice v = new Voice(s, this);
 				freeVoices.add(v);
 			}
 		} catch (SoundException e) {}
+		sourceStates = new byte[currentVoiceId];
+		sourceStateQueries = 0;
+		totalSourceStateQueries = 0L;
+		updating = false;
+		shutDown = false;
+		parameterEpsilon = DEFAULT_PARAMETER_EPSILON;
+		sentParameterUpdates = 0L;
+		skippedParameterUpdates = 0L;
 	}
 	
 	/**
@@ -286,6 +577,228 @@ public class OALSoundStage<T extends Object>
 		return updateHooks.remove(hook);
 	}
 	
+	/**
+	 * Sets what to do with events added when the event queue is full.
+	 * @param overflowPolicy the policy to use.
+	 */
+	public void setEventOverflowPolicy(EventOverflowPolicy overflowPolicy)
+	{
+		eventOverflowPolicy = overflowPolicy;
+	}
+	
+	/**
+	 * Gets what to do with events added when the event queue is full.
+	 */
+	public EventOverflowPolicy getEventOverflowPolicy()
+	{
+		return eventOverflowPolicy;
+	}
+	
+	/**
+	 * Gets the buffer cache used by this stage, for reading its statistics.
+	 * Do not add or remove buffers from it directly.
+	 */
+	public OALBufferCache getBufferCache()
+	{
+		return bufferCache;
+	}
+	
+	/**
+	 * Sets the eviction policy used by this stage's buffer cache.
+	 * @param policy the policy to use.
+	 * @throws NullPointerException if policy is null.
+	 * @see com.blackrook.oal.util.cache
+	 */
+	public void setBufferCachePolicy(OALBufferCachePolicy policy)
+	{
+		bufferCache.setPolicy(policy);
+	}
+	
+	/**
+	 * Sets the executor to use for loading sounds that are played but not cached.
+	 * <p>
+	 * If set, a non-streaming sound that is played but not in the buffer cache
+	 * is decoded on the executor, and the PLAY event waits until the next event update 
+	 * after decoding finishes. Only the upload of the decoded data to a buffer happens
+	 * on the thread that updates this stage. If null (the default), uncached sounds 
+	 * are decoded on the thread that updates this stage before they are played.
+	 * <p>
+	 * {@link #getSoundDataForResource(OALSoundResource)} and 
+	 * {@link #openStreamForAudio(OALSoundResource)} are called from the executor's
+	 * threads if this is set, so any overrides of them must be thread-safe.
+	 * @param executor the executor to use, or null to load on the update thread.
+	 */
+	public void setLoadExecutor(Executor executor)
+	{
+		loadExecutor = executor;
+	}
+	
+	/**
+	 * Gets the executor used for loading sounds that are played but not cached,
+	 * or null if they are loaded on the thread that updates this stage.
+	 */
+	public Executor getLoadExecutor()
+	{
+		return loadExecutor;
+	}
+	
+	/**
+	 * Gets the cache of decoded stream beginnings used by this stage, for reading its statistics
+	 * or changing its size. Do not add or remove heads from it directly.
+	 */
+	public OALStreamHeadCache getStreamHeadCache()
+	{
+		return streamHeadCache;
+	}
+	
+	/**
+	 * Gets how much of the beginning of a stream is decoded and kept
+	 * in memory when it is primed with {@link #cacheSounds(OALSoundResource...)}, in milliseconds.
+	 */
+	public int getStreamHeadLength()
+	{
+		return streamHeadMillis;
+	}
+	
+	/**
+	 * Sets how much of the beginning of a stream is decoded and kept
+	 * in memory when it is primed with {@link #cacheSounds(OALSoundResource...)}, in milliseconds.
+	 * This affects streams primed after this is called.
+	 * @param millis the length in milliseconds.
+	 * @throws IllegalArgumentException if millis is less than 1.
+	 */
+	public void setStreamHeadLength(int millis)
+	{
+		if (millis < 1)
+			throw new IllegalArgumentException("Head length can't be less than 1 millisecond.");
+		streamHeadMillis = millis;
+	}
+	
+	/**
+	 * Gets the maximum amount of bytes of a looping stream's loop region 
+	 * that is kept in memory after the first pass.
+	 */
+	public int getStreamLoopCacheBytes()
+	{
+		return streamLoopBytes;
+	}
+	
+	/**
+	 * Sets the maximum amount of bytes of a looping stream's loop region 
+	 * that is kept in memory after the first pass, for each stream.
+	 * If the whole region fits, the stream loops without decoding again.
+	 * If not, the start of the region is played from memory while the
+	 * decoder catches up in the background, unless the rest is still in
+	 * the seek cache. Catching up reopens the decoder and decodes from the start
+	 * of the sound again on every pass, which is counted by {@link #getStreamLoopRedecodeCount()}
+	 * and reported by {@link OALSoundStageListener#soundStreamLoopRedecoded(OALSoundResource, int)}.
+	 * This affects streams started after this is called.
+	 * @param bytes the amount of bytes (0 or less = none).
+	 * @see OALSoundResource#getLoopStart()
+	 * @see OALSoundResource#getLoopEnd()
+	 */
+	public void setStreamLoopCacheBytes(int bytes)
+	{
+		streamLoopBytes = Math.max(0, bytes);
+	}
+	
+	/**
+	 * Gets the maximum amount of bytes of recently decoded data 
+	 * that is kept in memory for each stream.
+	 */
+	public int getStreamSeekCacheBytes()
+	{
+		return streamSeekBytes;
+	}
+	
+	/**
+	 * Sets the maximum amount of bytes of recently decoded data 
+	 * that is kept in memory for each stream.
+	 * Seeking back into it, or looping back to it, continues from memory
+	 * instead of reopening the decoder and decoding from the start of the sound again.
+	 * This affects streams started after this is called.
+	 * @param bytes the amount of bytes (0 or less = none).
+	 * @see #seekObject(Object, int, long)
+	 */
+	public void setStreamSeekCacheBytes(int bytes)
+	{
+		streamSeekBytes = Math.max(0, bytes);
+	}
+	
+	/**
+	 * Gets the spatial index used for culling sounds that are too far away
+	 * to be heard, or null if one is not used.
+	 */
+	public OALSoundStageSpatialIndex<T> getSpatialIndex()
+	{
+		return spatialIndex;
+	}
+	
+	/**
+	 * Sets the spatial index used for culling sounds that are too far away
+	 * to be heard. If set, play events and voice updates for objects whose grid cells are 
+	 * entirely past the sound's maximum attenuation distance are skipped without
+	 * reading the object's position, and voices that are skipped keep their last position.
+	 * If null (the default), distances are always read from the object model.
+	 * Should only be called from the thread that updates this stage.
+	 * @param index the index to use, or null for none.
+	 */
+	public void setSpatialIndex(OALSoundStageSpatialIndex<T> index)
+	{
+		spatialIndex = index;
+	}
+	
+	/**
+	 * Gets the amount of play events culled for being too far away while a spatial index was set,
+	 * since this stage was created.
+	 */
+	public long getCulledPlayCount()
+	{
+		return culledPlays;
+	}
+	
+	/**
+	 * Gets the amount of voice updates skipped by the spatial index since this stage was created.
+	 */
+	public long getCulledVoiceUpdateCount()
+	{
+		return culledVoiceUpdates;
+	}
+	
+	/**
+	 * Gets the buffering used for streams whose resources do not specify one.
+	 * @see OALSoundResource#getStreamingPolicy()
+	 */
+	public OALStreamingPolicy getStreamingPolicy()
+	{
+		return streamingPolicy;
+	}
+	
+	/**
+	 * Sets the buffering used for streams whose resources do not specify one.
+	 * This affects streams started after this is called.
+	 * @param policy the new policy.
+	 * @throws NullPointerException if policy is null.
+	 * @see OALSoundResource#getStreamingPolicy()
+	 */
+	public void setStreamingPolicy(OALStreamingPolicy policy)
+	{
+		if (policy == null)
+			throw new NullPointerException("Policy can't be null.");
+		streamingPolicy = policy;
+	}
+	
+	/**
+	 * Sets how long a PLAY event waits for its sound to be loaded in the background
+	 * before it is dropped. Only applies if a load executor is set.
+	 * @param millis the amount of milliseconds, or 0 or less to wait forever.
+	 * @see #setLoadExecutor(Executor)
+	 */
+	public void setLoadDeadline(long millis)
+	{
+		loadDeadlineNanos = millis > 0L ? TimeUnit.MILLISECONDS.toNanos(millis) : 0L;
+	}
+	
 	/**
 	 * Sets the underlying distance attenuation model for this
 	 * stage. Sets it on the underlying system.
@@ -293,7 +806,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void setDistanceModel(DistanceModel distanceModel)
 	{
-		soundSystemRef.setDistanceModel(distanceModel);
+		backend.setDistanceModel(distanceModel);
 	}
 	
 	/**
@@ -301,7 +814,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void setSpeedOfSound(float speed)
 	{
-		soundSystemRef.setSpeedOfSound(speed);
+		backend.setSpeedOfSound(speed);
 	}
 	
 	/**
@@ -310,7 +823,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void setDopplerFactor(float factor)
 	{
-		soundSystemRef.setDopplerFactor(factor);
+		backend.setDopplerFactor(factor);
 	}
 	
 	/**
@@ -522,10 +1035,12 @@ public class OALSoundStage<T extends Object>
 	 * @param channel the object's virtual channel.
 	 * @param gain the initial gain (overrides resource's initial gain, but not variance).
 	 * @param pitch the initial pitch (overrides resource's initial pitch, but not variance).
+	 * @throws IllegalStateException if this stage has been shut down.
 	 */
 	public void play(OALSoundResource resource, OALSoundGroup group, T object, int channel, float gain, float pitch)
 	{
-		StageEvent sn = new StageEvent();
+		checkNotShutDown();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.PLAY;
 		sn.resource = resource;
 		sn.object = object;
@@ -542,7 +1057,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void stopSound(OALSoundResource resource)
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.STOP;
 		sn.resource = resource;
 		enqueueEvent(sn);
@@ -554,7 +1069,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void stopObject(T object)
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.STOP;
 		sn.object = object;
 		enqueueEvent(sn);
@@ -567,7 +1082,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void stopObject(T object, int channel)
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.STOP;
 		sn.object = object;
 		sn.channel = channel;
@@ -580,7 +1095,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void stopGroup(OALSoundGroup group)
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.STOP;
 		sn.group = group;
 		enqueueEvent(sn);
@@ -591,17 +1106,55 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void stopAll()
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.STOP_ALL;
 		enqueueEvent(sn);
 	}
 
+	/**
+	 * Moves playback of a streamed sound playing on an object to a sample frame.
+	 * Does nothing if the sound on that channel is not streamed.
+	 * If the frame is past the end of the sound, it stops (unless it loops, 
+	 * in which case it starts over).
+	 * @param object	the object source.
+	 * @param channel	the object's virtual channel.
+	 * @param frame		the sample frame to play from, from the start of the sound.
+	 */
+	public void seekObject(T object, int channel, long frame)
+	{
+		StageEvent sn = acquireEvent();
+		sn.type = EventType.SEEK;
+		sn.object = object;
+		sn.channel = channel;
+		sn.position = frame;
+		enqueueEvent(sn);
+	}
+
+	/**
+	 * Moves playback of a streamed sound playing on an object to a time in milliseconds.
+	 * Does nothing if the sound on that channel is not streamed.
+	 * @param object	the object source.
+	 * @param channel	the object's virtual channel.
+	 * @param millis	the time to play from, in milliseconds from the start of the sound.
+	 * @see #seekObject(Object, int, long)
+	 */
+	public void seekObjectMillis(T object, int channel, long millis)
+	{
+		StageEvent sn = acquireEvent();
+		sn.type = EventType.SEEK;
+		sn.object = object;
+		sn.channel = channel;
+		sn.position = millis;
+		sn.millis = true;
+		enqueueEvent(sn);
+	}
+
 	/**
 	 * Pauses playback of all sounds on an object.
 	 */
 	public void pause(T object)
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.PAUSE;
 		sn.object = object;
 		enqueueEvent(sn);
@@ -612,7 +1165,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void pauseAll()
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.PAUSE;
 		enqueueEvent(sn);
 	}
@@ -630,7 +1183,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void resume(T object)
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.RESUME;
 		sn.object = object;
 		enqueueEvent(sn);
@@ -641,7 +1194,7 @@ public class OALSoundStage<T extends Object>
 	 */
 	public void resumeAll()
 	{
-		StageEvent sn = new StageEvent();
+		StageEvent sn = acquireEvent();
 		sn.type = EventType.RESUME;
 		enqueueEvent(sn);
 	}
@@ -653,14 +1206,54 @@ public class OALSoundStage<T extends Object>
 	 * <p><b>NOTE: If this is called, do not call updateHooks(), 
 	 * updateListener(), updateVoices(), updateStreams(), or updateEvents() 
 	 * in the same tick!</b>
+	 * @throws IllegalStateException if this stage has been shut down.
 	 */
 	public void update()
 	{
-		updateHooks();
-		updateListener();
-		updateEvents();
-		updateStreams();
-		updateVoices();
+		checkNotShutDown();
+		long nanotime = System.nanoTime();
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.phaseStarted(OALSoundStageMetrics.Phase.UPDATE);
+		updating = true;
+		try {
+			snapshotSourceStates();
+			updateHooks();
+			updateListener();
+			updateEvents();
+			updateStreams();
+			updateVoices();
+		} finally {
+			updating = false;
+		}
+		if (metrics != null)
+			metrics.record(OALSoundStageMetrics.Phase.UPDATE, System.nanoTime() - nanotime, getMetricTotals());
+		if (p != null)
+			p.phaseFinished(OALSoundStageMetrics.Phase.UPDATE);
+	}
+	
+	/**
+	 * Reads the state of each used voice's source once, so that
+	 * the rest of the update does not ask OpenAL again. 
+	 * State changes made by this stage are written to the snapshot as they happen.
+	 * Called by update(), or by the other update methods if they are called directly.
+	 */
+	protected void snapshotSourceStates()
+	{
+		int queries = 0;
+		for (Voice voice : usedVoices)
+		{
+			queries++;
+			if (voice.source.isPlaying())
+				sourceStates[voice.id] = SOURCE_PLAYING;
+			else
+			{
+				queries++;
+				sourceStates[voice.id] = voice.source.isPaused() ? SOURCE_PAUSED : SOURCE_STOPPED;
+			}
+		}
+		sourceStateQueries = queries;
+		totalSourceStateQueries += queries;
 	}
 	
 	/**
@@ -672,25 +1265,31 @@ public class OALSoundStage<T extends Object>
 	public void updateListener()
 	{
 		long nanotime = System.nanoTime();
-		OALListener listener = soundSystemRef.getListener();
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.phaseStarted(OALSoundStageMetrics.Phase.LISTENER);
 		if (listenerGainUpdate)
 		{
-			listener.setGain(listenerGain);
+			backend.setListenerGain(listenerGain);
 			listenerGainUpdate = false;
 		}
 		if (listenerOrientationUpdate)
 		{
-			listener.setTop(listenerUp.x, listenerUp.y, listenerUp.z);
-			listener.setFacing(listenerFacing.x, listenerFacing.y, listenerFacing.z);
+			backend.setListenerTop(listenerUp.x, listenerUp.y, listenerUp.z);
+			backend.setListenerFacing(listenerFacing.x, listenerFacing.y, listenerFacing.z);
 			listenerOrientationUpdate = false;
 		}
 		if (listenerPositionUpdate)
 		{
-			listener.setPosition(listenerPosition.x, listenerPosition.y, listenerPosition.z);
-			listener.setVelocity(listenerVelocity.x, listenerVelocity.y, listenerVelocity.z);
+			backend.setListenerPosition(listenerPosition.x, listenerPosition.y, listenerPosition.z);
+			backend.setListenerVelocity(listenerVelocity.x, listenerVelocity.y, listenerVelocity.z);
 			listenerPositionUpdate = false;
 		}
 		updateListenerNanos = System.nanoTime() - nanotime;
+		if (metrics != null)
+			metrics.record(OALSoundStageMetrics.Phase.LISTENER, updateListenerNanos, getMetricTotals());
+		if (p != null)
+			p.phaseFinished(OALSoundStageMetrics.Phase.LISTENER);
 	}
 	
 	/**
@@ -704,17 +1303,35 @@ public class OALSoundStage<T extends Object>
 	public void updateEvents()
 	{
 		long nanotime = System.nanoTime();
-		while (!processDelay.isEmpty())
-			enqueueEvent(processDelay.dequeue());
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.phaseStarted(OALSoundStageMetrics.Phase.EVENTS);
+		if (!updating)
+			snapshotSourceStates();
+		eventThread = Thread.currentThread();
+		updateLoads();
+		int count = drainEvents();
 
-		while (!eventsToProcess.isEmpty())
+		for (int i = 0; i < count; i++)
 		{
-			StageEvent event = dequeueEvent();
+			StageEvent event = eventBatch[i];
+			eventBatch[i] = null;
+			// dropped on overflow.
+			if (event == null)
+				continue;
+			
 			switch (event.type)
 			{
 				case PLAY:
 					if (!handlePlayEvent(event))
+					{
+						eventsDelayed++;
+						// not waiting on a load, so it must always be played.
+						if (p != null && (event.loader == null || event.loader.done))
+							p.eventDelayed(event.resource);
 						processDelay.enqueue(event);
+						continue;
+					}
 					break;
 				case STOP:
 					handleStopEvent(event);
@@ -731,10 +1348,19 @@ public class OALSoundStage<T extends Object>
 				case PRECACHE:
 					handlePrecacheEvent(event);
 					break;
+				case SEEK:
+					handleSeekEvent(event);
+					break;
 			}
+			eventsProcessed++;
+			releaseEvent(event);
 		}
 		cleanUpDeadVoices();
 		updateEventNanos = System.nanoTime() - nanotime;
+		if (metrics != null)
+			metrics.record(OALSoundStageMetrics.Phase.EVENTS, updateEventNanos, getMetricTotals());
+		if (p != null)
+			p.phaseFinished(OALSoundStageMetrics.Phase.EVENTS);
 	}
 	
 	/**
@@ -749,34 +1375,49 @@ public class OALSoundStage<T extends Object>
 	public void updateStreams()
 	{
 		long nanotime = System.nanoTime();
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.phaseStarted(OALSoundStageMetrics.Phase.STREAMS);
+		if (!updating)
+			snapshotSourceStates();
 		Iterator<SourceStreamer> sit = streams.iterator();
 		while (sit.hasNext())
 		{
 			SourceStreamer stream = sit.next();
-			if (!stream.sourceRef.isPlaying() && !stream.sourceRef.isPaused())
+			int redecodes = stream.loopRedecodes;
+			if (redecodes != stream.reportedLoopRedecodes)
 			{
-				for (OALBuffer buf : stream.sourceRef.dequeueAllBuffers())
-				{
-					buf.destroy();
-					fireSoundReleasedEvent(stream.resourceRef, buf);
-				}
-				fireSoundStreamStoppedEvent(stream.resourceRef);
+				stream.reportedLoopRedecodes = redecodes;
+				fireSoundStreamLoopRedecodedEvent(stream.resourceRef, redecodes);
+			}
+			if (!stream.isActive())
+			{
+				closeStream(stream);
 				sit.remove();
 			}
-			else
+			else if (stream.ioException != null)
 			{
-				try {
-					stream.streamUpdate();
-				} catch (IOException e) {
-					fireErrorIO(stream.resourceRef, e);
-					stream.sourceRef.stop();
-				} catch (UnsupportedAudioFileException e) {
-					fireErrorUnsupportedResource(stream.resourceRef, e);
-					stream.sourceRef.stop();
-				}
+				fireErrorIO(stream.resourceRef, stream.ioException);
+				stream.ioException = null;
+				stream.voice.stop();
+			}
+			else if (stream.formatException != null)
+			{
+				fireErrorUnsupportedResource(stream.resourceRef, stream.formatException);
+				stream.formatException = null;
+				stream.voice.stop();
+			}
+			else if (stream.streamUpdate() < 0)
+			{
+				streamUnderruns++;
+				fireSoundStreamUnderrunEvent(stream.resourceRef, stream.underruns);
 			}
 		}
 		updateStreamNanos = System.nanoTime() - nanotime;
+		if (metrics != null)
+			metrics.record(OALSoundStageMetrics.Phase.STREAMS, updateStreamNanos, getMetricTotals());
+		if (p != null)
+			p.phaseFinished(OALSoundStageMetrics.Phase.STREAMS);
 	}
 
 	/**
@@ -790,18 +1431,108 @@ public class OALSoundStage<T extends Object>
 	public void updateVoices()
 	{
 		long nanotime = System.nanoTime();
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.phaseStarted(OALSoundStageMetrics.Phase.VOICES);
+		if (!updating)
+			snapshotSourceStates();
+		Point3F lp = null;
+		if (spatialIndex != null)
+		{
+			spatialIndex.refresh();
+			lp = backend.getListenerPosition();
+		}
+		
 		Iterator<Voice> it = usedVoices.iterator();
 		while (it.hasNext())
 		{
 			Voice voice = it.next();
-			if (voice.source.isPlaying() || voice.source.isPaused())
+			if (!voice.isActive())
+				continue;
+			if (lp != null && voice.isOutOfRange(lp))
+			{
+				if (canDemote(voice))
+				{
+					deadVoices.enqueue(voice);
+					continue;
+				}
+				culledVoiceUpdates++;
+				voice.silence();
+				if (voiceHeap != null)
+				{
+					voice.audibleGain = 0f;
+					voiceHeap.update(voice);
+				}
+				continue;
+			}
+			if (bulkModel != null && voice.group != null && voice.object != null)
+				bulkVoices.enqueue(voice);
+			else
+			{
 				voice.update();
+				if (voice.tooFar && canDemote(voice))
+					deadVoices.enqueue(voice);
+			}
+		}
+		
+		if (!bulkVoices.isEmpty())
+			updateBulkVoices();
+		
+		if (virtualVoices != null)
+		{
+			while (!deadVoices.isEmpty())
+				demoteVoice(deadVoices.dequeue());
+			updateVirtualVoices();
 		}
 		
 		cleanUpDeadVoices();
 		updateVoiceNanos = System.nanoTime() - nanotime;
+		if (metrics != null)
+			metrics.record(OALSoundStageMetrics.Phase.VOICES, updateVoiceNanos, getMetricTotals());
+		if (p != null)
+			p.phaseFinished(OALSoundStageMetrics.Phase.VOICES);
 	}
 	
+	/**
+	 * Reads the attributes of the objects of the waiting voices 
+	 * from the bulk object model in one call, and updates the voices.
+	 */
+	private void updateBulkVoices()
+	{
+		int count = bulkVoices.size();
+		if (bulkPositions.length < count * 3)
+		{
+			bulkPositions = new float[count * 3];
+			bulkVelocities = new float[count * 3];
+			bulkDirections = new float[count * 3];
+		}
+		
+		bulkObjects.clear();
+		for (Voice voice : bulkVoices)
+			bulkObjects.add(voice.object);
+		bulkModel.getSoundAttributes(bulkObjects, bulkPositions, bulkVelocities, bulkDirections);
+		bulkObjects.clear();
+		
+		int i = 0;
+		while (!bulkVoices.isEmpty())
+		{
+			Voice voice = bulkVoices.dequeue();
+			voice.bulkIndex = i++ * 3;
+			voice.update();
+			voice.bulkIndex = -1;
+			if (voice.tooFar && canDemote(voice))
+				deadVoices.enqueue(voice);
+		}
+	}
+
+	/**
+	 * Returns true if a voice is made virtual when it is too far away to be heard.
+	 */
+	private boolean canDemote(Voice voice)
+	{
+		return virtualVoices != null && voice.sound.isLooping();
+	}
+
 	/**
 	 * Updates the sound stage hooks.
 	 * Called by update(), but exposed to developers here for
@@ -812,9 +1543,16 @@ public class OALSoundStage<T extends Object>
 	public void updateHooks()
 	{
 		long nanotime = System.nanoTime();
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.phaseStarted(OALSoundStageMetrics.Phase.HOOKS);
 		for (OALSoundStageUpdateHook hook : updateHooks)
 			hook.onSoundUpdate();
 		updateHookNanos = System.nanoTime() - nanotime;
+		if (metrics != null)
+			metrics.record(OALSoundStageMetrics.Phase.HOOKS, updateHookNanos, getMetricTotals());
+		if (p != null)
+			p.phaseFinished(OALSoundStageMetrics.Phase.HOOKS);
 	}
 	
 	/**
@@ -842,56 +1580,240 @@ public class OALSoundStage<T extends Object>
 	}
 
 	/**
-	 * Returns the amount of voices playing a specific sound.
+	 * Sets if looping sounds that can't be given a voice, or that are too far away
+	 * to be heard, are tracked as virtual voices instead of being dropped.
+	 * <p>
+	 * Virtual voices have no source and cost nothing to the sound system. Each voice update,
+	 * virtual voices that can be heard are given a free voice, or take the voice of
+	 * a much quieter looping sound of the same or lower priority, which becomes virtual in turn.
+	 * Looping voices that go out of range become virtual. Virtual voices keep track of time,
+	 * so streamed sounds pick up where they would have been; cached sounds start over.
+	 * @param enabled true to enable, false to disable (and drop all virtual voices).
 	 */
-	public int getVoiceCountForSound(OALSoundResource sound)
+	public void setVirtualVoicesEnabled(boolean enabled)
 	{
-		return soundsToVoice.containsKey(sound) ? soundsToVoice.get(sound).size() : 0;
+		if (enabled && virtualVoices == null)
+			virtualVoices = new Queue<VirtualVoice>();
+		else if (!enabled)
+			virtualVoices = null;
+	}
+	
+	/**
+	 * Returns true if looping sounds may be tracked as virtual voices.
+	 * @see #setVirtualVoicesEnabled(boolean)
+	 */
+	public boolean isVirtualVoicesEnabled()
+	{
+		return virtualVoices != null;
+	}
+	
+	/**
+	 * Sets the maximum amount of virtual voices. 
+	 * Sounds that would become virtual past this amount are dropped.
+	 */
+	public void setMaxVirtualVoices(int max)
+	{
+		maxVirtualVoices = max;
+	}
+	
+	/**
+	 * Returns the amount of sounds being tracked as virtual voices.
+	 */
+	public int getVirtualVoices()
+	{
+		return virtualVoices != null ? virtualVoices.size() : 0;
 	}
 
 	/**
-	 * Returns the amount of voices playing connected to a specific object.
+	 * Returns the amount of times a virtual voice was given a source since this stage was created.
 	 */
-	public int getVoiceCountForObject(T object)
+	public long getVirtualPromotionCount()
 	{
-		return objectsToVoice.containsKey(object) ? objectsToVoice.get(object).size() : 0;
+		return virtualPromotions;
 	}
 
 	/**
-	 * Returns the amount of voices playing connected to a specific group.
+	 * Returns the amount of times a playing voice became virtual since this stage was created.
 	 */
-	public int getVoiceCountForGroup(OALSoundGroup group)
+	public long getVirtualDemotionCount()
 	{
-		return groupsToVoice.containsKey(group) ? groupsToVoice.get(group).size() : 0;
+		return virtualDemotions;
 	}
 
 	/**
-	 * Precaches a series of sound resources. Will NOT cache sounds
-	 * if they designated as not cacheable or if they are streaming: instead,
-	 * they are "primed" - which means that it is prebuffered and ready to be played later.
-	 * @param resources	the list of resources to cache.
+	 * Sets if a sound that can't get a voice because none are free may take 
+	 * the voice of the least important sound on the whole stage.
+	 * <p>
+	 * Voices are ordered by their sound's priority, then by how loud they are estimated
+	 * to be at the listener. The least important voice is stolen if its priority
+	 * is lower than the new sound's, or if it is the same and it is quieter.
+	 * Stolen looping voices become virtual voices if those are enabled.
+	 * @param enabled true to enable, false to disable.
 	 */
-	public void cacheSounds(OALSoundResource ... resources)
+	public void setVoiceStealing(boolean enabled)
 	{
-		for (OALSoundResource resource : resources)
+		if (enabled && voiceHeap == null)
 		{
-			// streams are "primed," not cached - they are still disposable.
-			if (resource.isStreaming())
-			{
-				try {
-					SourceStreamer ss = new SourceStreamer(resource);
-					primedStreams.put(resource, ss);
-				} catch (UnsupportedAudioFileException e) {
-					fireErrorUnsupportedResource(resource, e);
-				} catch (IOException e) {
-					fireErrorIO(resource, e);
-				}
+			voiceHeap = new VoiceHeap(usedVoices.size() + freeVoices.size());
+			for (Voice voice : usedVoices)
+				if (voice.isActive())
+					voiceHeap.add(voice);
+		}
+		else if (!enabled && voiceHeap != null)
+		{
+			voiceHeap.clear();
+			voiceHeap = null;
+		}
+	}
+	
+	/**
+	 * Returns true if sounds may take the voices of less important sounds when none are free.
+	 * @see #setVoiceStealing(boolean)
+	 */
+	public boolean isVoiceStealing()
+	{
+		return voiceHeap != null;
+	}
+
+	/**
+	 * Returns the amount of voices stolen for more important sounds since this stage was created.
+	 */
+	public long getStolenVoiceCount()
+	{
+		return stolenVoices;
+	}
+
+	/**
+	 * Sets if update phase latency histograms and event, voice, cache and stream counters 
+	 * are kept across updates, for monitoring. The metrics start empty when enabled.
+	 * @param enabled true to enable, false to disable.
+	 * @see #getMetrics()
+	 */
+	public void setMetricsEnabled(boolean enabled)
+	{
+		if (enabled && metrics == null)
+			metrics = new OALSoundStageMetrics(getMetricTotals());
+		else if (!enabled)
+			metrics = null;
+	}
+	
+	/**
+	 * Returns true if update metrics are kept.
+	 * @see #setMetricsEnabled(boolean)
+	 */
+	public boolean isMetricsEnabled()
+	{
+		return metrics != null;
+	}
+
+	/**
+	 * Returns the update metrics, or null if they are not kept.
+	 * Their snapshots and resets are safe to use from any thread.
+	 * @see #setMetricsEnabled(boolean)
+	 */
+	public OALSoundStageMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Sets the profiler that receives the timing of each update phase,
+	 * and notice of cache misses, stream refills, voice steals, and delayed sounds.
+	 * Safe to call from any thread.
+	 * @param profiler the profiler, or null for none.
+	 */
+	public void setProfiler(OALSoundStageProfiler profiler)
+	{
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Returns the profiler that receives update timings and costly operations, or null if none.
+	 */
+	public OALSoundStageProfiler getProfiler()
+	{
+		return profiler;
+	}
+
+	/**
+	 * Fills in the counter totals for the metrics.
+	 */
+	private long[] getMetricTotals()
+	{
+		long[] out = metricTotals;
+		out[OALSoundStageMetrics.Counter.EVENTS_PROCESSED.ordinal()] = eventsProcessed;
+		out[OALSoundStageMetrics.Counter.EVENTS_DROPPED.ordinal()] = eventsDropped.get();
+		out[OALSoundStageMetrics.Counter.EVENTS_DELAYED.ordinal()] = eventsDelayed;
+		out[OALSoundStageMetrics.Counter.VOICES_ACQUIRED.ordinal()] = acquiredVoices;
+		out[OALSoundStageMetrics.Counter.VOICES_STOLEN.ordinal()] = stolenVoices;
+		out[OALSoundStageMetrics.Counter.VOICES_RECYCLED.ordinal()] = recycledVoices;
+		out[OALSoundStageMetrics.Counter.CACHE_HITS.ordinal()] = bufferCache.getHitCount();
+		out[OALSoundStageMetrics.Counter.CACHE_MISSES.ordinal()] = bufferCache.getMissCount();
+		out[OALSoundStageMetrics.Counter.CACHE_EVICTIONS.ordinal()] = bufferCache.getEvictionCount();
+		out[OALSoundStageMetrics.Counter.STREAM_UNDERRUNS.ordinal()] = streamUnderruns;
+		out[OALSoundStageMetrics.Counter.BYTES_DECODED.ordinal()] = decodedBytes.get();
+		out[OALSoundStageMetrics.Counter.STREAM_LOOP_REDECODES.ordinal()] = loopRedecodes.get();
+		return out;
+	}
+
+	/**
+	 * Returns the amount of voices playing a specific sound.
+	 */
+	public int getVoiceCountForSound(OALSoundResource sound)
+	{
+		VoiceList list = soundsToVoice.get(sound);
+		return list != null ? list.size() : 0;
+	}
+
+	/**
+	 * Returns the amount of voices playing connected to a specific object.
+	 */
+	public int getVoiceCountForObject(T object)
+	{
+		VoiceList list = objectsToVoice.get(object);
+		return list != null ? list.size() : 0;
+	}
+
+	/**
+	 * Returns the amount of voices playing connected to a specific group.
+	 */
+	public int getVoiceCountForGroup(OALSoundGroup group)
+	{
+		VoiceList list = groupsToVoice.get(group);
+		return list != null ? list.size() : 0;
+	}
+
+	/**
+	 * Precaches a series of sound resources. Will NOT cache sounds
+	 * if they designated as not cacheable or if they are streaming: instead,
+	 * they are "primed" - which means that the beginning of the sound is decoded and kept in memory
+	 * (see {@link #setStreamHeadLength(int)}), so that every stream of it starts playing from memory
+	 * while the rest is decoded in the background.
+	 * @param resources	the list of resources to cache.
+	 * @throws IllegalStateException if this stage has been shut down.
+	 */
+	public void cacheSounds(OALSoundResource ... resources)
+	{
+		checkNotShutDown();
+		for (OALSoundResource resource : resources)
+		{
+			// streams are "primed" - only their beginnings are decoded and kept.
+			if (resource.isStreaming())
+			{
+				try {
+					streamHeadCache.addHead(resource, decodeStreamHead(resource));
+				} catch (UnsupportedAudioFileException e) {
+					fireErrorUnsupportedResource(resource, e);
+				} catch (IOException e) {
+					fireErrorIO(resource, e);
+				}
 			}
 			else
 			{
-				OALBuffer buf = null; 
+				OALBackendBuffer buf = null; 
 				try {
-					buf = soundSystemRef.createBuffer(getSoundDataForResource(resource));
+					buf = backend.createBuffer(getSoundDataForResource(resource));
+					decodedBytes.addAndGet(buf.getSize());
 					bufferCache.addBuffer(resource, buf);
 					fireSoundCachedEvent(resource, buf);
 				} catch (UnsupportedAudioFileException e) {
@@ -905,6 +1827,122 @@ public class OALSoundStage<T extends Object>
 		}
 	}
 
+	/**
+	 * Precaches a collection of sound resources in the background, using a fork-join pool
+	 * owned by this stage with as many threads as there are available processors.
+	 * @param resources the resources to cache.
+	 * @return a future for the amount of resources successfully cached or primed.
+	 * @see #cacheSoundsAsync(Collection, Executor)
+	 */
+	public Future<Integer> cacheSoundsAsync(Collection<? extends OALSoundResource> resources)
+	{
+		ForkJoinPool pool;
+		synchronized (this)
+		{
+			if (cachePool == null)
+				cachePool = new ForkJoinPool();
+			pool = cachePool;
+		}
+		return cacheSoundsAsync(resources, pool);
+	}
+	
+	/**
+	 * Precaches a collection of sound resources in the background.
+	 * Safe to call from any thread.
+	 * <p>
+	 * Non-streaming resources are decoded in parallel on the provided executor.
+	 * On each event update, the decoded resources are uploaded to buffers and cached
+	 * in the same order as the collection, and streaming resources are primed in turn, 
+	 * as in {@link #cacheSounds(OALSoundResource...)}. 
+	 * {@link OALSoundStageListener#soundCacheProgress(OALSoundResource, int, int)} is 
+	 * called for each resource as it is finished, successfully or not.
+	 * <p>
+	 * The returned future completes once every resource is finished. Do not wait on it
+	 * from the thread that updates this stage - it will never complete.
+	 * Cancelling it stops any resources that have not yet been uploaded from being cached.
+	 * @param resources the resources to cache.
+	 * @param executor the executor to decode on. A {@link ForkJoinPool} is recommended.
+	 * @return a future for the amount of resources successfully cached or primed.
+	 * @throws IllegalStateException if this stage has been shut down.
+	 */
+	public Future<Integer> cacheSoundsAsync(Collection<? extends OALSoundResource> resources, Executor executor)
+	{
+		checkNotShutDown();
+		CacheBatch batch = new CacheBatch(resources.toArray(new OALSoundResource[resources.size()]));
+		for (SoundLoader loader : batch.loaders)
+		{
+			if (loader == null)
+				continue;
+			try {
+				executor.execute(loader);
+			} catch (RejectedExecutionException e) {
+				// decoded on the update thread instead.
+				loader.rejected = true;
+			}
+		}
+		newCacheBatches.add(batch);
+		return batch;
+	}
+	
+	/**
+	 * Decodes the beginning of a streamed sound.
+	 */
+	private OALStreamHeadCache.Head decodeStreamHead(OALSoundResource resource) 
+		throws UnsupportedAudioFileException, IOException
+	{
+		JSPISoundHandle.Decoder decoder = getSoundDataForResource(resource).getDecoder();
+		try {
+			AudioFormat format = decoder.getDecodedAudioFormat();
+			OALStreamingPolicy policy = resource.getStreamingPolicy();
+			if (policy == null)
+				policy = streamingPolicy;
+			
+			byte[] chunk = new byte[policy.getChunkBytes(format)];
+			int frameBytes = format.getChannels() * (format.getSampleSizeInBits() / 8);
+			int max = (int)(format.getSampleRate() * streamHeadMillis / 1000f) * frameBytes;
+			byte[] data = new byte[max];
+			int length = 0;
+			boolean complete = false;
+			while (length < max)
+			{
+				int len = decoder.readPCMBytes(chunk);
+				if (len <= 0)
+				{
+					complete = true;
+					break;
+				}
+				decodedBytes.addAndGet(len);
+				len = Math.min(len, max - length);
+				System.arraycopy(chunk, 0, data, length, len);
+				length += len;
+			}
+			return new OALStreamHeadCache.Head(data, length, format, complete);
+		} finally {
+			decoder.close();
+		}
+	}
+
+	/**
+	 * Removes a series of sound resources from the buffer cache and destroys their buffers.
+	 * Buffers still being played by voices are destroyed once those voices stop.
+	 * Streaming resources have their decoded beginnings removed from memory.
+	 * @param resources	the list of resources to remove.
+	 */
+	public void uncacheSounds(OALSoundResource ... resources)
+	{
+		for (OALSoundResource resource : resources)
+		{
+			if (resource.isStreaming())
+			{
+				streamHeadCache.removeHead(resource);
+				continue;
+			}
+			OALBackendBuffer buf = bufferCache.peekBuffer(resource);
+			if (buf != null && bufferCache.discardBuffer(resource))
+				fireSoundReleasedEvent(resource, buf);
+		}
+	}
+
 	/**
 	 * Returns the distance between the listener and an object, according to category rules.
 	 */
@@ -919,8 +1957,7 @@ public class OALSoundStage<T extends Object>
 		}
 		else
 		{
-			OALListener listener = soundSystemRef.getListener();
-			Point3F p = listener.getPosition();
+			Point3F p = backend.getListenerPosition();
 			x = soundModel.getSoundPositionX(object) - p.x;
 			y = soundModel.getSoundPositionY(object) - p.y;
 			z = soundModel.getSoundPositionZ(object) - p.z;
@@ -928,9 +1965,74 @@ public class OALSoundStage<T extends Object>
 		return (float)Math.sqrt(x*x + y*y + z*z);
 	}
 	
+	/**
+	 * Returns the distance between the listener and a position, according to category rules.
+	 */
+	protected float getDistance(OALSoundGroup cat, float px, float py, float pz)
+	{
+		double x,y,z;
+		if (cat.isRelative())
+		{
+			x = px;
+			y = py;
+			z = pz;
+		}
+		else
+		{
+			Point3F p = backend.getListenerPosition();
+			x = px - p.x;
+			y = py - p.y;
+			z = pz - p.z;
+		}
+		return (float)Math.sqrt(x*x + y*y + z*z);
+	}
+	
+	/**
+	 * Returns the amount of times that a playing stream had an empty buffer
+	 * that could not be refilled because its decoder had not caught up,
+	 * since this stage was created.
+	 * @see OALSoundStageListener#soundStreamUnderrun(OALSoundResource, int)
+	 */
+	public long getStreamUnderrunCount()
+	{
+		return streamUnderruns;
+	}
+
+	/**
+	 * Returns the amount of times that a looping stream's loop region did not fit
+	 * in memory, and its decoder was reopened to decode it again on another pass,
+	 * since this stage was created.
+	 * @see #setStreamLoopCacheBytes(int)
+	 * @see OALSoundStageListener#soundStreamLoopRedecoded(OALSoundResource, int)
+	 */
+	public long getStreamLoopRedecodeCount()
+	{
+		return loopRedecodes.get();
+	}
+
+	/**
+	 * Returns the amount of events added past the capacity of the event queue
+	 * since this stage was created.
+	 */
+	public long getOverflowedEventCount()
+	{
+		return eventsOverflowed.get();
+	}
+
+	/**
+	 * Returns the amount of events dropped due to event queue overflow
+	 * since this stage was created.
+	 * @see EventOverflowPolicy#DROP_LOWEST_PRIORITY
+	 */
+	public long getDroppedEventCount()
+	{
+		return eventsDropped.get();
+	}
+
 	/**
 	 * Returns the amount of time in nanoseconds that it took to 
 	 * complete an event processing update.
+	 * Only the last update is kept - see {@link #getMetrics()} for history.
 	 */
 	public long getUpdateEventNanos()
 	{
@@ -940,6 +2042,7 @@ public class OALSoundStage<T extends Object>
 	/**
 	 * Returns the amount of time in nanoseconds that it took to 
 	 * complete a listener update.
+	 * Only the last update is kept - see {@link #getMetrics()} for history.
 	 */
 	public long getUpdateListenerNanos()
 	{
@@ -949,6 +2052,7 @@ public class OALSoundStage<T extends Object>
 	/**
 	 * Returns the amount of time in nanoseconds that it took to 
 	 * complete a voice update.
+	 * Only the last update is kept - see {@link #getMetrics()} for history.
 	 */
 	public long getUpdateVoiceNanos()
 	{
@@ -958,6 +2062,7 @@ public class OALSoundStage<T extends Object>
 	/**
 	 * Returns the amount of time in nanoseconds that it took to 
 	 * complete a stream update.
+	 * Only the last update is kept - see {@link #getMetrics()} for history.
 	 */
 	public long getUpdateStreamNanos()
 	{
@@ -967,36 +2072,87 @@ public class OALSoundStage<T extends Object>
 	/**
 	 * Returns the amount of time in nanoseconds that it took to 
 	 * complete a sound stage hook update.
+	 * Only the last update is kept - see {@link #getMetrics()} for history.
 	 */
 	public long getUpdateHookNanos()
 	{
 		return updateHookNanos;
 	}
+
+	/**
+	 * Returns the amount of source state queries made to OpenAL by
+	 * the last update (or the last update method called directly).
+	 * Each used voice costs one or two queries per update.
+	 */
+	public int getSourceStateQueryCount()
+	{
+		return sourceStateQueries;
+	}
+
+	/**
+	 * Returns the amount of source state queries made to OpenAL since this stage was created.
+	 */
+	public long getTotalSourceStateQueryCount()
+	{
+		return totalSourceStateQueries;
+	}
+
+	/**
+	 * Sets the smallest change in a voice's position, velocity, direction, gain, or pitch
+	 * that is sent to its source on a voice update. Smaller changes are skipped.
+	 * @param epsilon the smallest change (0 = send any change).
+	 */
+	public void setParameterEpsilon(float epsilon)
+	{
+		parameterEpsilon = Math.max(0f, epsilon);
+	}
+
+	/**
+	 * Returns the smallest change in a voice parameter that is sent to its source.
+	 */
+	public float getParameterEpsilon()
+	{
+		return parameterEpsilon;
+	}
+
+	/**
+	 * Returns the amount of voice parameters (position, velocity, direction, gain, pitch)
+	 * sent to sources since this stage was created.
+	 */
+	public long getSentParameterUpdateCount()
+	{
+		return sentParameterUpdates;
+	}
+
+	/**
+	 * Returns the amount of voice parameters not sent to sources because they
+	 * did not change by more than the parameter epsilon, since this stage was created.
+	 */
+	public long getSkippedParameterUpdateCount()
+	{
+		return skippedParameterUpdates;
+	}
 	
 	/**
 	 * Stops all voices, frees all buffers and sources cached.
+	 * Once shut down, this stage can't play, cache, or update - calling this again does nothing.
 	 */
 	public void shutDown()
 	{
-		OALBufferCache c = bufferCache;
-		bufferCache = null;
-		c.destroy();
-		if  (!primedStreams.isEmpty())
-		{
-			Iterator<SourceStreamer> it = primedStreams.valueIterator();
-			SourceStreamer ss = null;
-			while(it.hasNext())
-			{
-				ss = it.next();
-				for (OALBuffer b : ss.buffers)
-					b.destroy();
-			}
-			primedStreams.clear();
-		}
+		if (shutDown)
+			return;
+		shutDown = true;
+		if (virtualVoices != null)
+			virtualVoices.clear();
+		if (voiceHeap != null)
+			voiceHeap.clear();
 		while (!usedVoices.isEmpty())
 		{
 			Voice v = usedVoices.dequeue();
 			v.source.stop();
+			if (v.stream != null)
+				closeStream(v.stream);
+			v.source.setBuffer(null);
 			v.source.destroy();
 		}
 		while (!freeVoices.isEmpty())
@@ -1005,6 +2161,28 @@ public class OALSoundStage<T extends Object>
 			v.source.stop();
 			v.source.destroy();
 		}
+		// buffers are destroyed after the sources that they are attached to.
+		bufferCache.destroy();
+		if (streamDecoder != null)
+		{
+			streamDecoder.shutDown();
+			streamDecoder = null;
+		}
+		streams.clear();
+		pendingLoads.clear();
+		finishedLoads.clear();
+		while (!cacheBatches.isEmpty())
+			cacheBatches.dequeue().cancel(false);
+		CacheBatch batch;
+		while ((batch = newCacheBatches.poll()) != null)
+			batch.cancel(false);
+		synchronized (this)
+		{
+			if (cachePool != null)
+				cachePool.shutdown();
+			cachePool = null;
+		}
+		streamHeadCache.clear();
 		soundsToVoice.clear();
 		objectsToVoice.clear();
 		groupsToVoice.clear();
@@ -1017,6 +2195,15 @@ public class OALSoundStage<T extends Object>
 		super.finalize();
 	}
 
+	/**
+	 * Throws an exception if this stage has been shut down.
+	 */
+	private void checkNotShutDown()
+	{
+		if (shutDown)
+			throw new IllegalStateException("This sound stage has been shut down.");
+	}
+
 	/**
 	 * Handles a precache event.
 	 */
@@ -1033,10 +2220,12 @@ public class OALSoundStage<T extends Object>
 	 */
 	private void handleStopAllEvent(StageEvent event)
 	{
+		if (virtualVoices != null)
+			virtualVoices.clear();
 		for (Voice voice : usedVoices)
 		{
 			// should get cleaned up on next update.
-			voice.source.stop();
+			voice.stop();
 		}
 	}
 	
@@ -1045,7 +2234,16 @@ public class OALSoundStage<T extends Object>
 	 */
 	private void handleStopEvent(StageEvent event)
 	{
-		Queue<Voice> voicesToStop = null;
+		VoiceList voicesToStop = null;
+		
+		if (event.group != null)
+			removeVirtualVoices(null, event.group, null, NO_CHANNEL);
+		else if (event.resource != null)
+			removeVirtualVoices(event.resource, null, null, NO_CHANNEL);
+		else if (virtualVoices != null && event.object == null)
+			virtualVoices.clear();
+		else
+			removeVirtualVoices(null, null, event.object, event.channel);
 		
 		if (event.group != null)
 			voicesToStop = groupsToVoice.get(event.group); 
@@ -1053,14 +2251,12 @@ public class OALSoundStage<T extends Object>
 			voicesToStop = soundsToVoice.get(event.resource);
 		else if (event.object != null)
 		{
-			Voice v = null;
-			if (event.channel != null)
-				v = getVoiceForObject(event.object, event.channel);
+			Voice v = getVoiceForObject(event.object, event.channel);
 			
 			if (v != null)
 			{
 				// should get cleaned up on next update.
-				v.source.stop();
+				v.stop();
 				return;
 			}
 			
@@ -1072,7 +2268,7 @@ public class OALSoundStage<T extends Object>
 		if (voicesToStop != null) for (Voice voice : voicesToStop)
 		{
 			// should get cleaned up on next update.
-			voice.source.stop();
+			voice.stop();
 		}
 	}
 	
@@ -1084,17 +2280,24 @@ public class OALSoundStage<T extends Object>
 		// pause an object's sounds.
 		if (event.object != null)
 		{
-			Queue<Voice> voices = objectsToVoice.get(event.object);
+			VoiceList voices = objectsToVoice.get(event.object);
 			if (voices != null) for (Voice v : voices)
 			{
-				v.source.pause();
+				v.pause();
+			}
+			if (virtualVoices != null) for (VirtualVoice v : virtualVoices)
+			{
+				if (v.object == event.object)
+					v.pause();
 			}
 		}
 		// pause all sounds (no object, no sound name).
 		else if (!allPaused)
 		{
 			for (Voice v : usedVoices)
-				v.source.pause();
+				v.pause();
+			if (virtualVoices != null) for (VirtualVoice v : virtualVoices)
+				v.pause();
 			allPaused = true;
 		}
 	}
@@ -1107,21 +2310,39 @@ public class OALSoundStage<T extends Object>
 		// resume an object's sounds.
 		if (event.object != null)
 		{
-			Queue<Voice> voices = objectsToVoice.get(event.object);
+			VoiceList voices = objectsToVoice.get(event.object);
 			if (voices != null) for (Voice v : voices)
 			{
-				v.source.play();
+				v.resume();
+			}
+			if (virtualVoices != null) for (VirtualVoice v : virtualVoices)
+			{
+				if (v.object == event.object)
+					v.resume();
 			}
 		}
 		// resume all sounds (no object, no sound name).
 		else if (allPaused)
 		{
 			for (Voice v : usedVoices)
-				v.source.play();
+				v.resume();
+			if (virtualVoices != null) for (VirtualVoice v : virtualVoices)
+				v.resume();
 			allPaused = false;
 		}
 	}
 
+	/**
+	 * Handles a seek event.
+	 */
+	private void handleSeekEvent(StageEvent event)
+	{
+		Voice v = getVoiceForObject(event.object, event.channel);
+		if (v == null || v.stream == null)
+			return;
+		v.stream.seek(event.millis ? v.stream.getFrame(event.position) : event.position);
+	}
+
 	/**
 	 * Handles a sound play event.
 	 * Returns true if handled, false if this is to be belayed.
@@ -1130,9 +2351,25 @@ public class OALSoundStage<T extends Object>
 	{
 		Voice voice = null;
 
+		if (event.loader != null && event.loader.failed)
+			return true;
+		if (isLoadPending(event))
+			return loadDeadlineNanos > 0L && System.nanoTime() - event.loadNanos > loadDeadlineNanos;
+		if (virtualVoices != null && event.object != null)
+			removeVirtualVoices(null, null, event.object, event.channel);
+		if (isTooFar(event.resource, event.group, event.object))
+		{
+			if (spatialIndex != null)
+				culledPlays++;
+			if (canVirtualize(event.resource))
+				addVirtualVoice(event, System.nanoTime());
+			return true;
+		}
 		if (cannotPlaySound(event))
 			return true;
 		cleanUpDeadVoices();
+		if (voiceHeap != null && freeVoices.isEmpty())
+			stealVoice(event);
 		try{
 			if (event.resource.isStreaming())
 				voice = getVoiceForStream(event.resource);
@@ -1150,12 +2387,20 @@ public class OALSoundStage<T extends Object>
 		{
 			voice.initialize(event);
 			addBindingsForVoice(voice);
-			usedVoices.enqueue(voice);
-			voice.source.play();
+			usedVoices.add(voice);
+			if (voiceHeap != null)
+				voiceHeap.add(voice);
+			voice.startNanos = System.nanoTime();
+			voice.play();
 			fireSoundPlayedEvent(event.resource);
 			return true; 
 		}
 		// voice not allocated
+		else if (canVirtualize(event.resource))
+		{
+			addVirtualVoice(event, System.nanoTime());
+			return true;
+		}
 		else if (event.resource.isAlwaysPlayed())
 			return false;
 		
@@ -1163,38 +2408,177 @@ public class OALSoundStage<T extends Object>
 	}
 	
 	/**
-	 * Performs checks on an incoming event to free potential
-	 * voices and check if the particular sound on the event shouldn't/can't be played.
+	 * Checks if a PLAY event's sound must be loaded in the background first,
+	 * starting the load if it has not been started.
 	 * @param event the incoming PLAY event.
-	 * @return true if this method has decided that this sound cannot be played, false otherwise.
+	 * @return true if the event has to wait for its sound, false if it can be played now.
 	 */
-	private boolean cannotPlaySound(StageEvent event)
+	private boolean isLoadPending(StageEvent event)
 	{
-		// check if sound is too far away.
-		if (event.group != null 
-				&& event.resource.getRolloff() != 0f 
-				&& getDistance(event.group, event.object) > event.resource.getMaxAttenuationDistance())
-			return true;
-
-		Voice voice = null;
-
-		// check if limit reached.
-		if (event.resource.getLimit() > 0)
+		if (event.loader != null)
+			return !event.loader.done;
+		
+		Executor executor = loadExecutor;
+		if (executor == null || event.resource.isStreaming() || bufferCache.peekBuffer(event.resource) != null)
+			return false;
+		
+		SoundLoader loader = pendingLoads.get(event.resource);
+		if (loader == null)
 		{
-			int count = getVoiceCountForSound(event.resource);
-			if (count < event.resource.getLimit())
+			loader = new SoundLoader(event.resource);
+			try {
+				executor.execute(loader);
+			} catch (RejectedExecutionException e) {
+				// load it on this thread instead.
 				return false;
-			
-			if (event.resource.getStopsOldestSound())
+			}
+			pendingLoads.put(event.resource, loader);
+		}
+		
+		event.loader = loader;
+		event.loadNanos = System.nanoTime();
+		return true;
+	}
+	
+	/**
+	 * Uploads the sounds decoded in the background to buffers 
+	 * and adds them to the cache, or reports their errors.
+	 */
+	private void updateLoads()
+	{
+		SoundLoader loader;
+		while ((loader = finishedLoads.poll()) != null)
+		{
+			pendingLoads.removeUsingKey(loader.resource);
+			loader.done = true;
+			if (loader.ioException != null)
 			{
-				voice = soundsToVoice.dequeue(event.resource);
-				removeVoiceForObject(voice.object, voice);
-				removeVoiceForGroup(voice.group, voice);
-				resetVoice(voice);
-				return false;
+				loader.failed = true;
+				fireErrorIO(loader.resource, loader.ioException);
+			}
+			else if (loader.formatException != null)
+			{
+				loader.failed = true;
+				fireErrorUnsupportedResource(loader.resource, loader.formatException);
 			}
 			else
-				return true;
+			{
+				loader.failed = !uploadLoadedSound(loader);
+				OALSoundStageProfiler p = profiler;
+				if (p != null && !loader.failed)
+					p.soundCacheMissed(loader.resource, loader.decodeNanos, loader.length);
+			}
+		}
+		
+		while (!newCacheBatches.isEmpty())
+			cacheBatches.enqueue(newCacheBatches.poll());
+		
+		Iterator<CacheBatch> it = cacheBatches.iterator();
+		while (it.hasNext())
+		{
+			CacheBatch batch = it.next();
+			if (batch.isCancelled() || updateCacheBatch(batch))
+				it.remove();
+		}
+	}
+	
+	/**
+	 * Uploads a decoded sound to a buffer and caches it,
+	 * unless the resource was cached in the meantime.
+	 * @return true if the sound is cached, false if it had no data.
+	 */
+	private boolean uploadLoadedSound(SoundLoader loader)
+	{
+		if (loader.data == null)
+			return false;
+		if (bufferCache.peekBuffer(loader.resource) == null)
+		{
+			OALBackendBuffer buf = backend.createBuffer();
+			buf.setSamplingRate((int)loader.format.getSampleRate());
+			buf.setFormatByChannelsAndBits(loader.format.getChannels(), loader.format.getSampleSizeInBits());
+			buf.loadPCMData(ByteBuffer.wrap(loader.data), loader.length);
+			bufferCache.addBuffer(loader.resource, buf);
+			fireSoundCachedEvent(loader.resource, buf);
+		}
+		loader.data = null;
+		return true;
+	}
+	
+	/**
+	 * Uploads or primes the next finished resources in a bulk precache, in order.
+	 * @return true if the batch is complete, false if not.
+	 */
+	private boolean updateCacheBatch(CacheBatch batch)
+	{
+		int total = batch.resources.length;
+		while (batch.next < total)
+		{
+			int i = batch.next;
+			OALSoundResource resource = batch.resources[i];
+			SoundLoader loader = batch.loaders[i];
+			boolean cached;
+			if (loader == null)
+			{
+				// streams are primed on this thread, like cacheSounds().
+				cacheSounds(resource);
+				cached = streamHeadCache.containsHead(resource);
+			}
+			else if (loader.rejected)
+			{
+				cacheSounds(resource);
+				cached = bufferCache.peekBuffer(resource) != null;
+			}
+			else if (!loader.decoded)
+				return false;
+			else if (loader.ioException != null)
+			{
+				cached = false;
+				fireErrorIO(resource, loader.ioException);
+			}
+			else if (loader.formatException != null)
+			{
+				cached = false;
+				fireErrorUnsupportedResource(resource, loader.formatException);
+			}
+			else
+				cached = uploadLoadedSound(loader);
+			
+			batch.loaders[i] = null;
+			batch.next++;
+			if (cached)
+				batch.cached++;
+			fireSoundCacheProgressEvent(resource, batch.next, total);
+		}
+		batch.finish();
+		return true;
+	}
+	
+	/**
+	 * Performs checks on an incoming event to free potential
+	 * voices and check if the particular sound on the event shouldn't/can't be played.
+	 * @param event the incoming PLAY event.
+	 * @return true if this method has decided that this sound cannot be played, false otherwise.
+	 */
+	private boolean cannotPlaySound(StageEvent event)
+	{
+		Voice voice = null;
+
+		// check if limit reached.
+		if (event.resource.getLimit() > 0)
+		{
+			int count = getVoiceCountForSound(event.resource);
+			if (count < event.resource.getLimit())
+				return false;
+			
+			if (event.resource.getStopsOldestSound())
+			{
+				voice = soundsToVoice.get(event.resource).getFirst();
+				removeBindingsForVoice(voice);
+				resetVoice(voice);
+				return false;
+			}
+			else
+				return true;
 		}
 		// get group limit
 		else if (event.group != null 
@@ -1219,6 +2603,308 @@ public class OALSoundStage<T extends Object>
 	}
 
 	
+	/**
+	 * Returns true if a sound played by an object in a group is past its maximum attenuation distance.
+	 * Uses the spatial index, if set, before reading the object's position.
+	 */
+	private boolean isTooFar(OALSoundResource sound, OALSoundGroup group, T object)
+	{
+		if (group == null || object == null || sound.getRolloff() == 0f)
+			return false;
+		
+		float max = sound.getMaxAttenuationDistance();
+		if (spatialIndex != null)
+		{
+			float d;
+			if (group.isRelative())
+				d = spatialIndex.getMinimumDistance(object, 0f, 0f, 0f);
+			else
+			{
+				Point3F p = backend.getListenerPosition();
+				d = spatialIndex.getMinimumDistance(object, p.x, p.y, p.z);
+			}
+			if (d > max)
+				return true;
+		}
+		
+		float x = soundModel.getSoundPositionX(object);
+		float y = soundModel.getSoundPositionY(object);
+		float z = soundModel.getSoundPositionZ(object);
+		if (spatialIndex != null)
+			spatialIndex.update(object, x, y, z);
+		return getDistance(group, x, y, z) > max;
+	}
+
+	/**
+	 * Estimates how loud a sound played by an object in a group is, 
+	 * using the inverse distance clamped model.
+	 */
+	protected float estimateGain(OALSoundResource sound, OALSoundGroup group, T object, float initGain)
+	{
+		float gain = initGain;
+		if (group == null)
+			return gain;
+		gain *= group.getGainBias();
+		if (object == null || sound.getRolloff() == 0f)
+			return gain;
+		
+		return gain * getAttenuation(sound, getDistance(group, object));
+	}
+
+	/**
+	 * Returns how much a sound's gain is scaled at a distance from the listener,
+	 * using the inverse distance clamped model.
+	 */
+	protected float getAttenuation(OALSoundResource sound, float distance)
+	{
+		if (sound.getRolloff() == 0f)
+			return 1f;
+		if (distance > sound.getMaxAttenuationDistance())
+			return 0f;
+		float ref = sound.getAttenuationDistance();
+		if (distance <= ref)
+			return 1f;
+		return ref / (ref + sound.getRolloff() * (distance - ref));
+	}
+
+	/**
+	 * Frees the least important used voice, if it is less important than a play event's sound.
+	 * @return true if a voice was freed, false if not.
+	 */
+	private boolean stealVoice(StageEvent event)
+	{
+		Voice voice = voiceHeap.peek();
+		if (voice == null)
+			return false;
+		
+		float priority = event.resource.getPriority();
+		if (voice.sound.getPriority() > priority)
+			return false;
+		if (voice.sound.getPriority() == priority 
+			&& voice.audibleGain >= estimateGain(event.resource, event.group, event.object, event.gain))
+			return false;
+		
+		OALSoundResource stolen = voice.sound;
+		if (virtualVoices != null && voice.sound.isLooping() && virtualVoices.size() < maxVirtualVoices)
+			demoteVoice(voice);
+		else
+		{
+			removeVoiceForSound(voice.sound, voice);
+			removeVoiceForObject(voice.object, voice);
+			removeVoiceForGroup(voice.group, voice);
+			resetVoice(voice);
+			usedVoices.remove(voice);
+			freeVoices.add(voice);
+		}
+		stolenVoices++;
+		OALSoundStageProfiler p = profiler;
+		if (p != null)
+			p.voiceStolen(stolen, event.resource);
+		return true;
+	}
+
+	/**
+	 * Returns true if a sound can be tracked as a virtual voice.
+	 */
+	private boolean canVirtualize(OALSoundResource sound)
+	{
+		return virtualVoices != null && sound.isLooping() && virtualVoices.size() < maxVirtualVoices;
+	}
+
+	/**
+	 * Adds a virtual voice for a play event.
+	 * @param startNanos when the sound started, in nanoseconds.
+	 */
+	private void addVirtualVoice(StageEvent event, long startNanos)
+	{
+		VirtualVoice v = new VirtualVoice();
+		v.sound = event.resource;
+		v.group = event.group;
+		v.object = event.object;
+		v.channel = event.channel;
+		v.gain = event.gain;
+		v.pitch = event.pitch;
+		v.startNanos = startNanos;
+		v.pausedNanos = allPaused ? startNanos : -1L;
+		virtualVoices.enqueue(v);
+	}
+
+	/**
+	 * Removes virtual voices that match a sound, group, or object and channel.
+	 * Null matches everything.
+	 */
+	private void removeVirtualVoices(OALSoundResource sound, OALSoundGroup group, T object, int channel)
+	{
+		if (virtualVoices == null)
+			return;
+		Iterator<VirtualVoice> it = virtualVoices.iterator();
+		while (it.hasNext())
+		{
+			VirtualVoice v = it.next();
+			if (sound != null && v.sound != sound)
+				continue;
+			if (group != null && v.group != group)
+				continue;
+			if (object != null && (v.object != object || (channel != NO_CHANNEL && v.channel != channel)))
+				continue;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Turns a playing voice into a virtual voice and frees it.
+	 */
+	private void demoteVoice(Voice voice)
+	{
+		VirtualVoice v = new VirtualVoice();
+		v.sound = voice.sound;
+		v.group = voice.group;
+		v.object = voice.object;
+		v.channel = voice.channel;
+		v.gain = voice.initGain;
+		v.pitch = voice.initPitch;
+		v.exact = true;
+		v.startNanos = voice.startNanos;
+		v.pausedNanos = voice.pausedNanos;
+		virtualVoices.enqueue(v);
+		removeVoiceForSound(voice.sound, voice);
+		removeVoiceForObject(voice.object, voice);
+		removeVoiceForGroup(voice.group, voice);
+		resetVoice(voice);
+		usedVoices.remove(voice);
+		freeVoices.add(voice);
+		virtualDemotions++;
+	}
+
+	/**
+	 * Gives sources to virtual voices that can be heard, 
+	 * taking them from much quieter looping voices if there are none free.
+	 */
+	private void updateVirtualVoices()
+	{
+		int promotions = 0;
+		// voices demoted here are added after the ones looked at, for the next update.
+		int count = virtualVoices.size();
+		while (count-- > 0 && promotions < MAX_PROMOTIONS_PER_UPDATE)
+		{
+			VirtualVoice v = virtualVoices.dequeue();
+			Voice quietest = null;
+			if (v.pausedNanos >= 0L || isTooFar(v.sound, v.group, v.object)
+				|| (freeVoices.isEmpty() && (quietest = findQuietestVoice(v)) == null))
+			{
+				virtualVoices.enqueue(v);
+				continue;
+			}
+			if (promoteVirtualVoice(v, quietest))
+				promotions++;
+		}
+	}
+
+	/**
+	 * Finds the quietest looping voice that a virtual voice can take the source of, or null if none.
+	 */
+	private Voice findQuietestVoice(VirtualVoice v)
+	{
+		float gain = estimateGain(v.sound, v.group, v.object, v.gain);
+		Voice out = null;
+		float outGain = gain / PROMOTION_GAIN_MARGIN;
+		for (Voice voice : usedVoices)
+		{
+			if (!voice.sound.isLooping() || voice.sound.getPriority() > v.sound.getPriority() || !voice.isActive())
+				continue;
+			float g = estimateGain(voice.sound, voice.group, voice.object, voice.initGain);
+			if (g < outGain)
+			{
+				out = voice;
+				outGain = g;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Plays a virtual voice on a free voice, or on the voice of a quieter sound, which is demoted.
+	 * The sound is opened or cached before anything is demoted, so if it can't be played,
+	 * only the virtual voice is dropped.
+	 * @param quietest the voice to demote, or null to use a free voice.
+	 * @return true if played, false if not.
+	 */
+	private boolean promoteVirtualVoice(VirtualVoice v, Voice quietest)
+	{
+		SourceStreamer stream = null;
+		try {
+			if (v.sound.isStreaming())
+				stream = new SourceStreamer(v.sound, streamHeadCache.getHead(v.sound));
+			else if (bufferCache.peekBuffer(v.sound) == null)
+				cacheSounds(v.sound);
+		} catch (IOException e) {
+			fireErrorIO(v.sound, e);
+			return false;
+		} catch (UnsupportedAudioFileException e) {
+			fireErrorUnsupportedResource(v.sound, e);
+			return false;
+		}
+		// errors were reported by cacheSounds().
+		if (stream == null && bufferCache.peekBuffer(v.sound) == null)
+			return false;
+		
+		if (quietest != null)
+			demoteVoice(quietest);
+		Voice voice = null;
+		try {
+			if (stream != null)
+				voice = getVoiceForStream(stream);
+			else
+				voice = getVoiceForSound(v.sound);
+		} catch (IOException e) {
+			fireErrorIO(v.sound, e);
+			return false;
+		} catch (UnsupportedAudioFileException e) {
+			fireErrorUnsupportedResource(v.sound, e);
+			return false;
+		}
+		if (voice == null)
+			return false;
+		
+		StageEvent event = acquireEvent();
+		event.type = EventType.PLAY;
+		event.resource = v.sound;
+		event.group = v.group;
+		event.object = v.object;
+		event.channel = v.channel;
+		event.gain = v.gain;
+		event.pitch = v.pitch;
+		voice.initialize(event);
+		releaseEvent(event);
+		if (v.exact)
+		{
+			voice.initGain = v.gain;
+			voice.initPitch = v.pitch;
+		}
+		addBindingsForVoice(voice);
+		usedVoices.add(voice);
+		if (voiceHeap != null)
+			voiceHeap.add(voice);
+		voice.startNanos = v.startNanos;
+		
+		// sounds pick up where they would be, and streams start playing once they have data.
+		double seconds = (System.nanoTime() - v.startNanos) / 1000000000.0 * voice.initPitch;
+		if (voice.stream != null)
+			voice.stream.seek(voice.stream.getFrame((long)(seconds * 1000.0)));
+		else
+		{
+			OALBackendBuffer buffer = voice.buffer;
+			int frameBytes = buffer.getChannels() * (buffer.getBits() / 8);
+			int frames = frameBytes > 0 ? buffer.getSize() / frameBytes : 0;
+			if (frames > 0)
+				voice.source.setSampleOffset((int)((long)(seconds * buffer.getSamplingRate()) % frames));
+			voice.play();
+		}
+		virtualPromotions++;
+		fireSoundPlayedEvent(v.sound);
+		return true;
+	}
+
 	/**
 	 * Opens an audio stream using a sound resource's path.
 	 * This assumes that the path is a file path (this should be
@@ -1249,44 +2935,177 @@ public class OALSoundStage<T extends Object>
 	}
 
 	/**
-	 * Ensures that a single thread adds an event to process.
+	 * Gets a cleared event for filling in and adding via {@link #enqueueEvent(StageEvent)}.
+	 * Reuses a processed event if one is available. Safe to call from any thread.
+	 */
+	protected StageEvent acquireEvent()
+	{
+		StageEvent out = eventPool.poll();
+		return out != null ? out : new StageEvent();
+	}
+	
+	/**
+	 * Clears a processed event and returns it to the event pool.
+	 * The event must not be referenced after this is called.
+	 */
+	protected void releaseEvent(StageEvent event)
+	{
+		event.clear();
+		eventPool.offer(event);
+	}
+	
+	/**
+	 * Adds an event to process. Safe to call from any thread.
+	 * If the event queue is full, the current {@link EventOverflowPolicy} applies.
+	 * @throws IllegalStateException if the policy is {@link EventOverflowPolicy#BLOCK}
+	 * and the stage is shut down while waiting.
 	 */
 	protected void enqueueEvent(StageEvent event)
 	{
-		synchronized (eventsToProcess)
+		// keep events in order once overflow has started.
+		if (eventOverflowCount.get() == 0 && eventsToProcess.offer(event))
+			return;
+
+		if (eventOverflowPolicy == EventOverflowPolicy.BLOCK && eventThread != Thread.currentThread())
 		{
-			eventsToProcess.enqueue(event);
+			while (eventOverflowCount.get() > 0 || !eventsToProcess.offer(event))
+			{
+				if (shutDown)
+				{
+					releaseEvent(event);
+					throw new IllegalStateException("This sound stage has been shut down.");
+				}
+				LockSupport.parkNanos(50000L);
+			}
+			return;
 		}
+
+		eventsOverflowed.incrementAndGet();
+		eventOverflowCount.incrementAndGet();
+		eventOverflow.add(event);
 	}
 	
 	/**
-	 * Ensures that a single thread removes an event to process.
+	 * Removes an event to process. 
+	 * Only the thread that processes events should call this.
+	 * @return the next event, or null if no events are pending.
 	 */
 	protected StageEvent dequeueEvent()
 	{
-		StageEvent out = null;
-		synchronized (eventsToProcess)
+		StageEvent out = eventsToProcess.poll();
+		if (out == null && (out = eventOverflow.poll()) != null)
+			eventOverflowCount.decrementAndGet();
+		return out;
+	}
+	
+	/**
+	 * Drains the delayed and pending events into the event batch, 
+	 * dropping events if the overflow policy calls for it.
+	 * Events added while this is draining are left for the next update.
+	 * @return the amount of events in the batch.
+	 */
+	private int drainEvents()
+	{
+		int count = 0;
+		while (!processDelay.isEmpty())
+			count = batchEvent(processDelay.dequeue(), count);
+		
+		int pending = eventsToProcess.size() + eventOverflowCount.get();
+		int overflowed = 0;
+		StageEvent event;
+		while (pending-- > 0 && (event = eventsToProcess.poll()) != null)
+			count = batchEvent(event, count);
+		
+		int overflowPending = eventOverflowCount.get();
+		while (overflowPending-- > 0 && (event = eventOverflow.poll()) != null)
 		{
-			out = eventsToProcess.dequeue();
+			eventOverflowCount.decrementAndGet();
+			count = batchEvent(event, count);
+			overflowed++;
 		}
-		return out;
+		
+		if (overflowed > 0 && eventOverflowPolicy == EventOverflowPolicy.DROP_LOWEST_PRIORITY)
+			dropLowestPriorityEvents(count, overflowed);
+		
+		return count;
 	}
 	
 	/**
-	 * Gets the voice for an object and channel that is currently playing.
-	 * Returns null if it is not found.
+	 * Creates a new array of events.
 	 */
-	protected Voice getVoiceForObject(T object, Integer channel)
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private StageEvent[] newEventArray(int length)
 	{
-		if (channel == null)
-			return null;
-		Queue<Voice> list = objectsToVoice.get(object);
-		if (list != null) for (Voice v : list)
+		return (StageEvent[])new OALSoundStage.StageEvent[length];
+	}
+	
+	/**
+	 * Adds an event to the event batch, growing it if necessary.
+	 * @return the new batch count.
+	 */
+	private int batchEvent(StageEvent event, int count)
+	{
+		if (count == eventBatch.length)
+			eventBatch = Arrays.copyOf(eventBatch, eventBatch.length * 2);
+		eventBatch[count] = event;
+		return count + 1;
+	}
+	
+	/**
+	 * Drops up to <code>amount</code> lowest priority PLAY events in the event batch.
+	 * Sounds that must always be played are not dropped. Of equal priorities,
+	 * the latest events are dropped first.
+	 */
+	private void dropLowestPriorityEvents(int count, int amount)
+	{
+		if (dropPriorities.length < count)
+			dropPriorities = new float[eventBatch.length];
+		float[] priorities = dropPriorities;
+		int candidates = 0;
+		for (int i = 0; i < count; i++)
+		{
+			StageEvent event = eventBatch[i];
+			if (event.type == EventType.PLAY && !event.resource.isAlwaysPlayed())
+				priorities[candidates++] = event.resource.getPriority();
+		}
+		
+		amount = Math.min(amount, candidates);
+		if (amount == 0)
+			return;
+		
+		Arrays.sort(priorities, 0, candidates);
+		float threshold = priorities[amount - 1];
+		int below = 0;
+		for (int i = 0; i < amount; i++)
+			if (priorities[i] < threshold)
+				below++;
+		int atThreshold = amount - below;
+		
+		for (int i = count - 1; i >= 0; i--)
 		{
-			if (v.channel == channel)
-				return v;
+			StageEvent event = eventBatch[i];
+			if (event.type != EventType.PLAY || event.resource.isAlwaysPlayed())
+				continue;
+			float p = event.resource.getPriority();
+			if (p < threshold || (p == threshold && atThreshold-- > 0))
+			{
+				eventBatch[i] = null;
+				releaseEvent(event);
+				eventsDropped.incrementAndGet();
+			}
 		}
-		return null;
+	}
+	
+	/**
+	 * Gets the voice for an object and channel that is currently playing.
+	 * Returns null if it is not found or the channel is {@link #NO_CHANNEL}.
+	 */
+	protected Voice getVoiceForObject(T object, int channel)
+	{
+		if (channel == NO_CHANNEL)
+			return null;
+		VoiceList list = objectsToVoice.get(object);
+		return list != null ? list.getChannel(channel) : null;
 	}
 
 	/**
@@ -1308,13 +3127,18 @@ public class OALSoundStage<T extends Object>
 		if (out != null)
 		{
 			out.reset();
-			OALBuffer buf = null;
-			if ((buf = bufferCache.getBuffer(resource)) == null)
+			// pinned until the voice is reset, so it can't be evicted while playing.
+			if (bufferCache.getBuffer(resource) == null)
 			{
+				long nanotime = System.nanoTime();
 				cacheSounds(resource);
-				buf = bufferCache.getBuffer(resource);
+				OALSoundStageProfiler p = profiler;
+				OALBackendBuffer buf = bufferCache.peekBuffer(resource);
+				if (p != null && buf != null)
+					p.soundCacheMissed(resource, System.nanoTime() - nanotime, buf.getSize());
 			}
-			out.source.setBuffer(buf);
+			out.buffer = bufferCache.pinBuffer(resource);
+			out.source.setBuffer(out.buffer);
 		}
 		return out;
 	}
@@ -1332,20 +3156,34 @@ public class OALSoundStage<T extends Object>
 	 */
 	protected Voice getVoiceForStream(OALSoundResource resource)
 		throws UnsupportedAudioFileException, IOException
+	{
+		if (freeVoices.isEmpty())
+			return null;
+		// start from memory if primed.
+		return getVoiceForStream(new SourceStreamer(resource, streamHeadCache.getHead(resource)));
+	}
+	
+	/**
+	 * Gets an available voice for an opened stream, and starts decoding it.
+	 * Call only if there is a free voice.
+	 */
+	private Voice getVoiceForStream(SourceStreamer ss)
 	{
 		Voice out = acquireVoice();
 		if (out != null)
 		{
 			out.reset();
-			// get if already primed.
-			SourceStreamer ss = primedStreams.get(resource);
-			if (ss != null)
-				primedStreams.removeUsingKey(resource);
-			else
-				ss = new SourceStreamer(resource);
 			ss.attachToSource(out.source);
+			ss.voice = out;
+			out.stream = ss;
 			streams.add(ss);
-			fireSoundStreamStartEvent(resource);				
+			if (streamDecoder == null)
+			{
+				streamDecoder = new StreamDecoderThread();
+				streamDecoder.start();
+			}
+			streamDecoder.add(ss);
+			fireSoundStreamStartEvent(ss.resourceRef);
 		}
 		return out;
 	}
@@ -1356,9 +3194,12 @@ public class OALSoundStage<T extends Object>
 	 */
 	protected boolean removeVoiceForSound(OALSoundResource sound, Voice voice)
 	{
-		if (sound != null)
-			return soundsToVoice.removeValue(sound, voice);
-		return false;
+		VoiceList list = voice.lists[VoiceList.LINK_SOUND];
+		if (sound == null || list == null || !list.remove(voice))
+			return false;
+		if (list.isEmpty())
+			soundsToVoice.removeUsingKey(sound);
+		return true;
 	}
 
 	/**
@@ -1367,9 +3208,12 @@ public class OALSoundStage<T extends Object>
 	 */
 	protected boolean removeVoiceForObject(T object, Voice voice)
 	{
-		if (object != null)
-			return objectsToVoice.removeValue(object, voice);
-		return false;
+		VoiceList list = voice.lists[VoiceList.LINK_OBJECT];
+		if (object == null || list == null || !list.remove(voice))
+			return false;
+		if (list.isEmpty())
+			objectsToVoice.removeUsingKey(object);
+		return true;
 	}
 
 	/**
@@ -1378,22 +3222,14 @@ public class OALSoundStage<T extends Object>
 	 */
 	protected Voice removeVoiceForObjectAndChannel(T object, int channel)
 	{
-		Queue<Voice> list = objectsToVoice.get(object);
+		VoiceList list = objectsToVoice.get(object);
 		if (list == null)
 			return null;
-		Iterator<Voice> it = list.iterator();
-		while (it.hasNext())
-		{
-			Voice voice = it.next();
-			if (voice.channel == channel)
-			{
-				Voice out = voice;
-				it.remove();
-				return out;
-			}
-		}
-		return null;
-	}
+		Voice out = list.getChannel(channel);
+		if (out != null)
+			removeVoiceForObject(object, out);
+		return out;
+	}
 
 	/**
 	 * Removes the voice for a group.
@@ -1401,9 +3237,12 @@ public class OALSoundStage<T extends Object>
 	 */
 	protected boolean removeVoiceForGroup(OALSoundGroup group, Voice voice)
 	{
-		if (group != null)
-			return groupsToVoice.removeValue(group, voice);
-		return false;
+		VoiceList list = voice.lists[VoiceList.LINK_GROUP];
+		if (group == null || list == null || !list.remove(voice))
+			return false;
+		if (list.isEmpty())
+			groupsToVoice.removeUsingKey(group);
+		return true;
 	}
 
 	/**
@@ -1422,11 +3261,26 @@ public class OALSoundStage<T extends Object>
 	protected void addBindingsForVoice(Voice voice)
 	{
 		if (voice.sound != null)
-			soundsToVoice.enqueue(voice.sound, voice);
+		{
+			VoiceList list = soundsToVoice.get(voice.sound);
+			if (list == null)
+				soundsToVoice.put(voice.sound, list = new VoiceList(VoiceList.LINK_SOUND));
+			list.add(voice);
+		}
 		if (voice.object != null)
-			objectsToVoice.enqueue(voice.object, voice);
+		{
+			VoiceList list = objectsToVoice.get(voice.object);
+			if (list == null)
+				objectsToVoice.put(voice.object, list = new VoiceList(VoiceList.LINK_OBJECT));
+			list.add(voice);
+		}
 		if (voice.group != null)
-			groupsToVoice.enqueue(voice.group, voice);
+		{
+			VoiceList list = groupsToVoice.get(voice.group);
+			if (list == null)
+				groupsToVoice.put(voice.group, list = new VoiceList(VoiceList.LINK_GROUP));
+			list.add(voice);
+		}
 	}
 	
 	/**
@@ -1437,7 +3291,10 @@ public class OALSoundStage<T extends Object>
 		Voice out = null;
 	
 		if (!freeVoices.isEmpty())
+		{
 			out = freeVoices.dequeue();
+			acquiredVoices++;
+		}
 		
 		return out;
 	}
@@ -1447,13 +3304,52 @@ public class OALSoundStage<T extends Object>
 	 */
 	protected void resetVoice(Voice voice)
 	{
+		if (voiceHeap != null)
+			voiceHeap.remove(voice);
 		voice.object = null;
-		voice.channel = -1;
-		voice.source.stop();
+		voice.channel = NO_CHANNEL;
+		voice.pausedNanos = -1L;
+		voice.stop();
+		// detaching the source would lose the stream's queued buffers.
+		if (voice.stream != null)
+		{
+			closeStream(voice.stream);
+			streams.remove(voice.stream);
+			voice.stream = null;
+		}
 		voice.source.setBuffer(null);
+		if (voice.buffer != null)
+		{
+			bufferCache.unpinBuffer(voice.sound, voice.buffer);
+			voice.buffer = null;
+		}
 		fireSoundStoppedEvent(voice.sound);
 	}
 	
+	/**
+	 * Stops decoding a stream, and destroys all of its buffers, queued or not.
+	 * Its source must be stopped.
+	 */
+	private void closeStream(SourceStreamer stream)
+	{
+		if (stream.closed)
+			return;
+		stream.closed = true;
+		stream.seeking = false;
+		for (OALBackendBuffer buf : stream.sourceRef.dequeueAllBuffers())
+		{
+			buf.destroy();
+			fireSoundReleasedEvent(stream.resourceRef, buf);
+		}
+		while (!stream.freeBuffers.isEmpty())
+		{
+			OALBackendBuffer buf = stream.freeBuffers.dequeue();
+			buf.destroy();
+			fireSoundReleasedEvent(stream.resourceRef, buf);
+		}
+		fireSoundStreamStoppedEvent(stream.resourceRef);
+	}
+	
 	/**
 	 * Finds dead used voices and frees them.
 	 */
@@ -1463,7 +3359,7 @@ public class OALSoundStage<T extends Object>
 		while (it.hasNext())
 		{
 			Voice voice = it.next();
-			if (!voice.source.isPlaying() && !voice.source.isPaused())
+			if (!voice.isActive())
 			{
 				removeVoiceForSound(voice.sound, voice);
 				removeVoiceForObject(voice.object, voice);
@@ -1478,25 +3374,37 @@ public class OALSoundStage<T extends Object>
 			resetVoice(deadvoice);
 			usedVoices.remove(deadvoice);
 			freeVoices.add(deadvoice);
+			recycledVoices++;
 		}
 	}
 	
 	/**
 	 * Fires a sound cached event.
 	 */
-	protected void fireSoundCachedEvent(OALSoundResource data, OALBuffer buffer)
+	protected void fireSoundCachedEvent(OALSoundResource data, OALBackendBuffer buffer)
+	{
+		OALBuffer b = OALSystemBackend.getOALBuffer(buffer);
+		for (OALSoundStageListener l : listeners)
+			l.soundCached(data, b);
+	}
+
+	/**
+	 * Fires a sound cache progress event.
+	 */
+	protected void fireSoundCacheProgressEvent(OALSoundResource data, int completed, int total)
 	{
 		for (OALSoundStageListener l : listeners)
-			l.soundCached(data, buffer);
+			l.soundCacheProgress(data, completed, total);
 	}
 
 	/**
 	 * Fires a sound released event.
 	 */
-	protected void fireSoundReleasedEvent(OALSoundResource data, OALBuffer buffer)
+	protected void fireSoundReleasedEvent(OALSoundResource data, OALBackendBuffer buffer)
 	{
+		OALBuffer b = OALSystemBackend.getOALBuffer(buffer);
 		for (OALSoundStageListener l : listeners)
-			l.soundReleased(data, buffer);
+			l.soundReleased(data, b);
 	}
 
 	/**
@@ -1526,6 +3434,24 @@ public class OALSoundStage<T extends Object>
 			l.soundStreamStarted(data);
 	}
 
+	/**
+	 * Fires a sound stream underrun event.
+	 */
+	protected void fireSoundStreamUnderrunEvent(OALSoundResource data, int underruns)
+	{
+		for (OALSoundStageListener l : listeners)
+			l.soundStreamUnderrun(data, underruns);
+	}
+
+	/**
+	 * Fires a sound stream loop redecoded event.
+	 */
+	protected void fireSoundStreamLoopRedecodedEvent(OALSoundResource data, int passes)
+	{
+		for (OALSoundStageListener l : listeners)
+			l.soundStreamLoopRedecoded(data, passes);
+	}
+
 	/**
 	 * Fires a sound stream stopped event.
 	 */
@@ -1616,19 +3542,39 @@ public class OALSoundStage<T extends Object>
 		public OALSoundResource resource;
 		public OALSoundGroup group;
 		public T object;
-		public Integer channel;
+		public int channel;
 		public float gain;
 		public float pitch;
+		/** The background load this event is waiting on, if any. */
+		public SoundLoader loader;
+		/** When this event started waiting on a background load, in nanoseconds. */
+		public long loadNanos;
+		/** Position to seek to. */
+		public long position;
+		/** Is the position in milliseconds instead of sample frames? */
+		public boolean millis;
 		
 		public StageEvent()
 		{ 
+			clear();
+		}
+		
+		/**
+		 * Resets this event's fields for reuse.
+		 */
+		public void clear()
+		{
 			type = null;
 			resource = null;
 			group = null;
 			object = null;
-			channel = null;
+			channel = NO_CHANNEL;
 			gain = 1.0f;
 			pitch = 1.0f;
+			loader = null;
+			loadNanos = 0L;
+			position = 0L;
+			millis = false;
 		}
 		
 		// for debugging purposes.
@@ -1672,6 +3618,15 @@ public class OALSoundStage<T extends Object>
 					sb.append(" PRECACHE ");
 					sb.append(resource.toString());
 					break;
+				case SEEK:
+					sb.append(" SEEK ");
+					sb.append(object.toString());
+					sb.append(' ');
+					sb.append(channel);
+					sb.append(' ');
+					sb.append(position);
+					sb.append(millis ? "ms" : "");
+					break;
 				/*
 				case EFFECT_APPLY:
 					sb.append(" APPLY EFFECT ");
@@ -1689,6 +3644,366 @@ public class OALSoundStage<T extends Object>
 		
 	}
 
+	/**
+	 * A doubly-linked list of voices whose links are kept on the voices themselves,
+	 * so adding and removing a voice takes constant time. 
+	 * A voice can be in one list per link at a time.
+	 * Lists of an object's voices also look up voices by channel, by walking the list,
+	 * since objects only play a few voices at once.
+	 */
+	protected final class VoiceList implements Iterable<Voice>
+	{
+		/** Link for the used or free voice list. */
+		static final int LINK_STATE = 0;
+		/** Link for the voices playing a sound. */
+		static final int LINK_SOUND = 1;
+		/** Link for the voices playing in a group. */
+		static final int LINK_GROUP = 2;
+		/** Link for the voices playing on an object. */
+		static final int LINK_OBJECT = 3;
+		/** Amount of links. */
+		static final int LINK_COUNT = 4;
+		
+		/** The link used by this list. */
+		private int link;
+		/** First voice. */
+		private Voice head;
+		/** Last voice. */
+		private Voice tail;
+		/** Amount of voices. */
+		private int size;
+		
+		VoiceList(int link)
+		{
+			this.link = link;
+			head = null;
+			tail = null;
+			size = 0;
+		}
+		
+		/**
+		 * Adds a voice to the end of this list.
+		 */
+		public void add(Voice voice)
+		{
+			voice.lists[link] = this;
+			voice.prev[link] = tail;
+			voice.next[link] = null;
+			if (tail != null)
+				tail.next[link] = voice;
+			else
+				head = voice;
+			tail = voice;
+			size++;
+		}
+		
+		/**
+		 * Removes a voice from this list.
+		 * @return true if removed, false if it was not in this list.
+		 */
+		public boolean remove(Voice voice)
+		{
+			if (voice.lists[link] != this)
+				return false;
+			
+			Voice p = voice.prev[link];
+			Voice n = voice.next[link];
+			if (p != null)
+				p.next[link] = n;
+			else
+				head = n;
+			if (n != null)
+				n.prev[link] = p;
+			else
+				tail = p;
+			voice.lists[link] = null;
+			voice.prev[link] = null;
+			voice.next[link] = null;
+			size--;
+			return true;
+		}
+		
+		/**
+		 * Removes and returns the first voice, or null if this list is empty.
+		 */
+		public Voice dequeue()
+		{
+			Voice out = head;
+			if (out != null)
+				remove(out);
+			return out;
+		}
+		
+		/**
+		 * Returns the first voice, or null if this list is empty.
+		 */
+		public Voice getFirst()
+		{
+			return head;
+		}
+		
+		/**
+		 * Returns the oldest voice in this list on a channel, or null if none.
+		 */
+		public Voice getChannel(int channel)
+		{
+			if (channel == NO_CHANNEL)
+				return null;
+			// another voice may share the channel if it could not be stopped.
+			for (Voice v = head; v != null; v = v.next[link])
+				if (v.channel == channel)
+					return v;
+			return null;
+		}
+		
+		/**
+		 * Returns the amount of voices in this list.
+		 */
+		public int size()
+		{
+			return size;
+		}
+		
+		/**
+		 * Returns true if this list is empty.
+		 */
+		public boolean isEmpty()
+		{
+			return size == 0;
+		}
+		
+		/**
+		 * Returns an iterator over this list. 
+		 * The current voice may be removed from this list while iterating.
+		 */
+		@Override
+		public Iterator<Voice> iterator()
+		{
+			return new Iterator<Voice>()
+			{
+				private Voice current = null;
+				private Voice upcoming = head;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return upcoming != null;
+				}
+				
+				@Override
+				public Voice next()
+				{
+					if (upcoming == null)
+						throw new NoSuchElementException();
+					current = upcoming;
+					upcoming = current.next[link];
+					return current;
+				}
+				
+				@Override
+				public void remove()
+				{
+					VoiceList.this.remove(current);
+				}
+			};
+		}
+	}
+
+	/**
+	 * A binary min-heap of used voices, least important first.
+	 * Voices keep their own index into the heap, so they can be 
+	 * removed or moved after a change in O(log n).
+	 */
+	protected final class VoiceHeap
+	{
+		/** The heap. */
+		private Voice[] heap;
+		/** Amount of voices in the heap. */
+		private int size;
+		
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		VoiceHeap(int capacity)
+		{
+			heap = (Voice[])new OALSoundStage.Voice[Math.max(capacity, 1)];
+			size = 0;
+		}
+		
+		/**
+		 * Returns the least important voice, or null if the heap is empty.
+		 */
+		public Voice peek()
+		{
+			return size > 0 ? heap[0] : null;
+		}
+		
+		/**
+		 * Adds a voice to the heap, if it is not in it.
+		 */
+		public void add(Voice voice)
+		{
+			if (voice.heapIndex >= 0)
+				return;
+			if (size == heap.length)
+			{
+				@SuppressWarnings({ "rawtypes", "unchecked" })
+				Voice[] newHeap = (Voice[])new OALSoundStage.Voice[heap.length * 2];
+				System.arraycopy(heap, 0, newHeap, 0, size);
+				heap = newHeap;
+			}
+			heap[size] = voice;
+			voice.heapIndex = size;
+			size++;
+			siftUp(voice.heapIndex);
+		}
+		
+		/**
+		 * Removes a voice from the heap, if it is in it.
+		 */
+		public void remove(Voice voice)
+		{
+			int i = voice.heapIndex;
+			if (i < 0)
+				return;
+			voice.heapIndex = -1;
+			size--;
+			if (i == size)
+			{
+				heap[size] = null;
+				return;
+			}
+			heap[i] = heap[size];
+			heap[i].heapIndex = i;
+			heap[size] = null;
+			update(heap[i]);
+		}
+		
+		/**
+		 * Moves a voice to its place after its sound or gain changed.
+		 */
+		public void update(Voice voice)
+		{
+			int i = voice.heapIndex;
+			if (i < 0)
+				return;
+			if (i > 0 && less(voice, heap[(i - 1) / 2]))
+				siftUp(i);
+			else
+				siftDown(i);
+		}
+		
+		/**
+		 * Removes all voices.
+		 */
+		public void clear()
+		{
+			for (int i = 0; i < size; i++)
+			{
+				heap[i].heapIndex = -1;
+				heap[i] = null;
+			}
+			size = 0;
+		}
+		
+		/**
+		 * Returns the amount of voices in the heap.
+		 */
+		public int size()
+		{
+			return size;
+		}
+		
+		// is a less important than b?
+		private boolean less(Voice a, Voice b)
+		{
+			float pa = a.sound.getPriority();
+			float pb = b.sound.getPriority();
+			if (pa != pb)
+				return pa < pb;
+			return a.audibleGain < b.audibleGain;
+		}
+		
+		private void siftUp(int i)
+		{
+			Voice voice = heap[i];
+			while (i > 0)
+			{
+				int parent = (i - 1) / 2;
+				if (!less(voice, heap[parent]))
+					break;
+				heap[i] = heap[parent];
+				heap[i].heapIndex = i;
+				i = parent;
+			}
+			heap[i] = voice;
+			voice.heapIndex = i;
+		}
+		
+		private void siftDown(int i)
+		{
+			Voice voice = heap[i];
+			int half = size / 2;
+			while (i < half)
+			{
+				int child = 2 * i + 1;
+				if (child + 1 < size && less(heap[child + 1], heap[child]))
+					child++;
+				if (!less(heap[child], voice))
+					break;
+				heap[i] = heap[child];
+				heap[i].heapIndex = i;
+				i = child;
+			}
+			heap[i] = voice;
+			voice.heapIndex = i;
+		}
+	}
+
+	/**
+	 * A looping sound being tracked without a source.
+	 */
+	protected class VirtualVoice
+	{
+		/** The sound being played. */
+		OALSoundResource sound;
+		/** The group that the sound is played in. */
+		OALSoundGroup group;
+		/** The object that is the source of the playback. */
+		T object;
+		/** The virtual channel on the object. */
+		int channel;
+		/** Gain of the play event, or the voice's initial gain if exact. */
+		float gain;
+		/** Pitch of the play event, or the voice's initial pitch if exact. */
+		float pitch;
+		/** Are gain and pitch already varied? */
+		boolean exact;
+		/** When the sound started playing, in nanoseconds, less time spent paused. */
+		long startNanos;
+		/** When this was paused, in nanoseconds, or -1 if not paused. */
+		long pausedNanos;
+		
+		/**
+		 * Pauses this voice's clock.
+		 */
+		public void pause()
+		{
+			if (pausedNanos < 0L)
+				pausedNanos = System.nanoTime();
+		}
+		
+		/**
+		 * Resumes this voice's clock.
+		 */
+		public void resume()
+		{
+			if (pausedNanos >= 0L)
+			{
+				startNanos += System.nanoTime() - pausedNanos;
+				pausedNanos = -1L;
+			}
+		}
+	}
+
 	/**
 	 * Virtual voices.
 	 */
@@ -1700,23 +4015,68 @@ public class OALSoundStage<T extends Object>
 		int id;
 
 		/** Voice's attached OpenAL source. */
-		OALSource source;
+		OALBackendSource source;
 		/** Voice's sound resource link (sound being played back). */
 		OALSoundResource sound;
+		/** Voice's pinned cached buffer, if not streaming. */
+		OALBackendBuffer buffer;
+		/** Voice's streamer, if streaming. */
+		SourceStreamer stream;
 		/** The group that this sound stage is a part of. */
 		OALSoundGroup group;
 		/** The object that is the source of the playback. */
 		T object;
 		/** The virtual channel for this stage. */
-		Integer channel;
+		int channel;
 		/** Initial intended pitch for the voice. */
 		float initPitch;
 		/** Initial intended gain for the voice. */
 		float initGain;
+		/** When this voice started playing, in nanoseconds, less time spent paused. */
+		long startNanos;
+		/** When this voice was paused, in nanoseconds, or -1 if not paused. */
+		long pausedNanos;
+		/** Estimated gain at the listener as of the last update. */
+		float audibleGain;
+		/** True if the last update found this voice's object past its sound's maximum attenuation distance. */
+		boolean tooFar;
+		/** Index in the voice heap, or -1 if not in it. */
+		int heapIndex;
+		/** Index of this voice's attributes in the bulk read arrays, or -1 to read from the model. */
+		int bulkIndex;
+		/** Last position sent to the source. */
+		float[] sentPosition;
+		/** Last velocity sent to the source. */
+		float[] sentVelocity;
+		/** Last direction sent to the source. */
+		float[] sentDirection;
+		/** Last gain sent to the source (NaN = none). */
+		float sentGain;
+		/** Last pitch sent to the source (NaN = none). */
+		float sentPitch;
+		/** The lists that this voice is in, by link. */
+		VoiceList[] lists;
+		/** The next voice in each list, by link. */
+		Voice[] next;
+		/** The previous voice in each list, by link. */
+		Voice[] prev;
 		
-		Voice(OALSource s, OALSoundStage<T> stage)
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		Voice(OALBackendSource s, OALSoundStage<T> stage)
 		{
 			source = s;
+			channel = NO_CHANNEL;
+			pausedNanos = -1L;
+			heapIndex = -1;
+			bulkIndex = -1;
+			sentPosition = new float[3];
+			sentVelocity = new float[3];
+			sentDirection = new float[3];
+			sentGain = Float.NaN;
+			sentPitch = Float.NaN;
+			lists = (VoiceList[])new OALSoundStage.VoiceList[VoiceList.LINK_COUNT];
+			next = (Voice[])new OALSoundStage.Voice[VoiceList.LINK_COUNT];
+			prev = (Voice[])new OALSoundStage.Voice[VoiceList.LINK_COUNT];
 			id = currentVoiceId++;
 		}
 		
@@ -1739,6 +4099,11 @@ public class OALSoundStage<T extends Object>
 			source.setPosition(0f, 0f, 0f);
 			source.setVelocity(0f, 0f, 0f);
 			source.setDirection(0f, 0f, 0f);
+			sentPosition[0] = sentPosition[1] = sentPosition[2] = 0f;
+			sentVelocity[0] = sentVelocity[1] = sentVelocity[2] = 0f;
+			sentDirection[0] = sentDirection[1] = sentDirection[2] = 0f;
+			sentGain = Float.NaN;
+			sentPitch = Float.NaN;
 			source.setRelative(group == null || (group != null && group.isRelative()));
 			source.setRolloff(sound.getRolloff());
 			
@@ -1756,6 +4121,8 @@ public class OALSoundStage<T extends Object>
 		{
 			float totalGain = initGain; 
 			float totalPitch = initPitch;
+			float attenuation = 1f;
+			tooFar = false;
 			
 			if (group != null)
 			{
@@ -1764,14 +4131,28 @@ public class OALSoundStage<T extends Object>
 				
 				if (object != null)
 				{
-					if (!sound.isNotPanned() && 
-						(getDistance(group, object) > sound.getPanningDeadzone()))
+					float x, y, z;
+					if (bulkIndex >= 0)
 					{
-						source.setPosition(
-							soundModel.getSoundPositionX(object),
-							soundModel.getSoundPositionY(object), 
-							soundModel.getSoundPositionZ(object)
-						);
+						x = bulkPositions[bulkIndex];
+						y = bulkPositions[bulkIndex + 1];
+						z = bulkPositions[bulkIndex + 2];
+					}
+					else
+					{
+						x = soundModel.getSoundPositionX(object);
+						y = soundModel.getSoundPositionY(object);
+						z = soundModel.getSoundPositionZ(object);
+					}
+					if (spatialIndex != null)
+						spatialIndex.update(object, x, y, z);
+					float distance = getDistance(group, x, y, z);
+					attenuation = getAttenuation(sound, distance);
+					tooFar = sound.getRolloff() != 0f && distance > sound.getMaxAttenuationDistance();
+
+					if (!sound.isNotPanned() && (distance > sound.getPanningDeadzone()))
+					{
+						sendPosition(x, y, z);
 					}
 					else
 					{
@@ -1779,14 +4160,14 @@ public class OALSoundStage<T extends Object>
 						{
 							default:
 							case LISTENER:
-								source.setPosition(
+								sendPosition(
 									listenerPosition.x, 
 									listenerPosition.y, 
 									listenerPosition.z
 								);
 								break;
 							case LISTENER_FRONT:
-								source.setPosition(
+								sendPosition(
 									listenerPosition.x + listenerFacing.x, 
 									listenerPosition.y + listenerFacing.y, 
 									listenerPosition.z + listenerFacing.z
@@ -1794,25 +4175,41 @@ public class OALSoundStage<T extends Object>
 								break;
 						}
 						else
-							source.setPosition(
+							sendPosition(
 								listenerPosition.x, 
 								listenerPosition.y, 
 								listenerPosition.z
 							);
 					}
 
-					if (!sound.isNotDoppled())
+					if (!sound.isNotDoppled() && bulkIndex >= 0)
 					{
-						source.setVelocity(
+						sendVelocity(
+							bulkVelocities[bulkIndex],
+							bulkVelocities[bulkIndex + 1],
+							bulkVelocities[bulkIndex + 2]
+						);
+					}
+					else if (!sound.isNotDoppled())
+					{
+						sendVelocity(
 							soundModel.getSoundVelocityX(object),
 							soundModel.getSoundVelocityY(object), 
 							soundModel.getSoundVelocityZ(object)
 						);
 					}
 					
-					if (!sound.isNotDirected())
+					if (!sound.isNotDirected() && bulkIndex >= 0)
+					{
+						sendDirection(
+							bulkDirections[bulkIndex],
+							bulkDirections[bulkIndex + 1],
+							bulkDirections[bulkIndex + 2]
+						);
+					}
+					else if (!sound.isNotDirected())
 					{
-						source.setDirection(
+						sendDirection(
 							soundModel.getSoundDirectionX(object),
 							soundModel.getSoundDirectionY(object), 
 							soundModel.getSoundDirectionZ(object)
@@ -1821,78 +4218,544 @@ public class OALSoundStage<T extends Object>
 				}
 			}
 
-			source.setGain(totalGain);
-			source.setPitch(totalPitch);
+			sendGain(totalGain);
+			sendPitch(totalPitch);
+			audibleGain = totalGain * attenuation;
+			if (voiceHeap != null && heapIndex >= 0)
+				voiceHeap.update(this);
 		}
 
-		public void reset()
+		/**
+		 * Sets the source position, if it changed by more than the parameter epsilon.
+		 */
+		private void sendPosition(float x, float y, float z)
 		{
-			if (!source.isStopped())
-			{
-				source.stop();
-				if (sound != null)
-					fireSoundStoppedEvent(sound);
-			}
-			source.reset();
-			source.rewind();
+			if (sendVector(sentPosition, x, y, z))
+				source.setPosition(x, y, z);
 		}
 
-		@Override
-		@SuppressWarnings({ "rawtypes", "unchecked" })
-		public boolean equals(Object obj)
+		/**
+		 * Sets the source velocity, if it changed by more than the parameter epsilon.
+		 */
+		private void sendVelocity(float x, float y, float z)
 		{
-			if (obj instanceof OALSoundStage.Voice)
-				return equals((OALSoundStage.Voice)obj);
-			else
-				return super.equals(obj);
+			if (sendVector(sentVelocity, x, y, z))
+				source.setVelocity(x, y, z);
 		}
-		
-		public boolean equals(Voice v)
+
+		/**
+		 * Sets the source direction, if it changed by more than the parameter epsilon.
+		 */
+		private void sendDirection(float x, float y, float z)
 		{
-			return id == v.id;
+			if (sendVector(sentDirection, x, y, z))
+				source.setDirection(x, y, z);
 		}
 
-		@Override
-		public String toString()
+		/**
+		 * Sets the source gain, if it changed by more than the parameter epsilon.
+		 */
+		private void sendGain(float gain)
 		{
-			StringBuilder sb = new StringBuilder();
-			sb.append("VOICE id: ");
-			sb.append(id);
-			sb.append(" Source OAL Id: ");
-			sb.append(source.getALId());
-			return sb.toString();
-		}
-	}
+			if (isChanged(sentGain, gain))
+			{
+				source.setGain(gain);
+				sentGain = gain;
+				sentParameterUpdates++;
+			}
+			else
+				skippedParameterUpdates++;
+		}
+
+		/**
+		 * Sets the source pitch, if it changed by more than the parameter epsilon.
+		 */
+		private void sendPitch(float pitch)
+		{
+			if (isChanged(sentPitch, pitch))
+			{
+				source.setPitch(pitch);
+				sentPitch = pitch;
+				sentParameterUpdates++;
+			}
+			else
+				skippedParameterUpdates++;
+		}
+
+		/**
+		 * Sets the source gain to 0, if it was not the last gain sent.
+		 * Culled voices are not updated, so this keeps them from
+		 * playing at the last gain they had while in range.
+		 */
+		public void silence()
+		{
+			if (sentGain != 0f)
+			{
+				source.setGain(0f);
+				sentGain = 0f;
+				sentParameterUpdates++;
+			}
+		}
+
+		// returns true and stores the vector if it needs to be sent.
+		private boolean sendVector(float[] sent, float x, float y, float z)
+		{
+			if (isChanged(sent[0], x) || isChanged(sent[1], y) || isChanged(sent[2], z))
+			{
+				sent[0] = x;
+				sent[1] = y;
+				sent[2] = z;
+				sentParameterUpdates++;
+				return true;
+			}
+			skippedParameterUpdates++;
+			return false;
+		}
+
+		// NaN always counts as changed.
+		private boolean isChanged(float sent, float value)
+		{
+			return !(Math.abs(value - sent) <= parameterEpsilon);
+		}
+
+		/**
+		 * Returns true if the spatial index puts this voice's object entirely past
+		 * its sound's maximum attenuation distance.
+		 * @param listener the listener position.
+		 */
+		public boolean isOutOfRange(Point3F listener)
+		{
+			if (object == null || group == null || sound.getRolloff() == 0f)
+				return false;
+			float max = sound.getMaxAttenuationDistance();
+			if (group.isRelative())
+				return spatialIndex.getMinimumDistance(object, 0f, 0f, 0f) > max;
+			else
+				return spatialIndex.getMinimumDistance(object, listener.x, listener.y, listener.z) > max;
+		}
+		
+		/**
+		 * Returns true if this voice's source is playing, paused,
+		 * or its stream is waiting on data after a seek.
+		 */
+		public boolean isActive()
+		{
+			return sourceStates[id] != SOURCE_STOPPED || (stream != null && stream.seeking);
+		}
+		
+		/**
+		 * Plays this voice's source.
+		 */
+		public void play()
+		{
+			source.play();
+			sourceStates[id] = SOURCE_PLAYING;
+		}
+		
+		/**
+		 * Stops this voice's source.
+		 */
+		public void stop()
+		{
+			source.stop();
+			sourceStates[id] = SOURCE_STOPPED;
+		}
+		
+		/**
+		 * Pauses this voice.
+		 */
+		public void pause()
+		{
+			if (pausedNanos < 0L)
+				pausedNanos = System.nanoTime();
+			if (stream != null && stream.seeking)
+				stream.seekPaused = true;
+			else if (sourceStates[id] == SOURCE_PLAYING)
+			{
+				source.pause();
+				sourceStates[id] = SOURCE_PAUSED;
+			}
+		}
+		
+		/**
+		 * Resumes this voice.
+		 */
+		public void resume()
+		{
+			if (pausedNanos >= 0L)
+			{
+				startNanos += System.nanoTime() - pausedNanos;
+				pausedNanos = -1L;
+			}
+			if (stream != null && stream.seeking)
+				stream.seekPaused = false;
+			else
+				play();
+		}
+		
+		public void reset()
+		{
+			if (stream != null)
+				stream.seeking = false;
+			stream = null;
+			if (sourceStates[id] != SOURCE_STOPPED)
+			{
+				stop();
+				if (sound != null)
+					fireSoundStoppedEvent(sound);
+			}
+			source.reset();
+			source.rewind();
+		}
+
+		@Override
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		public boolean equals(Object obj)
+		{
+			if (obj instanceof OALSoundStage.Voice)
+				return equals((OALSoundStage.Voice)obj);
+			else
+				return super.equals(obj);
+		}
+		
+		public boolean equals(Voice v)
+		{
+			return id == v.id;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("VOICE id: ");
+			sb.append(id);
+			sb.append(" Source Id: ");
+			sb.append(source.getId());
+			return sb.toString();
+		}
+	}
 	
 	/**
-	 * The streamer object made for each streaming source.  
+	 * A background decode of a sound resource's full PCM data.
+	 * Runs on the load executor, and is uploaded on the update thread.
+	 */
+	protected final class SoundLoader implements Runnable
+	{
+		/** The resource to decode. */
+		protected final OALSoundResource resource;
+		/** The decoded format. */
+		protected AudioFormat format;
+		/** The decoded data. */
+		protected byte[] data;
+		/** The amount of decoded bytes in data. */
+		protected int length;
+		/** The time that decoding took in nanoseconds. */
+		protected long decodeNanos;
+		/** Set if reading failed. */
+		protected IOException ioException;
+		/** Set if the format was not supported. */
+		protected UnsupportedAudioFileException formatException;
+		
+		/** The bulk precache that this is part of, if any. */
+		protected final CacheBatch batch;
+		
+		/** Set when decoding has finished, successfully or not. */
+		volatile boolean decoded;
+		/** Set if the executor refused to run this. */
+		volatile boolean rejected;
+		/** Set on the update thread when this has been handled. */
+		boolean done;
+		/** Set on the update thread if this could not be loaded. */
+		boolean failed;
+		
+		SoundLoader(OALSoundResource resource)
+		{
+			this(resource, null);
+		}
+		
+		SoundLoader(OALSoundResource resource, CacheBatch batch)
+		{
+			this.resource = resource;
+			this.batch = batch;
+			this.decoded = false;
+			this.rejected = false;
+			this.done = false;
+			this.failed = false;
+		}
+		
+		@Override
+		public void run()
+		{
+			long nanotime = System.nanoTime();
+			JSPISoundHandle.Decoder decoder = null;
+			try {
+				decoder = getSoundDataForResource(resource).getDecoder();
+				format = decoder.getDecodedAudioFormat();
+				int frameSize = format.getChannels() * (format.getSampleSizeInBits() / 8);
+				byte[] chunk = new byte[Math.max((int)format.getSampleRate() * frameSize / 4, 4096)];
+				byte[] out = new byte[chunk.length * 4];
+				int len = 0;
+				int read;
+				while ((read = decoder.readPCMBytes(chunk)) > 0)
+				{
+					if (len + read > out.length)
+						out = Arrays.copyOf(out, Math.max(out.length * 2, len + read));
+					System.arraycopy(chunk, 0, out, len, read);
+					len += read;
+				}
+				decodedBytes.addAndGet(len);
+				data = out;
+				length = len;
+				decodeNanos = System.nanoTime() - nanotime;
+			} catch (IOException e) {
+				ioException = e;
+			} catch (UnsupportedAudioFileException e) {
+				formatException = e;
+			} finally {
+				if (decoder != null)
+				{
+					try {
+						decoder.close();
+					} catch (IOException e) {
+						// the data is decoded by now, or has already failed.
+					}
+				}
+				decoded = true;
+				if (batch == null)
+					finishedLoads.add(this);
+			}
+		}
+	}
+	
+	/**
+	 * A bulk precache in progress, and its future.
+	 */
+	protected final class CacheBatch implements Future<Integer>
+	{
+		/** The resources to cache, in order. */
+		protected final OALSoundResource[] resources;
+		/** The loaders for each resource (null for streams or once handled). */
+		protected final SoundLoader[] loaders;
+		/** The next resource to upload. Update thread only. */
+		int next;
+		/** The amount of resources cached. */
+		volatile int cached;
+		/** Set if cancelled. */
+		volatile boolean cancelled;
+		/** Released when finished or cancelled. */
+		private final CountDownLatch latch;
+		
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		CacheBatch(OALSoundResource[] resources)
+		{
+			this.resources = resources;
+			this.loaders = new OALSoundStage.SoundLoader[resources.length];
+			for (int i = 0; i < resources.length; i++)
+				if (!resources[i].isStreaming())
+					loaders[i] = new SoundLoader(resources[i], this);
+			this.next = 0;
+			this.cached = 0;
+			this.cancelled = false;
+			this.latch = new CountDownLatch(1);
+		}
+		
+		void finish()
+		{
+			latch.countDown();
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			if (isDone())
+				return false;
+			cancelled = true;
+			latch.countDown();
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+
+		@Override
+		public boolean isDone()
+		{
+			return latch.getCount() == 0;
+		}
+
+		@Override
+		public Integer get() throws InterruptedException
+		{
+			latch.await();
+			return cached;
+		}
+
+		@Override
+		public Integer get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+		{
+			if (!latch.await(timeout, unit))
+				throw new TimeoutException("Precache not finished.");
+			return cached;
+		}
+	}
+	
+	/**
+	 * The streamer object made for each streaming source.
+	 * The first buffers are decoded when this is created, and the rest
+	 * are decoded ahead of playback on the stream decoder thread.
 	 */
 	protected final class SourceStreamer
 	{
-		protected OALSource sourceRef;
-		protected OALBuffer[] buffers;
+		protected OALBackendSource sourceRef;
+		/** The voice that owns the source. */
+		protected Voice voice;
+		protected OALBackendBuffer[] buffers;
 		protected OALSoundResource resourceRef;
 		protected JSPISoundHandle dataRef;
 		protected JSPISoundHandle.Decoder decoderRef;
 		protected AudioFormat decoderFormat;
+		/** Bytes per sample frame. */
+		protected int frameBytes;
 
 		protected byte[] bytebuffer;
+		/** Direct buffer that decoded data is copied into for uploading. Update thread only. */
+		protected ByteBuffer directBuffer;
+		
+		/** Decoded beginning of the sound, or null if there isn't one. */
+		protected OALStreamHeadCache.Head head;
+		/** Recently decoded data, or null if none is kept. Decoder thread only, once attached. */
+		protected PCMSeekCache seekCache;
+		/** Byte offset in the sound of the next data to decode. Decoder thread only, once attached. */
+		protected long position;
+		/** Byte offset in the sound that the open decoder is at. Decoder thread only, once attached. */
+		protected long decoderPosition;
+		
+		/** Byte offset of the start of the loop region. */
+		protected long loopStart;
+		/** Byte offset of the end of the loop region, or Long.MAX_VALUE until the end of the sound is found. */
+		protected long loopEnd;
+		/** Decoded beginning of the loop region, captured on the first pass. Decoder thread only. */
+		protected byte[] loopWindow;
+		/** Amount of bytes captured in the loop window. Decoder thread only. */
+		protected int loopWindowLength;
+		/** Maximum amount of bytes to capture in the loop window (0 = none). */
+		protected int loopWindowMax;
+		/** Has this looped back since the decoder was last read? Decoder thread only. */
+		protected boolean loopWrapped;
+		/** Loop passes that reopened the decoder. Written on the decoder thread only. */
+		volatile int loopRedecodes;
+		/** Loop passes already reported to listeners. Update thread only. */
+		protected int reportedLoopRedecodes;
 		
-		SourceStreamer(OALSoundResource resource) throws UnsupportedAudioFileException, IOException
+		/** How this stream is buffered. */
+		protected OALStreamingPolicy policy;
+		/** Amount of buffers owned by this stream, including added ones. */
+		protected int bufferCount;
+		/** Underruns since this stream last got another buffer. */
+		protected int growthUnderruns;
+		/** Decoded data waiting to be loaded into buffers. Update thread only. */
+		protected PCMRingBuffer pcm;
+		/** Ring being decoded into. Decoder thread only. */
+		protected PCMRingBuffer decodeRing;
+		/** Dequeued buffers waiting for decoded data. Update thread only. */
+		protected Queue<OALBackendBuffer> freeBuffers;
+		/** Amount of updates that could not refill a buffer. Update thread only. */
+		protected int underruns;
+		/** Is this stream waiting on data after a seek? Update thread only. */
+		protected boolean seeking;
+		/** Was the source paused when the seek started? Update thread only. */
+		protected boolean seekPaused;
+		
+		/** The latest seek, picked up by the decoder thread. */
+		volatile SeekRequest seekRequest;
+		/** Set when this stream is finished and should no longer be decoded. */
+		volatile boolean closed;
+		/** Set by the decoder thread if reading failed. */
+		volatile IOException ioException;
+		/** Set by the decoder thread if the format was not supported. */
+		volatile UnsupportedAudioFileException formatException;
+		
+		/**
+		 * Creates a new streamer.
+		 * If a head is provided, the first buffers are filled from it,
+		 * and the decoder is not opened until the head runs out.
+		 * Otherwise, they are decoded on this thread. 
+		 * @param resource the resource to stream.
+		 * @param head the decoded beginning of the resource, or null if there isn't one.
+		 */
+		SourceStreamer(OALSoundResource resource, OALStreamHeadCache.Head head) throws UnsupportedAudioFileException, IOException
 		{
 			resourceRef = resource;
-			startDecoder();
-			buffers = soundSystemRef.createBuffers(2);
-			for (OALBuffer b : buffers)
+			policy = resource.getStreamingPolicy();
+			if (policy == null)
+				policy = streamingPolicy;
+			this.head = head;
+			position = 0L;
+			decoderPosition = 0L;
+			if (head != null)
+			{
+				decoderFormat = head.getFormat();
+				bytebuffer = new byte[policy.getChunkBytes(decoderFormat)];
+			}
+			else
+				startDecoder();
+			frameBytes = decoderFormat.getChannels() * (decoderFormat.getSampleSizeInBits() / 8);
+			seekCache = streamSeekBytes > 0 ? new PCMSeekCache(bytebuffer.length, streamSeekBytes) : null;
+
+			loopStart = Math.max(0L, resource.getLoopStart()) * frameBytes;
+			loopEnd = resource.getLoopEnd() > resource.getLoopStart() ? resource.getLoopEnd() * frameBytes : Long.MAX_VALUE;
+			loopWindow = null;
+			loopWindowLength = 0;
+			loopWindowMax = resource.isLooping() ? (int)Math.min(streamLoopBytes, loopEnd - loopStart) : 0;
+			loopWrapped = false;
+			loopRedecodes = 0;
+			reportedLoopRedecodes = 0;
+
+			freeBuffers = new Queue<OALBackendBuffer>();
+			OALBackendBuffer[] created = backend.createBuffers(policy.getBufferCount());
+			bufferCount = created.length;
+			growthUnderruns = 0;
+			directBuffer = ByteBuffer.allocateDirect(bytebuffer.length);
+			int filled = 0;
+			boolean ended = false;
+			for (OALBackendBuffer b : created)
 			{
 				b.setSamplingRate((int)decoderFormat.getSampleRate());
 				b.setFormatByChannelsAndBits(decoderFormat.getChannels(), decoderFormat.getSampleSizeInBits());
-				int l = decoderRef.readPCMBytes(bytebuffer);
-				b.loadPCMData(ByteBuffer.wrap(bytebuffer),l);
+				// the rest of a partial head is decoded in the background.
+				if (head != null && position >= head.getLength() && !head.isComplete())
+				{
+					freeBuffers.enqueue(b);
+					continue;
+				}
+				int l = ended ? 0 : nextChunk(bytebuffer);
+				if (l > 0)
+				{
+					loadBuffer(b, bytebuffer, 0, l);
+					created[filled++] = b;
+				}
+				else
+				{
+					ended = true;
+					freeBuffers.enqueue(b);
+				}
 			}
+			buffers = filled < created.length ? Arrays.copyOf(created, filled) : created;
+			pcm = new PCMRingBuffer(STREAM_DECODE_AHEAD, bytebuffer.length);
+			if (ended)
+				pcm.end();
+			decodeRing = pcm;
+			underruns = 0;
+			seeking = false;
+			seekPaused = false;
+			seekRequest = null;
+			closed = false;
 		}
 
-		public void attachToSource(OALSource source)
+		public void attachToSource(OALBackendSource source)
 		{
 			sourceRef = source;
 			sourceRef.enqueueBuffers(buffers);
@@ -1900,10 +4763,65 @@ public class OALSoundStage<T extends Object>
 		
 		public void startDecoder() throws UnsupportedAudioFileException, IOException
 		{
+			closeDecoder();
 			dataRef = getSoundDataForResource(resourceRef);
 			decoderRef = dataRef.getDecoder();
 			decoderFormat = decoderRef.getDecodedAudioFormat();
-			bytebuffer = new byte[(int)decoderFormat.getSampleRate()*decoderFormat.getChannels()*(decoderFormat.getSampleSizeInBits()/8)];
+			decoderPosition = 0L;
+			if (bytebuffer == null)
+				bytebuffer = new byte[policy.getChunkBytes(decoderFormat)];
+		}
+		
+		/**
+		 * Closes the open decoder, if any. It is reopened if more data is read.
+		 * Called on the decoder thread only, once attached.
+		 */
+		protected void closeDecoder() throws IOException
+		{
+			if (decoderRef == null)
+				return;
+			JSPISoundHandle.Decoder decoder = decoderRef;
+			decoderRef = null;
+			dataRef = null;
+			decoder.close();
+		}
+		
+		/**
+		 * Returns true if this streamer's source is playing, paused,
+		 * or waiting on data after a seek.
+		 */
+		public boolean isActive()
+		{
+			return seeking || sourceStates[voice.id] != SOURCE_STOPPED;
+		}
+		
+		/**
+		 * Moves playback to a sample frame, from the start of the sound.
+		 * The source stops until the decoder thread has data for the new position,
+		 * then resumes in the state it was in (playing or paused).
+		 * Called on the update thread only.
+		 * @param frame the sample frame to play from.
+		 */
+		public void seek(long frame)
+		{
+			if (!seeking)
+				seekPaused = sourceStates[voice.id] == SOURCE_PAUSED;
+			seeking = true;
+			voice.stop();
+			for (OALBackendBuffer b : sourceRef.dequeueAllBuffers())
+				freeBuffers.enqueue(b);
+			pcm = new PCMRingBuffer(STREAM_DECODE_AHEAD, bytebuffer.length);
+			seekRequest = new SeekRequest(Math.max(0L, frame) * frameBytes, pcm);
+			if (streamDecoder != null)
+				streamDecoder.wake();
+		}
+		
+		/**
+		 * Converts milliseconds into this stream's sample frames.
+		 */
+		public long getFrame(long millis)
+		{
+			return (long)(millis * (double)decoderFormat.getSampleRate() / 1000.0);
 		}
 		
 		/**
@@ -1914,34 +4832,410 @@ public class OALSoundStage<T extends Object>
 			return sourceRef == null;
 		}
 		
-		// returns the amount of bytes loaded.
-		public int streamUpdate() throws UnsupportedAudioFileException, IOException
+		/**
+		 * Gets the amount of updates that could not refill a buffer
+		 * because the decoder had not caught up.
+		 */
+		public int getUnderrunCount()
+		{
+			return underruns;
+		}
+		
+		/**
+		 * Reads the next chunk of the sound into a chunk, splicing back to
+		 * the loop start at the loop end (or the end of the sound) if the sound loops.
+		 * Once the whole loop region is in the loop window, the decoder is closed.
+		 * Called on the decoder thread only, once attached.
+		 * @return the amount of bytes read, or 0 or less if the sound ended.
+		 */
+		protected int nextChunk(byte[] chunk) throws UnsupportedAudioFileException, IOException
 		{
-			int out = -1;
-			int p = sourceRef.getProcessedBufferCount();
-			while (p-- > 0 && out != 0)
+			boolean looping = resourceRef.isLooping();
+			boolean restarted = false;
+			while (true)
 			{
-				OALBuffer b = sourceRef.dequeueBuffer();
-				out = decoderRef.readPCMBytes(bytebuffer);
-				if (out > 0)
+				if (looping && position >= loopEnd)
 				{
-					b.loadPCMData(ByteBuffer.wrap(bytebuffer),out);
-					sourceRef.enqueueBuffer(b);
+					position = loopStart;
+					loopWrapped = true;
+					// played from memory from now on.
+					if (loopWindowLength >= loopEnd - loopStart)
+						closeDecoder();
 				}
-				else if (out == 0 && resourceRef.isLooping())
+				
+				int len = readAt(chunk);
+				if (len > 0)
+				{
+					if (looping && position + len > loopEnd)
+						len = (int)(loopEnd - position);
+					if (loopWindowMax > 0)
+						captureLoop(chunk, len);
+					position += len;
+					return len;
+				}
+				
+				// restart once per empty read, so that an empty sound does not loop forever.
+				if (!looping || restarted)
+					return len;
+				loopEnd = position;
+				position = loopStart;
+				loopWrapped = true;
+				restarted = true;
+			}
+		}
+		
+		/**
+		 * Reads data at the current position into a chunk, from memory if
+		 * it is in the head, the loop window, or the seek cache, or from the decoder if not.
+		 * @return the amount of bytes read, or 0 or less if the sound ended.
+		 */
+		protected int readAt(byte[] chunk) throws UnsupportedAudioFileException, IOException
+		{
+			if (head != null && position < head.getLength())
+			{
+				int len = Math.min(chunk.length, head.getLength() - (int)position);
+				System.arraycopy(head.getData(), (int)position, chunk, 0, len);
+				return len;
+			}
+			else if (loopWindow != null && position >= loopStart && position < loopStart + loopWindowLength)
+			{
+				int offset = (int)(position - loopStart);
+				int len = Math.min(chunk.length, loopWindowLength - offset);
+				System.arraycopy(loopWindow, offset, chunk, 0, len);
+				return len;
+			}
+			else
+				return readDecoded(chunk);
+		}
+		
+		/**
+		 * Copies the part of a chunk at the current position that continues 
+		 * the loop window into it, if the window is not yet full.
+		 */
+		protected void captureLoop(byte[] chunk, int len)
+		{
+			if (loopWindowLength >= loopWindowMax)
+				return;
+			long want = loopStart + loopWindowLength;
+			if (position > want || position + len <= want)
+				return;
+			
+			int offset = (int)(want - position);
+			int n = Math.min(len - offset, loopWindowMax - loopWindowLength);
+			if (loopWindow == null || loopWindowLength + n > loopWindow.length)
+			{
+				int size = loopWindow == null ? chunk.length * STREAM_DECODE_AHEAD : loopWindow.length * 2;
+				size = Math.min(loopWindowMax, Math.max(size, loopWindowLength + n));
+				loopWindow = loopWindow == null ? new byte[size] : Arrays.copyOf(loopWindow, size);
+			}
+			System.arraycopy(chunk, offset, loopWindow, loopWindowLength, n);
+			loopWindowLength += n;
+		}
+		
+		/**
+		 * Reads the next chunk of data from the seek cache or the decoder into a chunk,
+		 * starting at the current position.
+		 * If the data is not in the seek cache, this reopens the decoder if it is 
+		 * not open or past the position, and skips ahead if it is behind it - 
+		 * decoders can only read forward. Decoded data is kept in the seek cache.
+		 * The decoder is closed at the end of the sound.
+		 * @return the amount of bytes read, or 0 or less if the sound ended.
+		 */
+		protected int readDecoded(byte[] chunk) throws UnsupportedAudioFileException, IOException
+		{
+			if (seekCache != null)
+			{
+				int len = seekCache.read(position, chunk, 0, chunk.length);
+				if (len > 0)
+					return len;
+				if (seekCache.getLength() >= 0L && position >= seekCache.getLength())
+					return 0;
+			}
+			
+			if (decoderRef == null || decoderPosition > position)
+			{
+				if (head != null && head.isComplete())
+					return 0;
+				// the loop region did not fit in memory.
+				if (loopWrapped)
+				{
+					loopRedecodes++;
+					OALSoundStage.this.loopRedecodes.incrementAndGet();
+				}
+				startDecoder();
+			}
+			loopWrapped = false;
+			
+			while (true)
+			{
+				int len = decoderRef.readPCMBytes(chunk);
+				if (len <= 0)
+				{
+					if (seekCache != null)
+						seekCache.setLength(decoderPosition);
+					closeDecoder();
+					return len;
+				}
+				decodedBytes.addAndGet(len);
+				long start = decoderPosition;
+				decoderPosition += len;
+				if (seekCache != null)
+					seekCache.write(start, chunk, 0, len);
+				if (decoderPosition <= position)
+					continue;
+				if (start < position)
+				{
+					int skip = (int)(position - start);
+					len -= skip;
+					System.arraycopy(chunk, skip, chunk, 0, len);
+				}
+				return len;
+			}
+		}
+		
+		/**
+		 * Decodes data into free chunks until there are none.
+		 * Called on the stream decoder thread only.
+		 * @return true if anything was decoded, false if there was nothing to do.
+		 */
+		boolean decodeAhead()
+		{
+			SeekRequest seek = seekRequest;
+			if (seek != null && seek.ring != decodeRing)
+			{
+				decodeRing = seek.ring;
+				position = seek.position;
+				loopWrapped = false;
+			}
+			
+			if (closed || decodeRing.isEnded())
+				return false;
+			
+			boolean out = false;
+			long nanotime = System.nanoTime();
+			long bytes = 0L;
+			byte[] chunk;
+			try {
+				while ((chunk = decodeRing.getWriteChunk()) != null)
 				{
-					startDecoder();
-					out = decoderRef.readPCMBytes(bytebuffer);
-					if (out > 0)
+					int len = nextChunk(chunk);
+					if (len <= 0)
 					{
-						b.loadPCMData(ByteBuffer.wrap(bytebuffer),out);
-						sourceRef.enqueueBuffer(b);
+						decodeRing.end();
+						return true;
 					}
+					decodeRing.commitWrite(len);
+					bytes += len;
+					out = true;
 				}
+			} catch (IOException e) {
+				ioException = e;
+				decodeRing.end();
+			} catch (UnsupportedAudioFileException e) {
+				formatException = e;
+				decodeRing.end();
+			} finally {
+				OALSoundStageProfiler p = profiler;
+				if (p != null && bytes > 0L)
+					p.streamRefilled(resourceRef, System.nanoTime() - nanotime, bytes);
 			}
 			return out;
 		}
 		
+		/**
+		 * Refills processed buffers with decoded data and requeues them.
+		 * Called on the update thread only.
+		 * @return the amount of bytes loaded, or -1 if a buffer could not be refilled
+		 * because the decoder had not caught up.
+		 */
+		public int streamUpdate()
+		{
+			int out = 0;
+			int p = seeking ? 0 : sourceRef.getProcessedBufferCount();
+			while (p-- > 0)
+				freeBuffers.enqueue(sourceRef.dequeueBuffer());
+			
+			byte[] chunk;
+			while (!freeBuffers.isEmpty() && (chunk = pcm.getReadChunk()) != null)
+			{
+				int len = pcm.getReadLength();
+				OALBackendBuffer b = freeBuffers.dequeue();
+				loadBuffer(b, chunk, 0, len);
+				sourceRef.enqueueBuffer(b);
+				pcm.commitRead();
+				out += len;
+			}
+			
+			if (out > 0 && streamDecoder != null)
+				streamDecoder.wake();
+			
+			if (seeking)
+			{
+				// resume once there is data, or give up if the seek was past the end.
+				if (out > 0)
+				{
+					seeking = false;
+					voice.play();
+					if (seekPaused)
+						voice.pause();
+				}
+				else if (pcm.isEnded())
+					seeking = false;
+				return out;
+			}
+			
+			if (!freeBuffers.isEmpty() && !pcm.isEnded())
+			{
+				underruns++;
+				if (policy.isAdaptive() && ++growthUnderruns >= policy.getUnderrunsPerGrowth())
+					addBuffer();
+				return -1;
+			}
+			return out;
+		}
+		
+		/**
+		 * Loads decoded data into a buffer through this stream's direct buffer,
+		 * so that it can be handed to OpenAL without another copy.
+		 */
+		protected void loadBuffer(OALBackendBuffer buffer, byte[] data, int offset, int len)
+		{
+			directBuffer.clear();
+			directBuffer.put(data, offset, len);
+			directBuffer.flip();
+			buffer.loadPCMData(directBuffer, len);
+		}
+		
+		/**
+		 * Gives this stream another buffer, if its policy allows it.
+		 * The buffer is queued once there is decoded data for it.
+		 */
+		protected void addBuffer()
+		{
+			growthUnderruns = 0;
+			if (bufferCount >= policy.getMaxBufferCount())
+				return;
+			OALBackendBuffer b = backend.createBuffer();
+			b.setSamplingRate((int)decoderFormat.getSampleRate());
+			b.setFormatByChannelsAndBits(decoderFormat.getChannels(), decoderFormat.getSampleSizeInBits());
+			freeBuffers.enqueue(b);
+			bufferCount++;
+		}
+		
+	}
+	
+	/**
+	 * A request for the decoder thread to decode from a new position into a new ring.
+	 */
+	protected static final class SeekRequest
+	{
+		/** Byte offset in the sound to decode from. */
+		final long position;
+		/** The ring to decode into. */
+		final PCMRingBuffer ring;
+		
+		SeekRequest(long position, PCMRingBuffer ring)
+		{
+			this.position = position;
+			this.ring = ring;
+		}
+	}
+	
+	/**
+	 * The thread that decodes data ahead of playback for all streams.
+	 */
+	protected final class StreamDecoderThread extends Thread
+	{
+		/** Nanoseconds to sleep if there is nothing to decode. */
+		private static final long IDLE_NANOS = 5000000L;
+		
+		/** Streams added since the last pass. */
+		private ConcurrentLinkedQueue<SourceStreamer> incoming;
+		/** Streams being decoded. Decoder thread only. */
+		private Queue<SourceStreamer> active;
+		/** Is this running? */
+		private volatile boolean running;
+		
+		StreamDecoderThread()
+		{
+			super("OALSoundStage-StreamDecoder");
+			setDaemon(true);
+			incoming = new ConcurrentLinkedQueue<SourceStreamer>();
+			active = new Queue<SourceStreamer>();
+			running = true;
+		}
+		
+		/**
+		 * Adds a stream to decode.
+		 */
+		void add(SourceStreamer stream)
+		{
+			incoming.add(stream);
+			wake();
+		}
+		
+		/**
+		 * Wakes this thread if it is idle.
+		 */
+		void wake()
+		{
+			LockSupport.unpark(this);
+		}
+		
+		/**
+		 * Stops this thread after its current pass.
+		 */
+		void shutDown()
+		{
+			running = false;
+			wake();
+		}
+		
+		@Override
+		public void run()
+		{
+			while (running)
+			{
+				SourceStreamer stream;
+				while ((stream = incoming.poll()) != null)
+					active.enqueue(stream);
+				
+				boolean worked = false;
+				Iterator<SourceStreamer> it = active.iterator();
+				while (it.hasNext())
+				{
+					stream = it.next();
+					if (stream.closed)
+					{
+						close(stream);
+						it.remove();
+					}
+					else if (stream.decodeAhead())
+						worked = true;
+				}
+				
+				if (!worked)
+					LockSupport.parkNanos(this, IDLE_NANOS);
+			}
+			
+			SourceStreamer stream;
+			while ((stream = incoming.poll()) != null)
+				close(stream);
+			while (!active.isEmpty())
+				close(active.dequeue());
+		}
+		
+		/**
+		 * Closes a stream's decoder.
+		 */
+		private void close(SourceStreamer stream)
+		{
+			try {
+				stream.closeDecoder();
+			} catch (IOException e) {
+				// the stream is finished - there is no one left to tell.
+			}
+		}
 	}
 	
 }
@@ -42,6 +42,11 @@ public class OALSoundStageAdapter implements OALSoundStageListener
 	{
 	}
 
+	@Override
+	public void soundCacheProgress(OALSoundResource data, int completed, int total)
+	{
+	}
+
 	@Override
 	public void soundStreamStarted(OALSoundResource data)
 	{
@@ -52,6 +57,16 @@ public class OALSoundStageAdapter implements OALSoundStageListener
 	{
 	}
 
+	@Override
+	public void soundStreamUnderrun(OALSoundResource data, int underruns)
+	{
+	}
+
+	@Override
+	public void soundStreamLoopRedecoded(OALSoundResource data, int passes)
+	{
+	}
+
 	@Override
 	public void sourcePaused(OALSource source)
 	{
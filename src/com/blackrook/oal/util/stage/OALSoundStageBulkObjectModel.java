@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import java.util.List;
+
+/**
+ * Sound stage model that can read the attributes of many objects at once.
+ * If a stage's model implements this, the stage reads the attributes of all
+ * voices that it updates with one call per voice update, instead of nine calls per voice.
+ * The single-object getters are still used elsewhere, like for distance checks on play.
+ * @author Matthew Tropiano
+ */
+public interface OALSoundStageBulkObjectModel<T extends Object> extends OALSoundStageObjectModel<T>
+{
+	/**
+	 * Gets the positions, velocities, and direction vectors of the object sources of sounds.
+	 * Each is written as three floats per object (x, y, z), in the same order as the objects.
+	 * @param objects the objects to read.
+	 * @param positions the output array for positions, at least <code>objects.size() * 3</code> long.
+	 * @param velocities the output array for velocities, at least <code>objects.size() * 3</code> long.
+	 * @param directions the output array for direction vectors, at least <code>objects.size() * 3</code> long.
+	 */
+	public void getSoundAttributes(List<T> objects, float[] positions, float[] velocities, float[] directions);
+
+}
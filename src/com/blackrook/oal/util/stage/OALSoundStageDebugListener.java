@@ -73,6 +73,12 @@ public class OALSoundStageDebugListener implements OALSoundStageListener
 			);
 	}
 
+	@Override
+	public void soundCacheProgress(OALSoundResource data, int completed, int total)
+	{
+		out.printf("SoundCacheProgress: Sound %d of %d was precached: \"%s\"\n", completed, total, data.getName());
+	}
+
 	@Override
 	public void soundPlayed(OALSoundResource data)
 	{
@@ -97,6 +103,18 @@ public class OALSoundStageDebugListener implements OALSoundStageListener
 		out.printf("SoundStreamStopped: Sound stream was stopped: \"%s\"\n", data.getName());
 	}
 
+	@Override
+	public void soundStreamUnderrun(OALSoundResource data, int underruns)
+	{
+		err.printf("SoundStreamUnderrun: Sound stream could not keep up: \"%s\", %d underrun(s)\n", data.getName(), underruns);
+	}
+
+	@Override
+	public void soundStreamLoopRedecoded(OALSoundResource data, int passes)
+	{
+		err.printf("SoundStreamLoopRedecoded: Sound stream loop did not fit in memory, and was decoded again: \"%s\", %d pass(es)\n", data.getName(), passes);
+	}
+
 	@Override
 	public void sourcePlayed(OALSource source)
 	{
@@ -24,17 +24,26 @@ public interface OALSoundStageListener
 	/**
 	 * Called when a sound is cached. 
 	 * @param data		the sound data that was the source of the data.
-	 * @param buffer	the buffer that was cached.
+	 * @param buffer	the buffer that was cached, or null if the stage does not play through OpenAL.
 	 */
 	public void soundCached(OALSoundResource data, OALBuffer buffer);
 	
 	/**
 	 * Called when the buffer was released from the cache.
 	 * @param data		the sound data that was the source of the data.
-	 * @param buffer	The buffer that was released from the cache.
+	 * @param buffer	The buffer that was released from the cache, or null if the stage does not play through OpenAL.
 	 */
 	public void soundReleased(OALSoundResource data, OALBuffer buffer);
 	
+	/**
+	 * Called when a resource in a bulk precache is finished, successfully or not.
+	 * @param data		the sound data that was finished.
+	 * @param completed	the amount of resources finished so far in the precache.
+	 * @param total		the total amount of resources in the precache.
+	 * @see OALSoundStage#cacheSoundsAsync(java.util.Collection, java.util.concurrent.Executor)
+	 */
+	public void soundCacheProgress(OALSoundResource data, int completed, int total);
+	
 	/**
 	 * Called when a sound resource is played. 
 	 */
@@ -55,8 +64,26 @@ public interface OALSoundStageListener
 	 */
 	public void soundStreamStopped(OALSoundResource data);
 	
+	/**
+	 * Called when a stream has a buffer that it could not refill 
+	 * because its decoder had not caught up with playback.
+	 * @param data		the sound data being streamed.
+	 * @param underruns	the amount of underruns on this stream so far.
+	 */
+	public void soundStreamUnderrun(OALSoundResource data, int underruns);
+	
+	/**
+	 * Called when a looping stream's loop region did not fit in memory,
+	 * and its decoder was reopened to decode it again on another pass.
+	 * @param data		the sound data being streamed.
+	 * @param passes	the amount of passes on this stream that were decoded again so far.
+	 * @see OALSoundStage#setStreamLoopCacheBytes(int)
+	 */
+	public void soundStreamLoopRedecoded(OALSoundResource data, int passes);
+	
 	/**
 	 * Called when a Source is played.
+	 * Source events only happen if the stage plays through OpenAL.
 	 * @param source 	the source that this occurred on. 
 	 */
 	public void sourcePlayed(OALSource source);
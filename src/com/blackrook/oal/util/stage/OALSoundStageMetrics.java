@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import java.util.Arrays;
+
+/**
+ * Update phase latency histograms and event, voice, cache and stream counters
+ * for a sound stage, kept across updates until reset.
+ * <p>
+ * The stage records the time of each update phase as it finishes, along with
+ * how much its counters have changed since the last phase. {@link #snapshot()} copies
+ * everything recorded so far, and {@link #reset()} starts over. Both are safe to call from any thread.
+ * @author Matthew Tropiano
+ * @see OALSoundStage#setMetricsEnabled(boolean)
+ */
+public class OALSoundStageMetrics
+{
+	/**
+	 * Timed update phases.
+	 */
+	public static enum Phase
+	{
+		/** {@link OALSoundStage#updateHooks()}. */
+		HOOKS,
+		/** {@link OALSoundStage#updateListener()}. */
+		LISTENER,
+		/** {@link OALSoundStage#updateEvents()}. */
+		EVENTS,
+		/** {@link OALSoundStage#updateStreams()}. */
+		STREAMS,
+		/** {@link OALSoundStage#updateVoices()}. */
+		VOICES,
+		/** All of {@link OALSoundStage#update()}. */
+		UPDATE;
+	}
+
+	/**
+	 * Counted occurrences.
+	 */
+	public static enum Counter
+	{
+		/** Events handled. */
+		EVENTS_PROCESSED,
+		/** Events dropped on event queue overflow. */
+		EVENTS_DROPPED,
+		/** Play events put off to the next event update, because their sounds were loading or they must always be played. */
+		EVENTS_DELAYED,
+		/** Voices taken from the free voices to play a sound. */
+		VOICES_ACQUIRED,
+		/** Voices stopped to play a more important sound. */
+		VOICES_STOLEN,
+		/** Voices returned to the free voices after their sounds stopped. */
+		VOICES_RECYCLED,
+		/** Buffer cache hits. */
+		CACHE_HITS,
+		/** Buffer cache misses. */
+		CACHE_MISSES,
+		/** Buffer cache evictions. */
+		CACHE_EVICTIONS,
+		/** Stream underruns. */
+		STREAM_UNDERRUNS,
+		/** Loop passes that decoded a stream's loop region again, because it did not fit in memory. */
+		STREAM_LOOP_REDECODES,
+		/** Bytes of PCM data decoded, for caching or streaming. */
+		BYTES_DECODED;
+	}
+
+	/** Histograms by phase. */
+	private Histogram[] histograms;
+	/** Counts by counter, since the last reset. */
+	private long[] counts;
+	/** The stage's counter totals at the last record. */
+	private long[] lastTotals;
+	/** Time of the last reset in milliseconds. */
+	private long startMillis;
+
+	/**
+	 * Creates new metrics.
+	 * @param totals the stage's current counter totals, indexed by {@link Counter} ordinal.
+	 */
+	OALSoundStageMetrics(long[] totals)
+	{
+		histograms = new Histogram[Phase.values().length];
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new Histogram();
+		counts = new long[Counter.values().length];
+		lastTotals = Arrays.copyOf(totals, counts.length);
+		startMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Records the time of an update phase, and the changes in the stage's counters.
+	 * @param phase the phase.
+	 * @param nanos the time that the phase took in nanoseconds.
+	 * @param totals the stage's current counter totals, indexed by {@link Counter} ordinal.
+	 */
+	synchronized void record(Phase phase, long nanos, long[] totals)
+	{
+		histograms[phase.ordinal()].record(nanos);
+		for (int i = 0; i < counts.length; i++)
+		{
+			// totals that went down were reset elsewhere.
+			counts[i] += totals[i] >= lastTotals[i] ? totals[i] - lastTotals[i] : totals[i];
+			lastTotals[i] = totals[i];
+		}
+	}
+
+	/**
+	 * Returns a copy of everything recorded since the last reset.
+	 */
+	public synchronized Snapshot snapshot()
+	{
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Clears all histograms and counts.
+	 */
+	public synchronized void reset()
+	{
+		for (Histogram h : histograms)
+			h.reset();
+		Arrays.fill(counts, 0L);
+		startMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * A copy of the metrics at one point in time.
+	 */
+	public static class Snapshot
+	{
+		/** Histograms by phase. */
+		private Histogram[] histograms;
+		/** Counts by counter. */
+		private long[] counts;
+		/** Time of the last reset in milliseconds. */
+		private long startMillis;
+		/** Time of this snapshot in milliseconds. */
+		private long endMillis;
+
+		private Snapshot(OALSoundStageMetrics metrics)
+		{
+			histograms = new Histogram[metrics.histograms.length];
+			for (int i = 0; i < histograms.length; i++)
+				histograms[i] = new Histogram(metrics.histograms[i]);
+			counts = Arrays.copyOf(metrics.counts, metrics.counts.length);
+			startMillis = metrics.startMillis;
+			endMillis = System.currentTimeMillis();
+		}
+
+		/**
+		 * Gets the latency histogram for an update phase, in nanoseconds.
+		 */
+		public Histogram getHistogram(Phase phase)
+		{
+			return histograms[phase.ordinal()];
+		}
+
+		/**
+		 * Gets the count for a counter.
+		 */
+		public long getCount(Counter counter)
+		{
+			return counts[counter.ordinal()];
+		}
+
+		/**
+		 * Gets the time of the reset that started this snapshot's period, in milliseconds.
+		 */
+		public long getStartMillis()
+		{
+			return startMillis;
+		}
+
+		/**
+		 * Gets the time that this snapshot was taken, in milliseconds.
+		 */
+		public long getEndMillis()
+		{
+			return endMillis;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("Sound stage metrics over ").append(endMillis - startMillis).append(" ms (latencies in microseconds):\n");
+			for (Phase phase : Phase.values())
+			{
+				Histogram h = getHistogram(phase);
+				sb.append(String.format("%-9s count %d, mean %.1f, p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f\n",
+					phase, h.getCount(), h.getMean() / 1000.0,
+					h.getValueAtPercentile(50.0) / 1000.0, h.getValueAtPercentile(99.0) / 1000.0,
+					h.getValueAtPercentile(99.9) / 1000.0, h.getMax() / 1000.0
+				));
+			}
+			for (Counter counter : Counter.values())
+				sb.append(counter).append(' ').append(getCount(counter)).append('\n');
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * A histogram of nanosecond values, with buckets that grow with the values
+	 * so that every recorded value is kept to within about 3% of itself.
+	 * Values from 0 to about 36 minutes are kept; larger values are counted as the largest.
+	 * <p>
+	 * This class is not thread-safe.
+	 */
+	public static class Histogram
+	{
+		/** Bits of precision kept below the highest bit of each value. */
+		private static final int SUB_BUCKET_BITS = 5;
+		/** Amount of buckets per power of two. */
+		private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+		/** Highest bit of the values kept (below 2^41 ns, about 36 minutes). */
+		private static final int MAX_MAGNITUDE = 40;
+		/** Largest value kept. */
+		private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+		/** Counts per bucket. */
+		private long[] buckets;
+		/** Amount of values recorded. */
+		private long count;
+		/** Sum of values recorded. */
+		private long total;
+		/** Smallest value recorded. */
+		private long min;
+		/** Largest value recorded. */
+		private long max;
+
+		/**
+		 * Creates a new, empty histogram.
+		 */
+		public Histogram()
+		{
+			buckets = new long[(MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT];
+			reset();
+		}
+
+		/**
+		 * Creates a copy of a histogram.
+		 */
+		public Histogram(Histogram histogram)
+		{
+			buckets = Arrays.copyOf(histogram.buckets, histogram.buckets.length);
+			count = histogram.count;
+			total = histogram.total;
+			min = histogram.min;
+			max = histogram.max;
+		}
+
+		/**
+		 * Records a value. Negative values are recorded as 0.
+		 */
+		public void record(long value)
+		{
+			value = Math.min(Math.max(value, 0L), MAX_VALUE);
+			buckets[getIndex(value)]++;
+			count++;
+			total += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		/**
+		 * Gets the amount of values recorded.
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * Gets the smallest value recorded, or 0 if none were.
+		 */
+		public long getMin()
+		{
+			return count > 0 ? min : 0L;
+		}
+
+		/**
+		 * Gets the largest value recorded, or 0 if none were.
+		 */
+		public long getMax()
+		{
+			return max;
+		}
+
+		/**
+		 * Gets the mean of the values recorded, or 0 if none were.
+		 */
+		public double getMean()
+		{
+			return count > 0 ? (double)total / count : 0.0;
+		}
+
+		/**
+		 * Gets the value that a percentage of the recorded values are at or below,
+		 * to within the precision of this histogram, or 0 if none were recorded.
+		 * @param percentile the percentage, from 0 to 100.
+		 */
+		public long getValueAtPercentile(double percentile)
+		{
+			if (count == 0)
+				return 0L;
+			long target = Math.max(1L, (long)Math.ceil(count * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0));
+			long seen = 0L;
+			for (int i = 0; i < buckets.length; i++)
+			{
+				seen += buckets[i];
+				if (seen >= target)
+					return Math.min(getLowestValue(i + 1) - 1, max);
+			}
+			return max;
+		}
+
+		/**
+		 * Clears this histogram.
+		 */
+		public void reset()
+		{
+			Arrays.fill(buckets, 0L);
+			count = 0L;
+			total = 0L;
+			min = Long.MAX_VALUE;
+			max = 0L;
+		}
+
+		// bucket index of a value.
+		static int getIndex(long value)
+		{
+			if (value < SUB_BUCKET_COUNT)
+				return (int)value;
+			int magnitude = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int)(value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+			return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+		}
+
+		// lowest value in a bucket.
+		static long getLowestValue(int index)
+		{
+			if (index < SUB_BUCKET_COUNT)
+				return index;
+			int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+			long sub = index % SUB_BUCKET_COUNT;
+			return (SUB_BUCKET_COUNT + sub) << (magnitude - SUB_BUCKET_BITS);
+		}
+	}
+
+}
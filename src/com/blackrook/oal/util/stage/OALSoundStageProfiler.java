@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import com.blackrook.oal.util.OALSoundResource;
+
+/**
+ * Receives timing of a sound stage's update phases and notice of its costly
+ * operations, for passing on to a profiler, like Java Flight Recorder.
+ * <p>
+ * Methods are called as things happen, so they should return quickly.
+ * Unless noted otherwise, they are called on the thread that updates the stage.
+ * @author Matthew Tropiano
+ * @see OALSoundStage#setProfiler(OALSoundStageProfiler)
+ */
+public interface OALSoundStageProfiler
+{
+	/**
+	 * Called when an update phase starts.
+	 * @param phase the phase.
+	 */
+	public void phaseStarted(OALSoundStageMetrics.Phase phase);
+
+	/**
+	 * Called when an update phase ends.
+	 * @param phase the phase.
+	 */
+	public void phaseFinished(OALSoundStageMetrics.Phase phase);
+
+	/**
+	 * Called when a sound had to be decoded to be played, because it was not in the buffer cache.
+	 * @param resource the sound.
+	 * @param decodeNanos the time that decoding and uploading it took, in nanoseconds.
+	 * If it was decoded in the background, this is only the decoding time.
+	 * @param bytes the amount of decoded bytes.
+	 */
+	public void soundCacheMissed(OALSoundResource resource, long decodeNanos, long bytes);
+
+	/**
+	 * Called when a stream's upcoming data has been decoded.
+	 * Called on the stream decoder thread.
+	 * @param resource the streamed sound.
+	 * @param decodeNanos the time that decoding took, in nanoseconds.
+	 * @param bytes the amount of decoded bytes.
+	 */
+	public void streamRefilled(OALSoundResource resource, long decodeNanos, long bytes);
+
+	/**
+	 * Called when a voice is stolen to play a more important sound.
+	 * @param stolen the sound that was playing on the voice.
+	 * @param resource the sound that the voice was stolen for.
+	 */
+	public void voiceStolen(OALSoundResource stolen, OALSoundResource resource);
+
+	/**
+	 * Called when a sound that must always be played could not get a voice,
+	 * and is put off to the next event update.
+	 * @param resource the sound.
+	 */
+	public void eventDelayed(OALSoundResource resource);
+
+}
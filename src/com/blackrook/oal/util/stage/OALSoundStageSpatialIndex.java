@@ -0,0 +1,468 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.blackrook.commons.hash.HashMap;
+
+/**
+ * A uniform grid over the positions of objects that play sounds on a stage,
+ * used by the stage to cull play requests and voice updates for objects
+ * that are too far from the listener to be heard, without asking the
+ * object model for their positions.
+ * <p>
+ * Positions are cached, and refreshed from the object model a few objects
+ * at a time on each {@link #refresh()}, so they may be a few updates out of date.
+ * A position that has gone unread for more than a set amount of refreshes is read
+ * again when it is looked up, so that objects that move can't be culled for long
+ * on where they used to be.
+ * Objects are added when they are first looked up, and removed once they have
+ * not been looked up for a set amount of refreshes.
+ * <p>
+ * This class is not thread-safe.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageSpatialIndex<T extends Object>
+{
+	/** Default amount of objects refreshed per refresh. */
+	public static final int DEFAULT_REFRESH_COUNT = 64;
+	/** Default amount of refreshes that an object may go without being looked up. */
+	public static final int DEFAULT_MAX_IDLE_REFRESHES = 600;
+	/** Default amount of refreshes that a position may go without being read before it is not trusted. */
+	public static final int DEFAULT_MAX_STALE_REFRESHES = 8;
+
+	/** Starting amount of cell table slots. Must be a power of two. */
+	private static final int CELL_TABLE_START = 64;
+	/** Starting size of the refresh order array. */
+	private static final int ORDER_START = 32;
+
+	/** The object model to read positions from. */
+	private OALSoundStageObjectModel<T> model;
+	/** The length of each side of each cell. */
+	private float cellSize;
+	/** Amount of objects refreshed per refresh. */
+	private int refreshCount;
+	/** Amount of refreshes that an object may go without being looked up. */
+	private int maxIdleRefreshes;
+	/** Amount of refreshes that a position may go without being read before it is not trusted. */
+	private int maxStaleRefreshes;
+
+	/** Entries by object. */
+	private HashMap<T, Entry<T>> entries;
+	/** Cell keys, by cell table slot (open addressing, linear probing). */
+	private long[] cellKeys;
+	/** First entry in each cell, by cell table slot, or null for an empty slot. */
+	private Entry<T>[] cellHeads;
+	/** Amount of cells with entries in them. */
+	private int cellCount;
+	/** All entries, in refresh order. */
+	private Entry<T>[] order;
+	/** Amount of entries. */
+	private int orderSize;
+	/** The next entry to refresh. */
+	private int cursor;
+	/** Amount of refreshes so far. */
+	private long refreshes;
+
+	/**
+	 * Creates a new spatial index with the default refresh amounts.
+	 * @param model the object model to read positions from.
+	 * @param cellSize the length of each side of each grid cell. This should be
+	 * about the same as the typical maximum attenuation distance of the sounds played.
+	 * @throws IllegalArgumentException if cellSize is not greater than 0.
+	 */
+	public OALSoundStageSpatialIndex(OALSoundStageObjectModel<T> model, float cellSize)
+	{
+		this(model, cellSize, DEFAULT_REFRESH_COUNT, DEFAULT_MAX_IDLE_REFRESHES, DEFAULT_MAX_STALE_REFRESHES);
+	}
+
+	/**
+	 * Creates a new spatial index.
+	 * @param model the object model to read positions from.
+	 * @param cellSize the length of each side of each grid cell. This should be
+	 * about the same as the typical maximum attenuation distance of the sounds played.
+	 * @param refreshCount the amount of object positions to refresh per refresh.
+	 * @param maxIdleRefreshes the amount of refreshes that an object may go without
+	 * being looked up before it is removed.
+	 * @throws IllegalArgumentException if cellSize is not greater than 0 or refreshCount is less than 1.
+	 */
+	public OALSoundStageSpatialIndex(OALSoundStageObjectModel<T> model, float cellSize, int refreshCount, int maxIdleRefreshes)
+	{
+		this(model, cellSize, refreshCount, maxIdleRefreshes, DEFAULT_MAX_STALE_REFRESHES);
+	}
+
+	/**
+	 * Creates a new spatial index.
+	 * @param model the object model to read positions from.
+	 * @param cellSize the length of each side of each grid cell. This should be
+	 * about the same as the typical maximum attenuation distance of the sounds played.
+	 * @param refreshCount the amount of object positions to refresh per refresh.
+	 * @param maxIdleRefreshes the amount of refreshes that an object may go without
+	 * being looked up before it is removed.
+	 * @param maxStaleRefreshes the amount of refreshes that an object's position may go
+	 * without being read before it is read again on lookup. Objects that move farther
+	 * than a cell in this many updates may be culled while they can be heard.
+	 * @throws IllegalArgumentException if cellSize is not greater than 0 or refreshCount is less than 1.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public OALSoundStageSpatialIndex(OALSoundStageObjectModel<T> model, float cellSize, int refreshCount, int maxIdleRefreshes, int maxStaleRefreshes)
+	{
+		if (!(cellSize > 0f))
+			throw new IllegalArgumentException("Cell size must be greater than 0.");
+		if (refreshCount < 1)
+			throw new IllegalArgumentException("Refresh count can't be less than 1.");
+		this.model = model;
+		this.cellSize = cellSize;
+		this.refreshCount = refreshCount;
+		this.maxIdleRefreshes = maxIdleRefreshes;
+		this.maxStaleRefreshes = maxStaleRefreshes;
+		entries = new HashMap<T, Entry<T>>();
+		cellKeys = new long[CELL_TABLE_START];
+		cellHeads = (Entry<T>[])new Entry[CELL_TABLE_START];
+		cellCount = 0;
+		order = (Entry<T>[])new Entry[ORDER_START];
+		orderSize = 0;
+		cursor = 0;
+		refreshes = 0L;
+	}
+
+	/**
+	 * Gets the length of each side of each grid cell.
+	 */
+	public float getCellSize()
+	{
+		return cellSize;
+	}
+
+	/**
+	 * Gets the amount of objects in this index.
+	 */
+	public int size()
+	{
+		return orderSize;
+	}
+
+	/**
+	 * Gets the amount of grid cells with objects in them.
+	 */
+	public int getCellCount()
+	{
+		return cellCount;
+	}
+
+	/**
+	 * Returns true if an object is in this index.
+	 */
+	public boolean contains(T object)
+	{
+		return entries.containsKey(object);
+	}
+
+	/**
+	 * Reads an object's position from the object model, adding it if it is not in this index.
+	 */
+	public void update(T object)
+	{
+		Entry<T> e = getEntry(object);
+		e.lastUsed = refreshes;
+		move(e, model.getSoundPositionX(object), model.getSoundPositionY(object), model.getSoundPositionZ(object));
+	}
+
+	/**
+	 * Sets an object's position, adding it if it is not in this index.
+	 * Used when the position was just read from the object model elsewhere.
+	 */
+	public void update(T object, float x, float y, float z)
+	{
+		Entry<T> e = getEntry(object);
+		e.lastUsed = refreshes;
+		move(e, x, y, z);
+	}
+
+	/**
+	 * Removes an object from this index.
+	 * @return true if it was removed, false if it was not in this index.
+	 */
+	public boolean remove(T object)
+	{
+		Entry<T> e = entries.removeUsingKey(object);
+		if (e == null)
+			return false;
+		removeFromCell(e);
+
+		// swap the last entry into its place.
+		Entry<T> last = order[--orderSize];
+		order[orderSize] = null;
+		if (last != e)
+		{
+			order[e.index] = last;
+			last.index = e.index;
+		}
+		if (cursor > orderSize)
+			cursor = 0;
+		return true;
+	}
+
+	/**
+	 * Returns the smallest possible distance between a point and an object,
+	 * from the bounds of the grid cell that it is in.
+	 * Objects not in this index are added first, and stale positions are read again.
+	 * Looking up an object keeps it from being removed for being idle.
+	 */
+	public float getMinimumDistance(T object, float x, float y, float z)
+	{
+		Entry<T> e = entries.get(object);
+		if (e == null || refreshes - e.positionRefresh > maxStaleRefreshes)
+		{
+			update(object);
+			e = entries.get(object);
+		}
+		e.lastUsed = refreshes;
+
+		float dx = axisDistance(x, e.cellX);
+		float dy = axisDistance(y, e.cellY);
+		float dz = axisDistance(z, e.cellZ);
+		return (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+	/**
+	 * Adds all objects in grid cells within a distance of a point to a collection.
+	 * This may include objects a little farther than the distance, since whole cells are tested.
+	 * @return the amount of objects added.
+	 */
+	public int getObjectsNear(float x, float y, float z, float distance, Collection<T> out)
+	{
+		int x0 = cell(x - distance), x1 = cell(x + distance);
+		int y0 = cell(y - distance), y1 = cell(y + distance);
+		int z0 = cell(z - distance), z1 = cell(z + distance);
+		int count = 0;
+		for (int cx = x0; cx <= x1; cx++)
+			for (int cy = y0; cy <= y1; cy++)
+				for (int cz = z0; cz <= z1; cz++)
+				{
+					for (Entry<T> e = cellHeads[getSlot(key(cx, cy, cz))]; e != null; e = e.next)
+					{
+						out.add(e.object);
+						count++;
+					}
+				}
+		return count;
+	}
+
+	/**
+	 * Refreshes the positions of the next few objects from the object model,
+	 * and removes objects that have not been looked up in a while.
+	 * Called by the stage once per voice update.
+	 */
+	public void refresh()
+	{
+		refreshes++;
+		int n = Math.min(refreshCount, orderSize);
+		while (n-- > 0 && orderSize > 0)
+		{
+			if (cursor >= orderSize)
+				cursor = 0;
+			Entry<T> e = order[cursor];
+			if (refreshes - e.lastUsed > maxIdleRefreshes)
+				remove(e.object); // replaced by the last entry, so the cursor stays.
+			else
+			{
+				move(e, model.getSoundPositionX(e.object), model.getSoundPositionY(e.object), model.getSoundPositionZ(e.object));
+				cursor++;
+			}
+		}
+	}
+
+	/**
+	 * Removes all objects.
+	 */
+	public void clear()
+	{
+		entries.clear();
+		Arrays.fill(cellHeads, null);
+		cellCount = 0;
+		Arrays.fill(order, 0, orderSize, null);
+		orderSize = 0;
+		cursor = 0;
+	}
+
+	private Entry<T> getEntry(T object)
+	{
+		Entry<T> e = entries.get(object);
+		if (e == null)
+		{
+			e = new Entry<T>(object);
+			e.index = orderSize;
+			e.lastUsed = refreshes;
+			entries.put(object, e);
+			if (orderSize == order.length)
+				order = Arrays.copyOf(order, order.length * 2);
+			order[orderSize++] = e;
+		}
+		return e;
+	}
+
+	private void move(Entry<T> e, float x, float y, float z)
+	{
+		e.positionRefresh = refreshes;
+		int cx = cell(x), cy = cell(y), cz = cell(z);
+		if (e.placed && cx == e.cellX && cy == e.cellY && cz == e.cellZ)
+			return;
+
+		removeFromCell(e);
+		e.cellX = cx;
+		e.cellY = cy;
+		e.cellZ = cz;
+		e.cellKey = key(cx, cy, cz);
+
+		int slot = getSlot(e.cellKey);
+		Entry<T> head = cellHeads[slot];
+		if (head == null)
+		{
+			if ((cellCount + 1) * 2 > cellHeads.length)
+			{
+				resizeCells(cellHeads.length * 2);
+				slot = getSlot(e.cellKey);
+			}
+			cellKeys[slot] = e.cellKey;
+			cellCount++;
+		}
+		else
+			head.prev = e;
+		e.next = head;
+		e.prev = null;
+		e.placed = true;
+		cellHeads[slot] = e;
+	}
+
+	private void removeFromCell(Entry<T> e)
+	{
+		if (!e.placed)
+			return;
+		if (e.prev != null)
+			e.prev.next = e.next;
+		else
+		{
+			int slot = getSlot(e.cellKey);
+			cellHeads[slot] = e.next;
+			if (e.next == null)
+				removeSlot(slot);
+		}
+		if (e.next != null)
+			e.next.prev = e.prev;
+		e.prev = null;
+		e.next = null;
+		e.placed = false;
+	}
+
+	// slot of a cell key, or the empty slot where it would go.
+	private int getSlot(long key)
+	{
+		int mask = cellHeads.length - 1;
+		int slot = hash(key) & mask;
+		while (cellHeads[slot] != null && cellKeys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	// empties a slot, and shifts back the cells that probed past it.
+	private void removeSlot(int slot)
+	{
+		int mask = cellHeads.length - 1;
+		cellHeads[slot] = null;
+		cellCount--;
+		int next = (slot + 1) & mask;
+		while (cellHeads[next] != null)
+		{
+			int home = hash(cellKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask))
+			{
+				cellKeys[slot] = cellKeys[next];
+				cellHeads[slot] = cellHeads[next];
+				cellHeads[next] = null;
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void resizeCells(int size)
+	{
+		long[] oldKeys = cellKeys;
+		Entry<T>[] oldHeads = cellHeads;
+		cellKeys = new long[size];
+		cellHeads = (Entry<T>[])new Entry[size];
+		for (int i = 0; i < oldHeads.length; i++)
+			if (oldHeads[i] != null)
+			{
+				int slot = getSlot(oldKeys[i]);
+				cellKeys[slot] = oldKeys[i];
+				cellHeads[slot] = oldHeads[i];
+			}
+	}
+
+	private int cell(float f)
+	{
+		return (int)Math.floor(f / cellSize);
+	}
+
+	// distance from a coordinate to a cell's range on one axis.
+	private float axisDistance(float f, int cell)
+	{
+		float min = cell * cellSize;
+		if (f < min)
+			return min - f;
+		float max = min + cellSize;
+		if (f > max)
+			return f - max;
+		return 0f;
+	}
+
+	private static long key(int x, int y, int z)
+	{
+		return ((x & 0x1fffffL) << 42) | ((y & 0x1fffffL) << 21) | (z & 0x1fffffL);
+	}
+
+	// mixes all of a key's bits into the low bits.
+	private static int hash(long key)
+	{
+		long h = key * 0x9e3779b97f4a7c15L;
+		return (int)(h ^ (h >>> 32));
+	}
+
+	/**
+	 * An indexed object.
+	 */
+	private static class Entry<T>
+	{
+		T object;
+		/** Index in refresh order. */
+		int index;
+		/** Cell coordinates. */
+		int cellX, cellY, cellZ;
+		/** Cell key. */
+		long cellKey;
+		/** True if in a cell, false if not placed yet. */
+		boolean placed;
+		/** Previous and next entries in the same cell. */
+		Entry<T> prev, next;
+		/** Refresh count when last looked up. */
+		long lastUsed;
+		/** Refresh count when its position was last read. */
+		long positionRefresh;
+
+		Entry(T object)
+		{
+			this.object = object;
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests paging, ordering and reuse of decoded data in the seek cache.
+ * @author Matthew Tropiano
+ */
+public class PCMSeekCacheTest
+{
+	/** Page size used by the tests. */
+	private static final int PAGE = 8;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void badPageSize()
+	{
+		new PCMSeekCache(0, 1024);
+	}
+
+	@Test
+	public void readsAcrossPages()
+	{
+		PCMSeekCache cache = new PCMSeekCache(PAGE, 1024);
+		cache.write(0L, data(0, 20), 0, 20);
+		assertEquals(3, cache.getPageCount());
+
+		byte[] out = new byte[PAGE];
+		assertEquals(5, cache.read(3L, out, 0, out.length));
+		assertEquals(3, out[0]);
+		assertEquals(7, out[4]);
+		assertEquals(4, cache.read(16L, out, 0, out.length));
+		assertEquals(16, out[0]);
+		assertEquals(0, cache.read(20L, out, 0, out.length));
+	}
+
+	@Test
+	public void pageContinuedInOrder()
+	{
+		PCMSeekCache cache = new PCMSeekCache(PAGE, 1024);
+		cache.write(0L, data(0, 3), 0, 3);
+		// overlaps what is kept, then continues it.
+		cache.write(2L, data(2, 4), 0, 4);
+		// leaves a gap, so it is not kept.
+		cache.write(7L, data(7, 1), 0, 1);
+
+		byte[] out = new byte[PAGE];
+		assertEquals(6, cache.read(0L, out, 0, out.length));
+		assertEquals(5, out[5]);
+		assertEquals(0, cache.read(6L, out, 0, out.length));
+	}
+
+	@Test
+	public void pageNotStartedMidway()
+	{
+		PCMSeekCache cache = new PCMSeekCache(PAGE, 1024);
+		cache.write(4L, data(4, 8), 0, 8);
+		assertEquals(1, cache.getPageCount());
+
+		byte[] out = new byte[PAGE];
+		assertEquals(0, cache.read(4L, out, 0, out.length));
+		assertEquals(4, cache.read(8L, out, 0, out.length));
+		assertEquals(8, out[0]);
+	}
+
+	@Test
+	public void oldestPagesReused()
+	{
+		PCMSeekCache cache = new PCMSeekCache(PAGE, PAGE * 2);
+		cache.write(0L, data(0, PAGE * 5), 0, PAGE * 5);
+		assertEquals(2, cache.getPageCount());
+
+		byte[] out = new byte[PAGE];
+		assertEquals(0, cache.read(0L, out, 0, out.length));
+		assertEquals(0, cache.read(PAGE * 2, out, 0, out.length));
+		assertEquals(PAGE, cache.read(PAGE * 3, out, 0, out.length));
+		assertEquals(PAGE * 3, out[0]);
+		assertEquals(PAGE, cache.read(PAGE * 4, out, 0, out.length));
+		assertEquals(PAGE * 4, out[0]);
+	}
+
+	@Test
+	public void nothingKeptWithoutRoom()
+	{
+		PCMSeekCache cache = new PCMSeekCache(PAGE, PAGE - 1);
+		cache.write(0L, data(0, PAGE), 0, PAGE);
+		assertEquals(0, cache.getPageCount());
+		assertEquals(0L, cache.getMaxBytes());
+	}
+
+	@Test
+	public void lengthKeptOnClear()
+	{
+		PCMSeekCache cache = new PCMSeekCache(PAGE, 1024);
+		assertEquals(-1L, cache.getLength());
+		cache.write(0L, data(0, PAGE), 0, PAGE);
+		cache.setLength(PAGE);
+		cache.clear();
+		assertEquals(0, cache.getPageCount());
+		assertEquals(PAGE, cache.getLength());
+		assertEquals(0, cache.read(0L, new byte[PAGE], 0, PAGE));
+	}
+
+	// bytes whose values are their offsets in the stream.
+	private static byte[] data(int start, int length)
+	{
+		byte[] out = new byte[length];
+		for (int i = 0; i < length; i++)
+			out[i] = (byte)(start + i);
+		return out;
+	}
+
+}
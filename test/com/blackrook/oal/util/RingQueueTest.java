@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * Tests ordering, bounds and concurrent use of the lock-free ring queue.
+ * @author Matthew Tropiano
+ */
+public class RingQueueTest
+{
+	/** Objects added by each producer thread. */
+	private static final int PER_PRODUCER = 50000;
+	/** Producer and consumer thread count. */
+	private static final int THREADS = 4;
+
+	@Test
+	public void capacityRoundedUp()
+	{
+		assertEquals(1, new RingQueue<Integer>(1).capacity());
+		assertEquals(8, new RingQueue<Integer>(5).capacity());
+		assertEquals(16, new RingQueue<Integer>(16).capacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void badCapacity()
+	{
+		new RingQueue<Integer>(0);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void offerNull()
+	{
+		new RingQueue<Integer>(4).offer(null);
+	}
+
+	@Test
+	public void offerWhenFull()
+	{
+		RingQueue<Integer> queue = new RingQueue<Integer>(4);
+		for (int i = 0; i < 4; i++)
+			assertTrue(queue.offer(i));
+		assertFalse(queue.offer(4));
+		assertEquals(4, queue.size());
+
+		assertEquals(Integer.valueOf(0), queue.poll());
+		assertTrue(queue.offer(4));
+		assertFalse(queue.offer(5));
+	}
+
+	@Test
+	public void orderKeptAcrossWrap()
+	{
+		RingQueue<Integer> queue = new RingQueue<Integer>(4);
+		assertNull(queue.poll());
+		int next = 0;
+		for (int i = 0; i < 99; i++)
+		{
+			assertTrue(queue.offer(i));
+			if (i % 3 == 2)
+			{
+				assertEquals(3, queue.size());
+				while (!queue.isEmpty())
+					assertEquals(Integer.valueOf(next++), queue.poll());
+			}
+		}
+		assertEquals(99, next);
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void concurrentOfferAndPoll() throws InterruptedException
+	{
+		final RingQueue<Integer> queue = new RingQueue<Integer>(64);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(PER_PRODUCER * THREADS);
+		Thread[] threads = new Thread[THREADS * 2];
+
+		for (int t = 0; t < THREADS; t++)
+		{
+			final int base = t * PER_PRODUCER;
+			threads[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < PER_PRODUCER; i++)
+						while (!queue.offer(base + i))
+							Thread.yield();
+				}
+			};
+			threads[THREADS + t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < PER_PRODUCER; i++)
+					{
+						Integer out;
+						while ((out = queue.poll()) == null)
+							Thread.yield();
+						seen.incrementAndGet(out);
+					}
+				}
+			};
+		}
+
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+
+		for (int i = 0; i < seen.length(); i++)
+			assertEquals(1, seen.get(i));
+		assertTrue(queue.isEmpty());
+	}
+
+}
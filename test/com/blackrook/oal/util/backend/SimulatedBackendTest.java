@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests playback timing on the simulated backend.
+ * @author Matthew Tropiano
+ */
+public class SimulatedBackendTest
+{
+	/** Sampling rate of the buffers. */
+	private static final int SAMPLING_RATE = 22050;
+	/** A tenth of a second in nanoseconds. */
+	private static final long TENTH = 100000000L;
+
+	private SimulatedBackend backend;
+	private OALBackendSource source;
+
+	@Before
+	public void setUp()
+	{
+		backend = new SimulatedBackend();
+		source = backend.createSource();
+	}
+
+	@Test
+	public void bufferStopsAtEnd()
+	{
+		source.setBuffer(createBuffer(10));
+		source.play();
+		backend.advance(9 * TENTH);
+		assertTrue(source.isPlaying());
+		backend.advance(2 * TENTH);
+		assertFalse(source.isPlaying());
+	}
+
+	@Test
+	public void loopingBufferKeepsPlaying()
+	{
+		source.setBuffer(createBuffer(10));
+		source.setLooping(true);
+		source.play();
+		backend.advance(35 * TENTH);
+		assertTrue(source.isPlaying());
+	}
+
+	@Test
+	public void pitchScalesTime()
+	{
+		source.setBuffer(createBuffer(10));
+		source.setPitch(2f);
+		source.play();
+		backend.advance(6 * TENTH);
+		assertFalse(source.isPlaying());
+	}
+
+	@Test
+	public void pausedSourceDoesNotPlay()
+	{
+		source.setBuffer(createBuffer(10));
+		source.play();
+		backend.advance(5 * TENTH);
+		source.pause();
+		backend.advance(10 * TENTH);
+		assertTrue(source.isPaused());
+		source.play();
+		backend.advance(4 * TENTH);
+		assertTrue(source.isPlaying());
+	}
+
+	@Test
+	public void queuedBuffersProcessedInOrder()
+	{
+		OALBackendBuffer first = createBuffer(2);
+		OALBackendBuffer second = createBuffer(2);
+		source.enqueueBuffers(first, second);
+		source.play();
+		assertNull(source.dequeueBuffer());
+
+		backend.advance(3 * TENTH);
+		assertEquals(1, source.getProcessedBufferCount());
+		assertSame(first, source.dequeueBuffer());
+		assertTrue(source.isPlaying());
+
+		backend.advance(2 * TENTH);
+		assertFalse(source.isPlaying());
+		assertSame(second, source.dequeueBuffer());
+	}
+
+	@Test
+	public void objectsCounted()
+	{
+		OALBackendBuffer buffer = createBuffer(1);
+		assertEquals(1, backend.getBufferCount());
+		buffer.destroy();
+		buffer.destroy();
+		assertEquals(0, backend.getBufferCount());
+
+		assertEquals(1, backend.getSourceCount());
+		source.destroy();
+		assertEquals(0, backend.getSourceCount());
+	}
+
+	// a 16-bit mono buffer.
+	private OALBackendBuffer createBuffer(int tenths)
+	{
+		int bytes = SAMPLING_RATE * 2 * tenths / 10;
+		OALBackendBuffer out = backend.createBuffer();
+		out.setSamplingRate(SAMPLING_RATE);
+		out.setFormatByChannelsAndBits(1, 16);
+		out.loadPCMData(ByteBuffer.allocate(bytes), bytes);
+		return out;
+	}
+
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.blackrook.oal.util.OALBufferCachePolicy;
+import com.blackrook.oal.util.OALSoundResource;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests the eviction order of the buffer cache policies.
+ * @author Matthew Tropiano
+ */
+public class CachePolicyTest
+{
+	private static final OALSoundResource A = new TestSound("a", 0);
+	private static final OALSoundResource B = new TestSound("b", 0);
+	private static final OALSoundResource C = new TestSound("c", 0);
+	private static final OALSoundResource D = new TestSound("d", 0);
+
+	@Test
+	public void leastRecentlyUsed()
+	{
+		OALBufferCachePolicy policy = new LeastRecentlyUsed();
+		policy.bufferAdded(A, 100);
+		policy.bufferAdded(B, 100);
+		policy.bufferAdded(C, 100);
+		policy.bufferAccessed(A);
+		assertOrder(policy, B, C, A);
+
+		policy.bufferRemoved(C, true);
+		policy.bufferAccessed(B);
+		assertOrder(policy, A, B);
+
+		policy.clear();
+		assertOrder(policy);
+	}
+
+	@Test
+	public void leastFrequentlyUsed()
+	{
+		OALBufferCachePolicy policy = new LeastFrequentlyUsed();
+		policy.bufferAdded(A, 100);
+		policy.bufferAdded(B, 100);
+		policy.bufferAdded(C, 100);
+		policy.bufferAccessed(A);
+		policy.bufferAccessed(A);
+		policy.bufferAccessed(C);
+		assertOrder(policy, B, C, A);
+
+		// ties go to the least recently used.
+		policy.bufferAccessed(B);
+		assertOrder(policy, C, B, A);
+	}
+
+	@Test
+	public void largestFirst()
+	{
+		OALBufferCachePolicy policy = new LargestFirst();
+		policy.bufferAdded(A, 100);
+		policy.bufferAdded(B, 300);
+		policy.bufferAdded(C, 200);
+		policy.bufferAccessed(B);
+		assertOrder(policy, B, C, A);
+
+		policy.bufferRemoved(B, false);
+		assertOrder(policy, C, A);
+	}
+
+	@Test
+	public void greedyDualSizeFavorsSmallBuffers()
+	{
+		OALBufferCachePolicy policy = new GreedyDualSize();
+		policy.bufferAdded(A, 1000);
+		policy.bufferAdded(B, 100000);
+		assertOrder(policy, B, A);
+
+		// rank of A is (65536+1000)/1000, about 40 times the rank of B at each hit.
+		for (int i = 0; i < 50; i++)
+			policy.bufferAccessed(B);
+		assertOrder(policy, A, B);
+	}
+
+	@Test
+	public void greedyDualSizeAging()
+	{
+		// rank is L + hits + 1 with these costs.
+		OALBufferCachePolicy policy = new GreedyDualSize(0.0, 1.0);
+		policy.bufferAdded(A, 100);
+		for (int i = 0; i < 9; i++)
+			policy.bufferAccessed(A);
+		policy.bufferAdded(B, 100);
+		policy.bufferAccessed(B);
+		policy.bufferAccessed(B);
+		assertOrder(policy, B, A);
+
+		// evicting A at rank 10 ages B, which was not used since, below new buffers.
+		policy.bufferRemoved(A, true);
+		policy.bufferAdded(C, 100);
+		assertOrder(policy, B, C);
+
+		// removing without eviction does not age anything.
+		policy.bufferRemoved(C, false);
+		policy.bufferAdded(D, 100);
+		assertOrder(policy, B, D);
+
+		policy.clear();
+		policy.bufferAdded(A, 100);
+		policy.bufferAccessed(A);
+		policy.bufferAdded(C, 100);
+		assertOrder(policy, C, A);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void rankedOrderCannotBeChanged()
+	{
+		OALBufferCachePolicy policy = new LargestFirst();
+		policy.bufferAdded(A, 100);
+		Iterator<OALSoundResource> it = policy.evictionOrder();
+		it.next();
+		it.remove();
+	}
+
+	@Test
+	public void unknownResourcesIgnored()
+	{
+		OALBufferCachePolicy policy = new LeastFrequentlyUsed();
+		policy.bufferAccessed(A);
+		policy.bufferRemoved(A, true);
+		assertFalse(policy.evictionOrder().hasNext());
+	}
+
+	private static void assertOrder(OALBufferCachePolicy policy, OALSoundResource ... expected)
+	{
+		ArrayList<OALSoundResource> out = new ArrayList<OALSoundResource>();
+		Iterator<OALSoundResource> it = policy.evictionOrder();
+		while (it.hasNext())
+			out.add(it.next());
+		assertArrayEquals(expected, out.toArray(new OALSoundResource[out.size()]));
+	}
+
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.OALBufferCache;
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests caching, loading, pinning and eviction of sounds on a simulated backend.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageCacheTest
+{
+	/** Runs loads right away, on the calling thread. */
+	private static final Executor DIRECT = new Executor()
+	{
+		@Override
+		public void execute(Runnable command)
+		{
+			command.run();
+		}
+	};
+	/** Size of the buffer cache, which fits two one-second sounds, but not three. */
+	private static final int CACHE_BYTES = SimulatedStage.SAMPLING_RATE * 2 * 2 + 10000;
+
+	private SimulatedBackend backend;
+	private SimulatedStage stage;
+
+	@Before
+	public void setUp()
+	{
+		backend = new SimulatedBackend();
+		stage = new SimulatedStage(backend, 4, CACHE_BYTES);
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void shutDownTwice()
+	{
+		stage.cacheSounds(new TestSound("sound", SimulatedStage.SAMPLING_RATE));
+		stage.play(new TestSound("other", SimulatedStage.SAMPLING_RATE));
+		stage.step();
+		stage.shutDown();
+		assertEquals(0, backend.getBufferCount());
+		assertEquals(0, backend.getSourceCount());
+		stage.shutDown();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void cacheAfterShutDown()
+	{
+		stage.shutDown();
+		stage.cacheSounds(new TestSound("sound", SimulatedStage.SAMPLING_RATE));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void playAfterShutDown()
+	{
+		stage.shutDown();
+		stage.play(new TestSound("sound", SimulatedStage.SAMPLING_RATE));
+	}
+
+	@Test
+	public void decoderClosedWhenLoaded()
+	{
+		TestSound sound = new TestSound("sound", SimulatedStage.SAMPLING_RATE);
+		stage.setLoadExecutor(DIRECT);
+		stage.play(sound);
+		stage.step();
+		stage.step();
+		assertEquals(1, stage.getUsedVoices());
+		assertEquals(1, stage.getOpenedStreamCount());
+		assertEquals(1, stage.getClosedStreamCount());
+	}
+
+	@Test
+	public void decodersClosedWhenCachedAsync() throws Exception
+	{
+		TestSound a = new TestSound("a", SimulatedStage.SAMPLING_RATE);
+		TestSound b = new TestSound("b", SimulatedStage.SAMPLING_RATE / 2);
+		Future<Integer> future = stage.cacheSoundsAsync(Arrays.asList(a, b), DIRECT);
+		stage.step();
+		assertTrue(future.isDone());
+		assertEquals(2, (int)future.get());
+		assertEquals(2, backend.getBufferCount());
+		assertEquals(2, stage.getOpenedStreamCount());
+		assertEquals(2, stage.getClosedStreamCount());
+	}
+
+	@Test
+	public void playingBufferNotEvicted()
+	{
+		TestSound a = createLoop("a");
+		TestSound b = new TestSound("b", SimulatedStage.SAMPLING_RATE);
+		TestSound c = new TestSound("c", SimulatedStage.SAMPLING_RATE);
+		stage.play(a);
+		stage.step();
+		assertTrue(stage.getBufferCache().isPinned(a));
+
+		stage.cacheSounds(b, c);
+		OALBufferCache cache = stage.getBufferCache();
+		assertEquals(1L, cache.getEvictionCount());
+		assertNotNull(cache.peekBuffer(a));
+		assertNull(cache.peekBuffer(b));
+		assertNotNull(cache.peekBuffer(c));
+		assertEquals(2, backend.getBufferCount());
+	}
+
+	@Test
+	public void bufferEvictedWhenUnpinned()
+	{
+		TestSound a = createLoop("a");
+		TestSound b = createLoop("b");
+		TestSound c = new TestSound("c", SimulatedStage.SAMPLING_RATE);
+		stage.play(a);
+		stage.play(b);
+		stage.step();
+
+		// nothing can be evicted, so the cache goes over its size.
+		stage.cacheSounds(c);
+		OALBufferCache cache = stage.getBufferCache();
+		assertEquals(0L, cache.getEvictionCount());
+		assertTrue(cache.getCurrentBytes() > CACHE_BYTES);
+		assertEquals(3, backend.getBufferCount());
+
+		stage.stopSound(a);
+		stage.step();
+		assertFalse(cache.isPinned(a));
+		assertEquals(1L, cache.getEvictionCount());
+		assertTrue(cache.getCurrentBytes() <= CACHE_BYTES);
+		assertEquals(2, backend.getBufferCount());
+	}
+
+	@Test
+	public void uncachedBufferDestroyedWhenStopped()
+	{
+		TestSound a = createLoop("a");
+		stage.play(a);
+		stage.step();
+
+		stage.uncacheSounds(a);
+		assertNull(stage.getBufferCache().peekBuffer(a));
+		assertEquals(1, backend.getBufferCount());
+
+		stage.stopSound(a);
+		stage.step();
+		assertEquals(0, backend.getBufferCount());
+	}
+
+	private static TestSound createLoop(String name)
+	{
+		TestSound out = new TestSound(name, SimulatedStage.SAMPLING_RATE);
+		out.setLooping(true);
+		return out;
+	}
+
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.OALSoundStage.EventOverflowPolicy;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests the BLOCK event overflow policy.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageEventTest
+{
+	/** Milliseconds to wait for a thread to block or finish. */
+	private static final long WAIT_MILLIS = 2000L;
+
+	private SimulatedStage stage;
+	private TestSound[] sounds;
+
+	@Before
+	public void setUp()
+	{
+		stage = new SimulatedStage(new SimulatedBackend(), 4, 1024 * 1024, 2, EventOverflowPolicy.BLOCK);
+		// this thread now updates events, so it holds overflowed events instead of waiting.
+		stage.step();
+		sounds = new TestSound[4];
+		for (int i = 0; i < sounds.length; i++)
+			sounds[i] = new TestSound("sound" + i, SimulatedStage.SAMPLING_RATE);
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void blockedEventWaitsForOverflow() throws InterruptedException
+	{
+		stage.play(sounds[0]);
+		stage.play(sounds[1]);
+		stage.play(sounds[2]);
+		assertEquals(1, stage.getOverflowedEventCount());
+
+		// room in the queue, but an event is still held past it.
+		assertSame(sounds[0], stage.dequeueEvent().resource);
+		Thread player = play(sounds[3], new AtomicReference<Throwable>());
+		assertTrue(waitForBlock(player));
+
+		assertSame(sounds[1], stage.dequeueEvent().resource);
+		assertSame(sounds[2], stage.dequeueEvent().resource);
+		player.join(WAIT_MILLIS);
+		assertSame(sounds[3], stage.dequeueEvent().resource);
+	}
+
+	@Test
+	public void blockedEventThrowsOnShutDown() throws InterruptedException
+	{
+		stage.play(sounds[0]);
+		stage.play(sounds[1]);
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread player = play(sounds[2], error);
+		assertTrue(waitForBlock(player));
+
+		stage.shutDown();
+		player.join(WAIT_MILLIS);
+		assertEquals(Thread.State.TERMINATED, player.getState());
+		assertNotNull(error.get());
+		assertSame(IllegalStateException.class, error.get().getClass());
+	}
+
+	// plays a sound on another thread, keeping what it throws.
+	private Thread play(final TestSound sound, final AtomicReference<Throwable> error)
+	{
+		Thread out = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try {
+					stage.play(sound);
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		};
+		out.setDaemon(true);
+		out.start();
+		return out;
+	}
+
+	// returns true if the thread waits, false if it finished or the wait timed out.
+	private static boolean waitForBlock(Thread thread) throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + WAIT_MILLIS;
+		while (System.currentTimeMillis() < end)
+		{
+			Thread.State state = thread.getState();
+			if (state == Thread.State.TERMINATED)
+				return false;
+			if (state == Thread.State.TIMED_WAITING)
+				return true;
+			Thread.sleep(1L);
+		}
+		return false;
+	}
+
+}
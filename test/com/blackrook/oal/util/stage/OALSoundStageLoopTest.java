@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.OALSoundResource;
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestObject;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests splicing of streamed sounds at their loop points.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageLoopTest
+{
+	/** Length of the sound in frames. */
+	private static final int FRAMES = 30000;
+	/** First frame of the loop region. */
+	private static final int LOOP_START = 5000;
+	/** Frame after the loop region. */
+	private static final int LOOP_END = 20000;
+	/** Amount of times to play the loop region. */
+	private static final int PASSES = 4;
+
+	private SimulatedStage stage;
+	private TestSound sound;
+
+	@Before
+	public void setUp()
+	{
+		stage = new SimulatedStage(new SimulatedBackend(), 4, 1024 * 1024);
+		sound = new TestSound("loop", FRAMES);
+		sound.setStreaming(true);
+		sound.setLooping(true);
+		sound.setLoopPoints(LOOP_START, LOOP_END);
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void splicedFromMemory() throws UnsupportedAudioFileException, IOException
+	{
+		stage.setStreamLoopCacheBytes((LOOP_END - LOOP_START) * 2);
+		playPasses(stage.new SourceStreamer(sound, null), LOOP_END + (LOOP_END - LOOP_START) * (PASSES - 1));
+		// the whole region was kept, so the decoder was closed and never reopened.
+		assertEquals(1, stage.getOpenedStreamCount());
+		assertEquals(1, stage.getClosedStreamCount());
+		assertEquals(0L, stage.getStreamLoopRedecodeCount());
+	}
+
+	@Test
+	public void splicedWithSmallWindow() throws UnsupportedAudioFileException, IOException
+	{
+		// smaller than one chunk.
+		stage.setStreamLoopCacheBytes(256);
+		stage.setStreamSeekCacheBytes(0);
+		playPasses(stage.new SourceStreamer(sound, null), LOOP_END + (LOOP_END - LOOP_START) * (PASSES - 1));
+		// reopened on every pass, and only one left open.
+		assertTrue(stage.getOpenedStreamCount() >= PASSES);
+		assertEquals(stage.getOpenedStreamCount() - 1, stage.getClosedStreamCount());
+		// every reopen after the first open was a pass decoded again.
+		assertEquals(stage.getOpenedStreamCount() - 1, stage.getStreamLoopRedecodeCount());
+	}
+
+	@Test
+	public void splicedFromSeekCache() throws UnsupportedAudioFileException, IOException
+	{
+		stage.setStreamLoopCacheBytes(256);
+		playPasses(stage.new SourceStreamer(sound, null), LOOP_END + (LOOP_END - LOOP_START) * (PASSES - 1));
+		// the rest of the region was still in the seek cache, so the decoder was never reopened.
+		assertEquals(1, stage.getOpenedStreamCount());
+		assertEquals(0L, stage.getStreamLoopRedecodeCount());
+	}
+
+	@Test
+	public void splicedWithoutWindow() throws UnsupportedAudioFileException, IOException
+	{
+		stage.setStreamLoopCacheBytes(0);
+		playPasses(stage.new SourceStreamer(sound, null), LOOP_END + (LOOP_END - LOOP_START) * (PASSES - 1));
+		assertEquals(stage.getOpenedStreamCount() - 1, stage.getClosedStreamCount());
+	}
+
+	@Test
+	public void decodersClosedWhenLoopStopped()
+	{
+		stage.setStreamLoopCacheBytes(256);
+		TestObject object = new TestObject(0f, 0f, 0f);
+		stage.play(sound, object, 0, 1f, 1f);
+		for (int i = 0; i < 120; i++)
+		{
+			stage.waitForDecoder();
+			stage.step();
+		}
+		assertEquals(1, stage.getUsedVoices());
+		stage.stopObject(object);
+		stage.step();
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void redecodedPassesReported()
+	{
+		stage.setStreamLoopCacheBytes(256);
+		stage.setStreamSeekCacheBytes(0);
+		stage.setMetricsEnabled(true);
+		final int[] reported = new int[1];
+		stage.addStageListener(new OALSoundStageAdapter()
+		{
+			@Override
+			public void soundStreamLoopRedecoded(OALSoundResource data, int passes)
+			{
+				assertTrue(data == sound);
+				reported[0] = passes;
+			}
+		});
+		stage.play(sound, new TestObject(0f, 0f, 0f), 0, 1f, 1f);
+		for (int i = 0; i < 120; i++)
+		{
+			stage.waitForDecoder();
+			stage.step();
+		}
+		assertTrue(reported[0] > 0);
+		assertTrue(reported[0] <= stage.getStreamLoopRedecodeCount());
+		assertTrue(stage.getMetrics().snapshot().getCount(OALSoundStageMetrics.Counter.STREAM_LOOP_REDECODES) >= reported[0]);
+	}
+
+	/**
+	 * Reads an amount of frames from a stream's first chunks on, 
+	 * and checks that each follows the last, or the loop end.
+	 */
+	private static void playPasses(OALSoundStage<TestObject>.SourceStreamer stream, int frames) 
+		throws UnsupportedAudioFileException, IOException
+	{
+		byte[] chunk = new byte[stream.bytebuffer.length];
+		// the streamer starts after the data for its first buffers.
+		int expected = (int)(stream.position / stream.frameBytes);
+		int read = 0;
+		while (read < frames)
+		{
+			int len = stream.nextChunk(chunk);
+			assertTrue(len > 0);
+			for (int i = 0; i < len / 2; i++)
+			{
+				assertEquals(expected, OALSoundStageStreamTest.getFrame(chunk, i));
+				expected = expected + 1 == LOOP_END ? LOOP_START : expected + 1;
+			}
+			read += len / 2;
+		}
+	}
+
+}
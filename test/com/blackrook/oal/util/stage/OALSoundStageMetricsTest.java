@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.blackrook.oal.util.stage.OALSoundStageMetrics.Histogram;
+
+/**
+ * Tests the bucket math and percentiles of the metrics histograms.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageMetricsTest
+{
+	/** Largest value a histogram keeps. */
+	private static final long MAX_VALUE = (1L << 41) - 1;
+
+	@Test
+	public void smallValuesExact()
+	{
+		for (int i = 0; i < 32; i++)
+		{
+			assertEquals(i, Histogram.getIndex(i));
+			assertEquals(i, Histogram.getLowestValue(i));
+		}
+		assertEquals(32, Histogram.getIndex(32));
+	}
+
+	@Test
+	public void bucketsContiguous()
+	{
+		int last = Histogram.getIndex(MAX_VALUE);
+		for (int i = 0; i < last; i++)
+		{
+			long low = Histogram.getLowestValue(i);
+			long next = Histogram.getLowestValue(i + 1);
+			assertTrue(next > low);
+			assertEquals(i, Histogram.getIndex(low));
+			assertEquals(i, Histogram.getIndex(next - 1));
+		}
+		assertEquals(last, Histogram.getIndex(Histogram.getLowestValue(last)));
+	}
+
+	@Test
+	public void bucketsWithinPrecision()
+	{
+		int last = Histogram.getIndex(MAX_VALUE);
+		for (int i = 32; i < last; i++)
+		{
+			long low = Histogram.getLowestValue(i);
+			long width = Histogram.getLowestValue(i + 1) - low;
+			assertTrue(width * 32 <= low);
+		}
+	}
+
+	@Test
+	public void largestBucketFitsHistogram()
+	{
+		Histogram histogram = new Histogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(MAX_VALUE);
+		assertEquals(MAX_VALUE, histogram.getMax());
+		assertEquals(MAX_VALUE, histogram.getValueAtPercentile(100.0));
+	}
+
+	@Test
+	public void percentiles()
+	{
+		Histogram histogram = new Histogram();
+		assertEquals(0L, histogram.getValueAtPercentile(50.0));
+		for (long i = 1; i <= 100000; i++)
+			histogram.record(i * 1000L);
+
+		assertEquals(100000L, histogram.getCount());
+		assertEquals(1000L, histogram.getMin());
+		assertEquals(100000000L, histogram.getMax());
+		assertEquals(50000500.0, histogram.getMean(), 0.0);
+		assertWithin(50000000L, histogram.getValueAtPercentile(50.0));
+		assertWithin(99000000L, histogram.getValueAtPercentile(99.0));
+		assertEquals(100000000L, histogram.getValueAtPercentile(100.0));
+		assertWithin(1000L, histogram.getValueAtPercentile(0.0));
+	}
+
+	@Test
+	public void negativeRecordedAsZero()
+	{
+		Histogram histogram = new Histogram();
+		histogram.record(-5L);
+		assertEquals(0L, histogram.getMin());
+		assertEquals(0L, histogram.getValueAtPercentile(100.0));
+	}
+
+	// within the precision of a bucket, and not below the value.
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(actual + " < " + expected, actual >= expected);
+		assertTrue(actual + " > " + expected, actual - expected <= expected / 32);
+	}
+
+}
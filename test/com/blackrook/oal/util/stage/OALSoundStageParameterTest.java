@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestObject;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests that voices only send changed parameters to their sources.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageParameterTest
+{
+	private SimulatedStage stage;
+	private OALSoundGroup group;
+	private TestObject object;
+	/** Sent parameter count at the last check. */
+	private long sent;
+
+	@Before
+	public void setUp()
+	{
+		stage = new SimulatedStage(new SimulatedBackend(), 2, 1024 * 1024);
+		group = new OALSoundGroup();
+		object = new TestObject(10f, 0f, 0f);
+
+		TestSound sound = new TestSound("sound", SimulatedStage.SAMPLING_RATE);
+		sound.setLooping(true);
+		sound.setMaxAttenuationDistance(100f);
+		stage.cacheSounds(sound);
+		stage.play(sound, group, object);
+		stage.step();
+		sent = stage.getSentParameterUpdateCount();
+		assertTrue(sent > 0);
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void unchangedSkipped()
+	{
+		long skipped = stage.getSkippedParameterUpdateCount();
+		stage.step();
+		assertSent(0);
+		assertTrue(stage.getSkippedParameterUpdateCount() > skipped);
+	}
+
+	@Test
+	public void movedPositionSent()
+	{
+		object.x = 15f;
+		stage.step();
+		assertSent(1);
+	}
+
+	@Test
+	public void changeUnderEpsilonSkipped()
+	{
+		object.x += stage.getParameterEpsilon() / 2f;
+		stage.step();
+		assertSent(0);
+	}
+
+	@Test
+	public void changeComparedToLastSent()
+	{
+		stage.setParameterEpsilon(1f);
+		object.x = 10.6f;
+		stage.step();
+		assertSent(0);
+		// each step is under the epsilon, but the total is not.
+		object.x = 11.2f;
+		stage.step();
+		assertSent(1);
+	}
+
+	@Test
+	public void gainSent()
+	{
+		group.setGainBias(0.5f);
+		stage.step();
+		assertSent(1);
+		stage.step();
+		assertSent(0);
+	}
+
+	@Test
+	public void zeroEpsilonSendsAnyChange()
+	{
+		stage.setParameterEpsilon(0f);
+		object.x = Math.nextUp(object.x);
+		stage.step();
+		assertSent(1);
+	}
+
+	// checks the amount of parameters sent since the last check.
+	private void assertSent(int expected)
+	{
+		long s = stage.getSentParameterUpdateCount();
+		assertEquals(expected, s - sent);
+		sent = s;
+	}
+
+}
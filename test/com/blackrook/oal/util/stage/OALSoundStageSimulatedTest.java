@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests playing cached sounds on a stage without an audio device.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageSimulatedTest
+{
+	/** Updates in a second. */
+	private static final int STEPS_PER_SECOND = 60;
+
+	private SimulatedBackend backend;
+	private SimulatedStage stage;
+	private TestSound sound;
+
+	@Before
+	public void setUp()
+	{
+		backend = new SimulatedBackend();
+		stage = new SimulatedStage(backend, 2, 1024 * 1024);
+		// half a second long.
+		sound = new TestSound("sound", SimulatedStage.SAMPLING_RATE / 2);
+		stage.cacheSounds(sound);
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void voiceFreedWhenSoundEnds()
+	{
+		stage.play(sound);
+		stage.step();
+		assertEquals(1, stage.getUsedVoices());
+		assertEquals(1, backend.getPlayingSourceCount());
+
+		for (int i = 0; i < STEPS_PER_SECOND / 4; i++)
+			stage.step();
+		assertEquals(1, stage.getUsedVoices());
+
+		assertTrue(stage.stepUntilSilent(STEPS_PER_SECOND));
+		assertEquals(0, backend.getPlayingSourceCount());
+		assertEquals(2, stage.getAvailableVoices());
+	}
+
+	@Test
+	public void loopingSoundKeepsVoice()
+	{
+		TestSound loop = new TestSound("loop", SimulatedStage.SAMPLING_RATE / 2);
+		loop.setLooping(true);
+		stage.play(loop);
+		for (int i = 0; i < STEPS_PER_SECOND * 2; i++)
+			stage.step();
+		assertEquals(1, stage.getUsedVoices());
+
+		stage.stopSound(loop);
+		stage.step();
+		assertEquals(0, stage.getUsedVoices());
+	}
+
+	@Test
+	public void voicesLimitPlayingSounds()
+	{
+		for (int i = 0; i < 3; i++)
+			stage.play(sound);
+		stage.step();
+		assertEquals(2, stage.getUsedVoices());
+		assertEquals(2, backend.getPlayingSourceCount());
+	}
+
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.OALBackendSource;
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestObject;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests how long the spatial index trusts cached positions,
+ * and what happens to voices that it culls.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageSpatialIndexTest
+{
+	/** Amount of objects refreshed before the moving object. */
+	private static final int OTHER_OBJECTS = 2000;
+
+	private OALSoundStageSpatialIndex<TestObject> index;
+	private TestObject moving;
+
+	@Before
+	public void setUp()
+	{
+		index = new OALSoundStageSpatialIndex<TestObject>(new SimulatedStage.TestObjectModel(), 10f);
+		for (int i = 0; i < OTHER_OBJECTS; i++)
+			index.update(new TestObject(i, 0f, 0f));
+		moving = new TestObject(1000f, 0f, 0f);
+		index.update(moving);
+		moving.x = 0f;
+	}
+
+	@Test
+	public void recentPositionTrusted()
+	{
+		index.refresh();
+		assertTrue(index.getMinimumDistance(moving, 0f, 0f, 0f) > 900f);
+	}
+
+	@Test
+	public void stalePositionReadAgain()
+	{
+		for (int i = 0; i <= OALSoundStageSpatialIndex.DEFAULT_MAX_STALE_REFRESHES; i++)
+			index.refresh();
+		assertEquals(0f, index.getMinimumDistance(moving, 0f, 0f, 0f), 0f);
+	}
+
+	@Test
+	public void cellsMatchPositions()
+	{
+		OALSoundStageSpatialIndex<TestObject> grid = new OALSoundStageSpatialIndex<TestObject>(new SimulatedStage.TestObjectModel(), 10f);
+		Random random = new Random(1L);
+		TestObject[] objects = new TestObject[500];
+		for (int i = 0; i < objects.length; i++)
+		{
+			objects[i] = new TestObject(random.nextFloat() * 400f - 200f, random.nextFloat() * 400f - 200f, 0f);
+			grid.update(objects[i]);
+		}
+
+		// move, remove and re-add objects, so cells fill, empty and shift in the table.
+		for (int n = 0; n < 5000; n++)
+		{
+			TestObject object = objects[random.nextInt(objects.length)];
+			if (random.nextInt(4) == 0)
+				grid.remove(object);
+			else
+			{
+				object.x = random.nextFloat() * 400f - 200f;
+				object.y = random.nextFloat() * 400f - 200f;
+				grid.update(object);
+			}
+		}
+
+		HashSet<Long> cells = new HashSet<Long>();
+		for (TestObject object : objects)
+			if (grid.contains(object))
+				cells.add(((long)Math.floor(object.x / 10f) << 32) ^ (long)Math.floor(object.y / 10f));
+		assertEquals(cells.size(), grid.getCellCount());
+
+		ArrayList<TestObject> near = new ArrayList<TestObject>();
+		grid.getObjectsNear(0f, 0f, 0f, 25f, near);
+		for (TestObject object : objects)
+		{
+			boolean inRange = grid.contains(object) && Math.abs(object.x) < 20f && Math.abs(object.y) < 20f;
+			if (inRange)
+				assertTrue(near.contains(object));
+		}
+		for (TestObject object : near)
+			assertTrue(grid.contains(object) && Math.abs(object.x) < 40f && Math.abs(object.y) < 40f);
+
+		for (TestObject object : objects)
+			grid.remove(object);
+		assertEquals(0, grid.size());
+		assertEquals(0, grid.getCellCount());
+	}
+
+	@Test
+	public void culledVoiceSilenced()
+	{
+		SimulatedStage stage = new SimulatedStage(new SimulatedBackend(), 2, 1024 * 1024);
+		stage.setSpatialIndex(new OALSoundStageSpatialIndex<TestObject>(new SimulatedStage.TestObjectModel(), 10f));
+		TestSound sound = new TestSound("sound", SimulatedStage.SAMPLING_RATE);
+		sound.setLooping(true);
+		sound.setMaxAttenuationDistance(20f);
+		stage.cacheSounds(sound);
+
+		TestObject object = new TestObject(5f, 0f, 0f);
+		stage.play(sound, new OALSoundGroup(), object);
+		stage.step();
+		OALBackendSource source = stage.getVoiceForObject(object, 0).source;
+		assertEquals(1f, SimulatedBackend.getGain(source), 0f);
+
+		object.x = 500f;
+		for (int i = 0; i < 4; i++)
+			stage.step();
+		assertTrue(stage.getCulledVoiceUpdateCount() > 0);
+		assertEquals(0f, SimulatedBackend.getGain(source), 0f);
+
+		object.x = 5f;
+		for (int i = 0; i <= OALSoundStageSpatialIndex.DEFAULT_MAX_STALE_REFRESHES; i++)
+			stage.step();
+		assertEquals(1f, SimulatedBackend.getGain(source), 0f);
+		stage.shutDown();
+	}
+
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestObject;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests streamed sounds on a simulated backend.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageStreamTest
+{
+	/** Maximum amount of updates to wait for a sound to end. */
+	private static final int MAX_STEPS = 600;
+
+	private SimulatedBackend backend;
+	private SimulatedStage stage;
+	private TestSound cached;
+	private TestSound streamed;
+	/** Amount of buffers used by the cached sound. */
+	private int cachedBuffers;
+	/** Amount of audio streams opened for the cached sound. */
+	private int openedStreams;
+
+	@Before
+	public void setUp()
+	{
+		backend = new SimulatedBackend();
+		stage = new SimulatedStage(backend, 4, 1024 * 1024);
+		cached = new TestSound("cached", SimulatedStage.SAMPLING_RATE / 2);
+		streamed = new TestSound("streamed", SimulatedStage.SAMPLING_RATE * 2);
+		streamed.setStreaming(true);
+		stage.cacheSounds(cached);
+		cachedBuffers = backend.getBufferCount();
+		openedStreams = stage.getOpenedStreamCount();
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void buffersDestroyedWhenStreamEnds()
+	{
+		stage.play(streamed);
+		stage.step();
+		assertEquals(1, stage.getUsedVoices());
+		assertTrue(backend.getBufferCount() > cachedBuffers);
+
+		assertTrue(stage.stepUntilSilent(MAX_STEPS));
+		assertEquals(cachedBuffers, backend.getBufferCount());
+	}
+
+	@Test
+	public void buffersDestroyedWhenStreamStopped()
+	{
+		stage.play(streamed);
+		stage.step();
+		stage.step();
+		stage.stopSound(streamed);
+		stage.step();
+		assertEquals(0, stage.getUsedVoices());
+		assertEquals(cachedBuffers, backend.getBufferCount());
+	}
+
+	@Test
+	public void buffersDestroyedWhenPrimedStreamReplayed()
+	{
+		stage.cacheSounds(streamed);
+		for (int i = 0; i < 2; i++)
+		{
+			stage.play(streamed);
+			stage.step();
+			assertTrue(stage.stepUntilSilent(MAX_STEPS));
+			assertEquals(cachedBuffers, backend.getBufferCount());
+		}
+	}
+
+	@Test
+	public void buffersDestroyedOnShutDown()
+	{
+		stage.play(streamed);
+		stage.step();
+		stage.shutDown();
+		assertEquals(0, backend.getBufferCount());
+		assertEquals(0, backend.getSourceCount());
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void decoderClosedWhenPrimed()
+	{
+		stage.cacheSounds(streamed);
+		assertEquals(openedStreams + 1, stage.getOpenedStreamCount());
+		assertEquals(openedStreams + 1, stage.getClosedStreamCount());
+	}
+
+	@Test
+	public void decoderClosedWhenStreamEnds()
+	{
+		stage.play(streamed);
+		stage.step();
+		assertTrue(stage.stepUntilSilent(MAX_STEPS));
+		assertEquals(openedStreams + 1, stage.getOpenedStreamCount());
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void decoderClosedWhenStreamStopped()
+	{
+		stage.play(streamed);
+		stage.step();
+		stage.stopSound(streamed);
+		stage.step();
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void decoderClosedWhenSeekingBack()
+	{
+		// without a seek cache, seeking back reopens the decoder.
+		stage.setStreamSeekCacheBytes(0);
+		TestObject object = new TestObject(0f, 0f, 0f);
+		stage.play(streamed, object, 0, 1f, 1f);
+		for (int i = 0; i < 10; i++)
+		{
+			stage.waitForDecoder();
+			stage.step();
+		}
+		stage.seekObject(object, 0, 0L);
+		stage.step();
+		assertTrue(stage.stepUntilSilent(MAX_STEPS));
+		assertTrue(stage.getOpenedStreamCount() > openedStreams + 1);
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void seekReadsFromFrame() throws UnsupportedAudioFileException, IOException
+	{
+		stage.setStreamSeekCacheBytes(0);
+		OALSoundStage<TestObject>.SourceStreamer stream = stage.new SourceStreamer(streamed, null);
+		byte[] chunk = new byte[stream.bytebuffer.length];
+
+		stream.position = 20000L * stream.frameBytes;
+		assertTrue(stream.nextChunk(chunk) > 0);
+		assertEquals(20000, getFrame(chunk, 0));
+		assertEquals(openedStreams + 1, stage.getOpenedStreamCount());
+
+		// decoders only read forward, so this reopens it.
+		stream.position = 1234L * stream.frameBytes;
+		assertTrue(stream.nextChunk(chunk) > 0);
+		assertEquals(1234, getFrame(chunk, 0));
+		assertEquals(openedStreams + 2, stage.getOpenedStreamCount());
+		assertEquals(openedStreams + 1, stage.getClosedStreamCount());
+
+		stream.closeDecoder();
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void seekBackReadsFromCache() throws UnsupportedAudioFileException, IOException
+	{
+		OALSoundStage<TestObject>.SourceStreamer stream = stage.new SourceStreamer(streamed, null);
+		byte[] chunk = new byte[stream.bytebuffer.length];
+
+		stream.position = 20000L * stream.frameBytes;
+		assertTrue(stream.nextChunk(chunk) > 0);
+		assertEquals(20000, getFrame(chunk, 0));
+
+		// decoded on the way to frame 20000, so the decoder is not reopened.
+		stream.position = 1234L * stream.frameBytes;
+		assertTrue(stream.nextChunk(chunk) > 0);
+		assertEquals(1234, getFrame(chunk, 0));
+		assertEquals(openedStreams + 1, stage.getOpenedStreamCount());
+		assertEquals(openedStreams, stage.getClosedStreamCount());
+
+		stream.closeDecoder();
+		assertTrue(stage.waitForClosedStreams());
+	}
+
+	@Test
+	public void seekToEndNotReopened() throws UnsupportedAudioFileException, IOException
+	{
+		OALSoundStage<TestObject>.SourceStreamer stream = stage.new SourceStreamer(streamed, null);
+		byte[] chunk = new byte[stream.bytebuffer.length];
+		while (stream.nextChunk(chunk) > 0) 
+			continue;
+		assertEquals(openedStreams + 1, stage.getClosedStreamCount());
+
+		// the end of the sound is known, and the decoder is not needed to find it again.
+		stream.position = (SimulatedStage.SAMPLING_RATE * 2 - 1) * (long)stream.frameBytes;
+		assertEquals(stream.frameBytes, stream.nextChunk(chunk));
+		assertTrue(stream.nextChunk(chunk) <= 0);
+		assertEquals(openedStreams + 1, stage.getOpenedStreamCount());
+	}
+
+	// frame index stored in a frame of generated data.
+	static int getFrame(byte[] chunk, int frame)
+	{
+		return (chunk[frame * 2] & 0x0ff) | ((chunk[frame * 2 + 1] & 0x0ff) << 8);
+	}
+
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestObject;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests virtual voice promotion and demotion on a simulated backend.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageVirtualVoiceTest
+{
+	/** Distance at which sounds can't be heard. */
+	private static final float MAX_DISTANCE = 100f;
+
+	private SimulatedBackend backend;
+	private SimulatedStage stage;
+	private OALSoundGroup group;
+	private TestSound loop;
+	private TestObject quiet1;
+	private TestObject quiet2;
+	private TestObject loud;
+
+	@Before
+	public void setUp()
+	{
+		backend = new SimulatedBackend();
+		stage = new SimulatedStage(backend, 2, 1024 * 1024);
+		stage.setVirtualVoicesEnabled(true);
+		group = new OALSoundGroup();
+		loop = createLoop("loop", SimulatedStage.SAMPLING_RATE);
+		quiet1 = new TestObject(50f, 0f, 0f);
+		quiet2 = new TestObject(-50f, 0f, 0f);
+		loud = new TestObject(MAX_DISTANCE * 2f, 0f, 0f);
+		
+		stage.play(loop, group, quiet1);
+		stage.play(loop, group, quiet2);
+		stage.step();
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void promotedOverQuietestVoice()
+	{
+		stage.play(loop, group, loud);
+		stage.step();
+		assertEquals(2, stage.getUsedVoices());
+		assertEquals(1, stage.getVirtualVoices());
+
+		loud.x = 1f;
+		stage.step();
+		assertEquals(2, stage.getUsedVoices());
+		assertEquals(1, stage.getVirtualVoices());
+		assertEquals(1L, stage.getVirtualPromotionCount());
+		assertEquals(1L, stage.getVirtualDemotionCount());
+		assertEquals(1, stage.getVoiceCountForObject(loud));
+	}
+
+	@Test
+	public void demotedWhenTooFar()
+	{
+		quiet1.x = MAX_DISTANCE * 2f;
+		stage.step();
+		assertEquals(1, stage.getUsedVoices());
+		assertEquals(1, stage.getVirtualVoices());
+		assertEquals(1L, stage.getVirtualDemotionCount());
+	}
+
+	@Test
+	public void positionReadOncePerUpdate()
+	{
+		quiet1.positionReads = 0;
+		stage.step();
+		assertEquals(1, quiet1.positionReads);
+	}
+
+	@Test
+	public void promotedAtElapsedFrame() throws InterruptedException
+	{
+		long before = System.nanoTime();
+		stage.play(loop, group, loud, 0);
+		stage.step();
+		long played = System.nanoTime();
+		Thread.sleep(300L);
+
+		loud.x = 1f;
+		long promoting = System.nanoTime();
+		stage.step();
+		long promoted = System.nanoTime();
+		assertEquals(1L, stage.getVirtualPromotionCount());
+
+		// the loop is one second long, so it should not have looped yet.
+		int frame = stage.getVoiceForObject(loud, 0).source.getSampleOffset();
+		assertTrue(frame >= getFrames(promoting - played));
+		assertTrue(frame <= getFrames(promoted - before));
+	}
+
+	@Test
+	public void streamPromotedOverQuietestVoice()
+	{
+		TestSound streamed = createLoop("streamed", SimulatedStage.SAMPLING_RATE * 2);
+		streamed.setStreaming(true);
+		stage.play(streamed, group, loud);
+		stage.step();
+		assertEquals(1, stage.getVirtualVoices());
+
+		loud.x = 1f;
+		stage.step();
+		assertEquals(1L, stage.getVirtualPromotionCount());
+		assertEquals(1L, stage.getVirtualDemotionCount());
+		assertEquals(1, stage.getVoiceCountForObject(loud));
+	}
+
+	@Test
+	public void noDemotionWhenSoundCannotBeCached()
+	{
+		promoteBroken(createLoop("broken", -1));
+	}
+
+	@Test
+	public void noDemotionWhenStreamCannotBeOpened()
+	{
+		TestSound broken = createLoop("broken", -1);
+		broken.setStreaming(true);
+		promoteBroken(broken);
+	}
+
+	// the broken sound is dropped, and the voices keep playing.
+	private void promoteBroken(TestSound broken)
+	{
+		stage.play(broken, group, loud);
+		stage.step();
+		assertEquals(1, stage.getVirtualVoices());
+
+		loud.x = 1f;
+		stage.step();
+		assertEquals(2, stage.getUsedVoices());
+		assertEquals(0, stage.getVirtualVoices());
+		assertEquals(0L, stage.getVirtualPromotionCount());
+		assertEquals(0L, stage.getVirtualDemotionCount());
+		assertEquals(1, stage.getVoiceCountForObject(quiet1));
+		assertEquals(1, stage.getVoiceCountForObject(quiet2));
+	}
+
+	private static long getFrames(long nanos)
+	{
+		return nanos * SimulatedStage.SAMPLING_RATE / 1000000000L;
+	}
+
+	private static TestSound createLoop(String name, int frames)
+	{
+		TestSound out = new TestSound(name, frames);
+		out.setLooping(true);
+		out.setMaxAttenuationDistance(MAX_DISTANCE);
+		return out;
+	}
+
+}
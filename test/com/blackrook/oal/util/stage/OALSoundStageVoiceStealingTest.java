@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackrook.oal.util.backend.SimulatedBackend;
+import com.blackrook.oal.util.stage.SimulatedStage.TestSound;
+
+/**
+ * Tests which voice is stolen when a sound can't get a free voice.
+ * @author Matthew Tropiano
+ */
+public class OALSoundStageVoiceStealingTest
+{
+	private SimulatedStage stage;
+
+	@Before
+	public void setUp()
+	{
+		stage = new SimulatedStage(new SimulatedBackend(), 6, 1024 * 1024);
+		stage.setVoiceStealing(true);
+	}
+
+	@After
+	public void tearDown()
+	{
+		stage.shutDown();
+	}
+
+	@Test
+	public void leastImportantStolenFirst()
+	{
+		float[] priorities = {3f, 1f, 5f, 2f, 6f, 4f};
+		TestSound[] sounds = new TestSound[priorities.length];
+		for (int i = 0; i < sounds.length; i++)
+		{
+			sounds[i] = sound("sound" + i, priorities[i]);
+			stage.play(sounds[i]);
+		}
+		stage.step();
+		assertEquals(6, stage.getUsedVoices());
+
+		TestSound important = sound("important", 10f);
+		for (int i = 0; i < 3; i++)
+			stage.play(important);
+		stage.step();
+
+		assertEquals(3, stage.getStolenVoiceCount());
+		assertEquals(3, stage.getVoiceCountForSound(important));
+		// priorities 1, 2 and 3 are gone.
+		assertEquals(0, stage.getVoiceCountForSound(sounds[0]));
+		assertEquals(0, stage.getVoiceCountForSound(sounds[1]));
+		assertEquals(0, stage.getVoiceCountForSound(sounds[3]));
+		assertEquals(1, stage.getVoiceCountForSound(sounds[2]));
+		assertEquals(1, stage.getVoiceCountForSound(sounds[4]));
+		assertEquals(1, stage.getVoiceCountForSound(sounds[5]));
+	}
+
+	@Test
+	public void lessImportantSoundDoesNotSteal()
+	{
+		fill(sound("normal", 5f));
+		TestSound lesser = sound("lesser", 4f);
+		stage.play(lesser);
+		stage.step();
+		assertEquals(0, stage.getStolenVoiceCount());
+		assertEquals(0, stage.getVoiceCountForSound(lesser));
+	}
+
+	@Test
+	public void quieterVoiceStolenAtSamePriority()
+	{
+		TestSound quiet = sound("quiet", 5f);
+		TestSound loud = sound("loud", 5f);
+		stage.play(quiet, (OALSoundGroup)null, 0.25f, 1f);
+		for (int i = 0; i < 5; i++)
+			stage.play(loud, (OALSoundGroup)null, 1f, 1f);
+		stage.step();
+
+		// as loud as the loudest voice: no steal.
+		TestSound same = sound("same", 5f);
+		stage.play(same, (OALSoundGroup)null, 0.25f, 1f);
+		stage.step();
+		assertEquals(0, stage.getStolenVoiceCount());
+
+		stage.play(same, (OALSoundGroup)null, 0.5f, 1f);
+		stage.step();
+		assertEquals(1, stage.getStolenVoiceCount());
+		assertEquals(0, stage.getVoiceCountForSound(quiet));
+		assertEquals(1, stage.getVoiceCountForSound(same));
+		assertEquals(5, stage.getVoiceCountForSound(loud));
+	}
+
+	@Test
+	public void noStealingWhenDisabled()
+	{
+		stage.setVoiceStealing(false);
+		fill(sound("normal", 1f));
+		TestSound important = sound("important", 10f);
+		stage.play(important);
+		stage.step();
+		assertEquals(0, stage.getStolenVoiceCount());
+		assertEquals(0, stage.getVoiceCountForSound(important));
+	}
+
+	@Test
+	public void stealingEnabledWhilePlaying()
+	{
+		stage.setVoiceStealing(false);
+		fill(sound("normal", 1f));
+		stage.setVoiceStealing(true);
+		TestSound important = sound("important", 10f);
+		stage.play(important);
+		stage.step();
+		assertEquals(1, stage.getStolenVoiceCount());
+		assertEquals(1, stage.getVoiceCountForSound(important));
+	}
+
+	// plays a sound on every voice.
+	private void fill(TestSound sound)
+	{
+		for (int i = 0; i < stage.getVoiceCount(); i++)
+			stage.play(sound);
+		stage.step();
+		assertEquals(stage.getVoiceCount(), stage.getUsedVoices());
+	}
+
+	// a looping sound, so no voice frees itself during a test.
+	private static TestSound sound(String name, float priority)
+	{
+		TestSound out = new TestSound(name, SimulatedStage.SAMPLING_RATE);
+		out.setPriority(priority);
+		out.setLooping(true);
+		return out;
+	}
+
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.oal.util.stage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.blackrook.oal.util.OALSoundResource;
+import com.blackrook.oal.util.OALSoundResourceAbstract;
+import com.blackrook.oal.util.backend.SimulatedBackend;
+
+/**
+ * A sound stage on a {@link SimulatedBackend} that plays generated sounds,
+ * and counts the audio streams that it opens and closes.
+ * <p>
+ * Sounds are 16-bit mono, and each sample is the index of its frame,
+ * so that decoded data shows where in the sound it came from.
+ * Sounds with a negative length can't be opened.
+ * @author Matthew Tropiano
+ */
+public class SimulatedStage extends OALSoundStage<SimulatedStage.TestObject>
+{
+	/** Sampling rate of the sounds. */
+	public static final int SAMPLING_RATE = 22050;
+	/** Simulated time between updates. */
+	public static final long UPDATE_NANOS = 1000000000L / 60L;
+	/** Nanoseconds to wait for the stream decoder thread. */
+	private static final long WAIT_NANOS = 2000000000L;
+
+	/** The simulated backend. */
+	private SimulatedBackend backend;
+	/** Amount of audio streams opened. */
+	private AtomicInteger openedStreams;
+	/** Amount of audio streams closed. */
+	private AtomicInteger closedStreams;
+
+	/**
+	 * Creates a new stage.
+	 * @param backend the backend.
+	 * @param numVoices the amount of voices.
+	 * @param maxCacheBytes the maximum size of the buffer cache in bytes.
+	 */
+	public SimulatedStage(SimulatedBackend backend, int numVoices, int maxCacheBytes)
+	{
+		this(backend, numVoices, maxCacheBytes, DEFAULT_EVENT_QUEUE_CAPACITY, EventOverflowPolicy.GROW);
+	}
+
+	/**
+	 * Creates a new stage.
+	 * @param backend the backend.
+	 * @param numVoices the amount of voices.
+	 * @param maxCacheBytes the maximum size of the buffer cache in bytes.
+	 * @param eventQueueCapacity the amount of events that can be pending between event updates.
+	 * @param overflowPolicy what to do with events past the queue's capacity.
+	 */
+	public SimulatedStage(SimulatedBackend backend, int numVoices, int maxCacheBytes, int eventQueueCapacity, EventOverflowPolicy overflowPolicy)
+	{
+		super(backend, new TestObjectModel(), numVoices, maxCacheBytes, eventQueueCapacity, overflowPolicy);
+		this.backend = backend;
+		this.openedStreams = new AtomicInteger(0);
+		this.closedStreams = new AtomicInteger(0);
+		setListenerPosition(0f, 0f, 0f);
+	}
+
+	@Override
+	protected AudioInputStream openStreamForAudio(OALSoundResource resource)
+		throws UnsupportedAudioFileException, IOException
+	{
+		int frames = ((TestSound)resource).frames;
+		if (frames < 0)
+			throw new IOException("Could not open sound resource '"+resource.getName()+"'.");
+		byte[] data = new byte[frames * 2];
+		for (int i = 0; i < frames; i++)
+		{
+			data[i * 2] = (byte)(i & 0x0ff);
+			data[i * 2 + 1] = (byte)((i >> 8) & 0x0ff);
+		}
+		AudioFormat format = new AudioFormat(SAMPLING_RATE, 16, 1, true, false);
+		openedStreams.incrementAndGet();
+		return new AudioInputStream(new ByteArrayInputStream(data), format, frames)
+		{
+			private boolean closed = false;
+
+			@Override
+			public void close() throws IOException
+			{
+				if (!closed)
+				{
+					closed = true;
+					closedStreams.incrementAndGet();
+				}
+				super.close();
+			}
+		};
+	}
+
+	/**
+	 * Moves simulated time forward by one update, and updates the stage.
+	 */
+	public void step()
+	{
+		backend.advance(UPDATE_NANOS);
+		update();
+	}
+
+	/**
+	 * Steps until no voices are used, or until an amount of steps have passed.
+	 * @return true if no voices are used.
+	 */
+	public boolean stepUntilSilent(int maxSteps)
+	{
+		for (int i = 0; i < maxSteps && getUsedVoices() > 0; i++)
+		{
+			waitForDecoder();
+			step();
+		}
+		return getUsedVoices() == 0;
+	}
+
+	/**
+	 * Gives the stream decoder thread some time to catch up.
+	 */
+	public void waitForDecoder()
+	{
+		try {
+			Thread.sleep(2L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits until as many audio streams have been closed as have been opened.
+	 * @return true if they have, false if that did not happen in time.
+	 */
+	public boolean waitForClosedStreams()
+	{
+		long end = System.nanoTime() + WAIT_NANOS;
+		while (closedStreams.get() < openedStreams.get() && System.nanoTime() < end)
+			waitForDecoder();
+		return closedStreams.get() == openedStreams.get();
+	}
+
+	/**
+	 * Gets the amount of audio streams opened.
+	 */
+	public int getOpenedStreamCount()
+	{
+		return openedStreams.get();
+	}
+
+	/**
+	 * Gets the amount of audio streams closed.
+	 */
+	public int getClosedStreamCount()
+	{
+		return closedStreams.get();
+	}
+
+	/**
+	 * A generated sound.
+	 */
+	public static class TestSound extends OALSoundResourceAbstract
+	{
+		private String name;
+		/** Length in sample frames. */
+		private int frames;
+
+		/**
+		 * Creates a new sound.
+		 * @param name the sound's name.
+		 * @param frames the sound's length in sample frames, or negative for a sound that can't be opened.
+		 */
+		public TestSound(String name, int frames)
+		{
+			this.name = name;
+			this.frames = frames;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public String getPath()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * An object at a position, which counts how often its position is read.
+	 */
+	public static class TestObject
+	{
+		float x, y, z;
+		/** Amount of times that the object model read its position. */
+		int positionReads;
+
+		public TestObject(float x, float y, float z)
+		{
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+	}
+
+	/**
+	 * Object positions, with no velocity or direction.
+	 * Each read of the x-coordinate counts as a read of the position.
+	 */
+	static class TestObjectModel implements OALSoundStageObjectModel<TestObject>
+	{
+		@Override
+		public float getSoundPositionX(TestObject object)
+		{
+			object.positionReads++;
+			return object.x;
+		}
+
+		@Override
+		public float getSoundPositionY(TestObject object)
+		{
+			return object.y;
+		}
+
+		@Override
+		public float getSoundPositionZ(TestObject object)
+		{
+			return object.z;
+		}
+
+		@Override
+		public float getSoundVelocityX(TestObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundVelocityY(TestObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundVelocityZ(TestObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundDirectionX(TestObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundDirectionY(TestObject object)
+		{
+			return 0f;
+		}
+
+		@Override
+		public float getSoundDirectionZ(TestObject object)
+		{
+			return 0f;
+		}
+	}
+
+}